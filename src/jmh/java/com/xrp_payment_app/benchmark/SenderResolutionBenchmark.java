@@ -0,0 +1,150 @@
+package com.xrp_payment_app.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Database time to resolve the sender of one initiation: the repository calls PaymentService
+// used to make (two round trips for a known address, five for a new user) against the single
+// resolve_sender_account call. Plain JDBC with the statements Hibernate issued, so the numbers
+// are round trips and server time rather than ORM overhead.
+//
+// Needs a Postgres, by default the one from docker-compose.yml:
+//   -Djmh.args="SenderResolutionBenchmark -jvmArgs -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/xrpdb"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SenderResolutionBenchmark {
+
+    private static final String URL = System.getProperty("benchmark.db.url", "jdbc:postgresql://localhost:5432/xrpdb");
+    private static final String USER = System.getProperty("benchmark.db.user", "xrpuser");
+    private static final String PASSWORD = System.getProperty("benchmark.db.password", "xrppassword");
+    private static final String KNOWN_ADDRESS = "rBenchKnownSender";
+    private static final String KNOWN_USER = "bench-known";
+
+    private final AtomicLong nextAddress = new AtomicLong();
+    private final String run = UUID.randomUUID().toString().substring(0, 8);
+
+    private Connection connection;
+    private PreparedStatement accountByAddress;
+    private PreparedStatement accountByUserAndAddress;
+    private PreparedStatement userByName;
+    private PreparedStatement insertUser;
+    private PreparedStatement insertAccount;
+    private PreparedStatement resolve;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        Flyway.configure()
+                .dataSource(URL, USER, PASSWORD)
+                .schemas("xrp_payment")
+                .table("xrp_payment_history_table")
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+        connection = DriverManager.getConnection(URL, USER, PASSWORD);
+        accountByAddress = connection.prepareStatement("SELECT * FROM xrp_payment.xrp_accounts WHERE xrp_address = ?");
+        accountByUserAndAddress = connection.prepareStatement("SELECT * FROM xrp_payment.xrp_accounts WHERE user_id = ? AND xrp_address = ?");
+        userByName = connection.prepareStatement("SELECT * FROM xrp_payment.users WHERE user_name = ?");
+        insertUser = connection.prepareStatement(
+                "INSERT INTO xrp_payment.users (user_name, created_at, updated_at) VALUES (?, now(), now()) RETURNING id");
+        insertAccount = connection.prepareStatement(
+                "INSERT INTO xrp_payment.xrp_accounts (user_id, xrp_address, created_at, updated_at) VALUES (?, ?, now(), now()) RETURNING id");
+        resolve = connection.prepareStatement("SELECT * FROM xrp_payment.resolve_sender_account(?, ?, ?)");
+        // The known sender every "existing" benchmark resolves
+        resolve(KNOWN_ADDRESS, KNOWN_USER);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (PreparedStatement accounts = connection.prepareStatement("DELETE FROM xrp_payment.xrp_accounts WHERE xrp_address LIKE ?");
+             PreparedStatement users = connection.prepareStatement("DELETE FROM xrp_payment.users WHERE user_name LIKE ?")) {
+            accounts.setString(1, "rBench%");
+            accounts.executeUpdate();
+            users.setString(1, "bench-%");
+            users.executeUpdate();
+        }
+        connection.close();
+    }
+
+    private String newAddress() {
+        return "rBench" + run + nextAddress.incrementAndGet();
+    }
+
+    private static long firstId(PreparedStatement statement) throws SQLException {
+        try (ResultSet rows = statement.executeQuery()) {
+            return rows.next() ? rows.getLong("id") : -1;
+        }
+    }
+
+    private long resolve(String address, String userName) throws SQLException {
+        resolve.setString(1, address);
+        resolve.setString(2, userName);
+        resolve.setString(3, "bench-" + run + "-" + nextAddress.incrementAndGet());
+        return firstId(resolve);
+    }
+
+    // findByXrpAddress, then findByUserIdAndXrpAddress
+    @Benchmark
+    public long repositoryCallsKnownSender() throws SQLException {
+        accountByAddress.setString(1, KNOWN_ADDRESS);
+        long userId;
+        try (ResultSet rows = accountByAddress.executeQuery()) {
+            rows.next();
+            userId = rows.getLong("user_id");
+        }
+        accountByUserAndAddress.setLong(1, userId);
+        accountByUserAndAddress.setString(2, KNOWN_ADDRESS);
+        return firstId(accountByUserAndAddress);
+    }
+
+    @Benchmark
+    public long singleCallKnownSender() throws SQLException {
+        return resolve(KNOWN_ADDRESS, KNOWN_USER);
+    }
+
+    // findByXrpAddress (miss), findByuserName (miss), save(user), save(account), findByUserIdAndXrpAddress
+    @Benchmark
+    public long repositoryCallsNewSender() throws SQLException {
+        String address = newAddress();
+        accountByAddress.setString(1, address);
+        firstId(accountByAddress);
+        userByName.setString(1, "bench-missing");
+        firstId(userByName);
+        insertUser.setString(1, "bench-" + run + "-" + nextAddress.incrementAndGet());
+        long userId = firstId(insertUser);
+        insertAccount.setLong(1, userId);
+        insertAccount.setString(2, address);
+        firstId(insertAccount);
+        accountByUserAndAddress.setLong(1, userId);
+        accountByUserAndAddress.setString(2, address);
+        return firstId(accountByUserAndAddress);
+    }
+
+    @Benchmark
+    public long singleCallNewSender() throws SQLException {
+        return resolve(newAddress(), "bench-missing");
+    }
+}
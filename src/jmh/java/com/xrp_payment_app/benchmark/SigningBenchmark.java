@@ -0,0 +1,105 @@
+package com.xrp_payment_app.benchmark;
+
+import com.google.common.primitives.UnsignedInteger;
+import com.xrp_payment_app.service.PlatformSigningService;
+import com.xrp_payment_app.utils.SecureSigning;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xrpl.xrpl4j.crypto.signing.SingleSignedTransaction;
+import org.xrpl.xrpl4j.model.transactions.Address;
+import org.xrpl.xrpl4j.model.transactions.Payment;
+import org.xrpl.xrpl4j.model.transactions.XrpCurrencyAmount;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Signing one platform payment the old way (seed decoded, key derived and a signature service
+// built per call) against the shared signer, and a batch signed sequentially against sign(List).
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SigningBenchmark {
+
+    // The genesis account's well-known secret
+    private static final String SECRET = "snoPBrXtMeMyMHUVTgbuqAfg1SUTb";
+
+    @Param({"64"})
+    public int batchSize;
+
+    private PlatformSigningService signingService;
+    private Payment payment;
+    private List<Payment> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        signingService = new PlatformSigningService(SECRET, 0);
+        payment = payment(1);
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(payment(i + 1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        signingService.shutdown();
+    }
+
+    private Payment payment(int sequence) {
+        return Payment.builder()
+                .account(Address.of("rHb9CJAWyB4rj91VRWn96DkukG4bwdtyTh"))
+                .destination(Address.of("rPT1Sjq2YGrBMTttX4GZHjKu9dyfzbpAYe"))
+                .amount(XrpCurrencyAmount.ofDrops(1_000_000))
+                .fee(XrpCurrencyAmount.ofDrops(12))
+                .sequence(UnsignedInteger.valueOf(sequence))
+                .signingPublicKey(signingService.publicKey())
+                .build();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public SingleSignedTransaction<Payment> perCallDerivation() {
+        return SecureSigning.signWithSeed(SECRET, payment);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public SingleSignedTransaction<Payment> sharedSigner() {
+        return signingService.sign(payment);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public List<SingleSignedTransaction<Payment>> batchPerCallDerivation() {
+        List<SingleSignedTransaction<Payment>> signed = new ArrayList<>(batch.size());
+        for (Payment transaction : batch) {
+            signed.add(SecureSigning.signWithSeed(SECRET, transaction));
+        }
+        return signed;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public List<SingleSignedTransaction<Payment>> batchParallel() {
+        return signingService.sign(batch);
+    }
+}
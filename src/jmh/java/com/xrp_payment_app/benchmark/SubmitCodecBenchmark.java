@@ -0,0 +1,86 @@
+package com.xrp_payment_app.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.xrp_payment_app.dto.SubmitResultResponse;
+import com.xrp_payment_app.utils.SubmitCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Encoding one submit request and reading its response: the tree model the transport used
+// (ObjectNode request, readTree of the whole response) against SubmitCodec. Run with -prof gc
+// for bytes allocated per submit.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubmitCodecBenchmark {
+
+    // A signed Payment is a few hundred hex characters, echoed back in tx_blob
+    private static final String BLOB = "1200002280000000240000000261D4838D7EA4C6800000000000000000000000000055534400000000004B4E9C06F24296074F7B"
+            + "C48F92A97916C6DC5EA968400000000000000A732103AB40A0490F9B7ED8DF29D246BF2D6269820A0EE7742ACDD457BEA7C7D0931EDB7446304402"
+            + "2D3DBB8E3A5B0A8D1D1D4B3F7C4A6B2E3F1D9E8C7B6A5F4E3D2C1B0A9F8E7D60220515A5C8C6B7E1D2F3A4B5C6D7E8F9A0B1C2D3E4F5A6B7C8D9"
+            + "E0F1A2B3C4D5E6F8114DD76483FACDEE26E60D8A586BB58D09F27045C46831400000000000000000000000000000000000000000";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SubmitCodec codec = new SubmitCodec(mapper.getFactory());
+
+    private byte[] response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        response = ("{\"result\":{\"accepted\":true,\"account_sequence_available\":3,\"account_sequence_next\":3,\"applied\":true,"
+                + "\"broadcast\":true,\"engine_result\":\"tesSUCCESS\",\"engine_result_code\":0,"
+                + "\"engine_result_message\":\"The transaction was applied. Only final in a validated ledger.\",\"kept\":true,"
+                + "\"open_ledger_cost\":\"10\",\"queued\":false,\"status\":\"success\",\"tx_blob\":\"" + BLOB + "\","
+                + "\"tx_json\":{\"Account\":\"rf1BiGeXwwQoi8Z2ueFYTEXSwuJYfV2Jpn\",\"Amount\":{\"currency\":\"USD\","
+                + "\"issuer\":\"ra5nK24KXen9AHvsdFTKHSANinZseWnPcX\",\"value\":\"1\"},\"Destination\":\"ra5nK24KXen9AHvsdFTKHSANinZseWnPcX\","
+                + "\"Fee\":\"10\",\"Flags\":2147483648,\"Sequence\":2,\"SigningPubKey\":\"03AB40A0490F9B7ED8DF29D246BF2D6269820A0EE7742ACDD457BEA7C7D0931EDB\","
+                + "\"TransactionType\":\"Payment\",\"TxnSignature\":\"3044022\",\"hash\":\"82230B9D489370504B39BC2CE46216176CAC9E752E5C1774A8CBEC9FBB3F2D4A\"},"
+                + "\"validated_ledger_index\":21184416}}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void treeModel(Blackhole blackhole) throws IOException {
+        ObjectNode request = mapper.createObjectNode();
+        request.put("method", "submit");
+        request.putArray("params").addObject().put("tx_blob", BLOB);
+        blackhole.consume(mapper.writeValueAsBytes(request));
+
+        JsonNode result = mapper.readTree(response).path("result");
+        String engineResult = result.path("engine_result").asText();
+        blackhole.consume(new SubmitResultResponse(engineResult, result.path("engine_result_message").asText(""),
+                result.path("tx_json").path("hash").asText(), engineResult.startsWith("tes"), result.path("error").asText("")));
+    }
+
+    @Benchmark
+    public void codec(Blackhole blackhole) {
+        DataBuffer request = codec.encodeRequest(BLOB);
+        blackhole.consume(request.readableByteCount());
+        // Written and released by the HTTP client in production
+        DataBufferUtils.release(request);
+
+        blackhole.consume(codec.decodeResponse(DefaultDataBufferFactory.sharedInstance.wrap(response)));
+    }
+}
@@ -0,0 +1,134 @@
+package com.xrp_payment_app.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xrp_payment_app.config.TracingAspect;
+import com.xrp_payment_app.service.XrplService;
+import com.xrp_payment_app.service.XrplTransport;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.otel.bridge.OtelBaggageManager;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// What TracingAspect adds to one call, with the transport answering in place so only the
+// instrumentation is measured. Modes: untraced (no aspect), background (aspect, no request
+// observation open, as for worker polls), sampled and unsampled (inside a request observation
+// with the OTel bridge and meter handler, at TRACING_SAMPLING_PROBABILITY 1.0 and 0.0).
+// Warmup is longer than the other benchmarks, the handler chain takes a while to compile.
+// Run with -prof gc for allocations.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TracingBenchmark {
+
+    private static final String ADDRESS = "rPT1Sjq2YGrBMTttX4GZHjKu9dyfzbpAYe";
+
+    @Param({"untraced", "background", "sampled", "unsampled"})
+    public String mode;
+
+    private SdkTracerProvider tracerProvider;
+    private Observation request;
+    private Observation.Scope requestScope;
+    private XrplService xrplService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode result = mapper.readTree("{\"info\":{\"build_version\":\"2.4.0\",\"server_state\":\"full\"},"
+                + "\"account_data\":{\"Account\":\"" + ADDRESS + "\",\"Balance\":\"1000000000\",\"Sequence\":4711}}");
+        XrplTransport transport = new XrplTransport() {
+            @Override
+            public Mono<JsonNode> send(String method, JsonNode params) {
+                return Mono.just(result);
+            }
+
+            @Override
+            public ObjectMapper objectMapper() {
+                return mapper;
+            }
+        };
+        XrplService target = new XrplService(transport, new PaymentMetrics(new SimpleMeterRegistry()));
+        if ("untraced".equals(mode)) {
+            xrplService = target;
+            return;
+        }
+
+        // What Spring Boot wires for the OTel bridge: a batching processor in front of the exporter
+        tracerProvider = SdkTracerProvider.builder()
+                .setSampler(Sampler.parentBased(Sampler.traceIdRatioBased("unsampled".equals(mode) ? 0.0 : 1.0)))
+                .addSpanProcessor(BatchSpanProcessor.builder(SpanExporter.composite()).build())
+                .build();
+        OtelCurrentTraceContext currentTraceContext = new OtelCurrentTraceContext();
+        OtelTracer tracer = new OtelTracer(tracerProvider.get("benchmark"), currentTraceContext, event -> { },
+                new OtelBaggageManager(currentTraceContext, List.of(), List.of()));
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig()
+                .observationHandler(new DefaultMeterObservationHandler(new SimpleMeterRegistry()))
+                .observationHandler(new DefaultTracingObservationHandler(tracer));
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new TracingAspect(observationRegistry));
+        xrplService = proxyFactory.getProxy();
+
+        if (!"background".equals(mode)) {
+            // Stands in for the server observation Spring opens around the controller call
+            request = Observation.start("http.server.requests", observationRegistry);
+            requestScope = request.openScope();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (requestScope != null) {
+            requestScope.close();
+            request.stop();
+        }
+        if (tracerProvider != null) {
+            tracerProvider.close();
+        }
+    }
+
+    @Benchmark
+    public JsonNode blockingCall() {
+        return xrplService.getServerInfo();
+    }
+
+    @Benchmark
+    public JsonNode reactiveCall() {
+        return xrplService.getAccountInfoAsync(ADDRESS).block();
+    }
+}
@@ -0,0 +1,212 @@
+package com.xrp_payment_app.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xrp_payment_app.XrpPaymentAppApplication;
+import com.xrp_payment_app.constants.PathConstants;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Concurrent v2 batch initiations against the whole application, once with request handling on
+// platform threads and once on virtual threads. Every JMH thread is one client with a single
+// request in flight. Stubbed rippled and Xaman answer after remoteLatencyMs, so the run shows
+// how many initiations each threading model keeps in flight while they wait on remote calls.
+// Throughput mode gives requests per millisecond, SampleTime gives p50/p95/p99 latency.
+//
+// The Xaman bulkhead and connection pool are raised so neither caps concurrency before the
+// threading model does (Tomcat's 200 threads and the 64 thread fan-out pool in platform mode).
+//
+// Needs a Postgres, by default the one from docker-compose.yml. Concurrency is the thread count:
+//   -Djmh.args="VirtualThreadLoadBenchmark -t 400 -p remoteLatencyMs=100 -jvmArgs -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/xrpdb"
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(200)
+@State(Scope.Benchmark)
+public class VirtualThreadLoadBenchmark {
+
+    private static final String DB_URL = System.getProperty("benchmark.db.url", "jdbc:postgresql://localhost:5432/xrpdb");
+    private static final String DB_USER = System.getProperty("benchmark.db.user", "xrpuser");
+    private static final String DB_PASSWORD = System.getProperty("benchmark.db.password", "xrppassword");
+    private static final String SENDER = "rHb9CJAWyB4rj91VRWn96DkukG4bwdtyTh";
+    private static final String DESTINATION = "rPT1Sjq2YGrBMTttX4GZHjKu9dyfzbpAYe";
+    private static final long LEDGER_INDEX = 26575101;
+
+    private static final String FEE_RESULT = "{\"current_ledger_size\":\"14\",\"current_queue_size\":\"0\","
+            + "\"drops\":{\"base_fee\":\"10\",\"median_fee\":\"5000\",\"minimum_fee\":\"10\",\"open_ledger_fee\":\"10\"},"
+            + "\"expected_ledger_size\":\"24\",\"ledger_current_index\":" + LEDGER_INDEX + ","
+            + "\"levels\":{\"median_level\":\"128000\",\"minimum_level\":\"256\",\"open_ledger_level\":\"256\",\"reference_level\":\"256\"},"
+            + "\"max_queue_size\":\"480\",\"status\":\"success\"}";
+    private static final String SERVER_INFO_RESULT = "{\"info\":{\"server_state\":\"full\",\"validated_ledger\":"
+            + "{\"seq\":" + (LEDGER_INDEX - 1) + ",\"base_fee_xrp\":0.00001,\"reserve_base_xrp\":1,\"reserve_inc_xrp\":0.2}},"
+            + "\"status\":\"success\"}";
+    private static final String ACCOUNT_INFO_RESULT = "{\"account_data\":{\"Account\":\"" + SENDER + "\","
+            + "\"Balance\":\"100000000000\",\"Flags\":0,\"LedgerEntryType\":\"AccountRoot\",\"OwnerCount\":0,"
+            + "\"PreviousTxnID\":\"0000000000000000000000000000000000000000000000000000000000000000\","
+            + "\"PreviousTxnLgrSeq\":1,\"Sequence\":1,"
+            + "\"index\":\"2B6AC232AA4C4BE41BF49D2459FA4A0347E1B543A4C92FCEE0821C0201E2E9A8\"},"
+            + "\"ledger_current_index\":" + LEDGER_INDEX + ",\"status\":\"success\",\"validated\":false}";
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"50"})
+    public long remoteLatencyMs;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLong nextRequest = new AtomicLong();
+    private final String run = UUID.randomUUID().toString().substring(0, 8);
+
+    private DisposableServer rippled;
+    private DisposableServer xaman;
+    private ConfigurableApplicationContext application;
+    private HttpClient client;
+    private URI target;
+    private String body;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Duration latency = Duration.ofMillis(remoteLatencyMs);
+        rippled = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes.post("/", (request, response) -> request.receive().aggregate().asString()
+                        .map(this::rippledResult)
+                        .delayElement(latency)
+                        .flatMap(result -> response.header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"result\":" + result + "}")).then())))
+                .bindNow();
+        xaman = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes.post("/payload", (request, response) -> request.receive().then()
+                        .then(Mono.fromSupplier(() -> UUID.randomUUID().toString()).delayElement(latency))
+                        .flatMap(uuid -> response.header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"uuid\":\"" + uuid + "\",\"next\":{\"always\":\"https://xumm.app/sign/" + uuid + "\"},"
+                                        + "\"refs\":{},\"pushed\":false}")).then())))
+                .bindNow();
+
+        String r2dbcUrl = DB_URL.replaceFirst("^jdbc:", "r2dbc:");
+        application = new SpringApplicationBuilder(XrpPaymentAppApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--spring.datasource.url=" + DB_URL,
+                        "--spring.datasource.username=" + DB_USER,
+                        "--spring.datasource.password=" + DB_PASSWORD,
+                        "--spring.r2dbc.url=" + r2dbcUrl,
+                        "--spring.r2dbc.username=" + DB_USER,
+                        "--spring.r2dbc.password=" + DB_PASSWORD,
+                        "--payment.v2.mode=blocking",
+                        "--xrpl.transport.mode=http",
+                        "--xrpl.nodes.http-urls=http://127.0.0.1:" + rippled.port() + "/",
+                        "--xrpl.stream.enabled=false",
+                        "--xaman.api.baseUrl=http://127.0.0.1:" + xaman.port(),
+                        "--xaman.client.max-concurrent=10000",
+                        "--xaman.client.max-queued=10000",
+                        "--http.client.xaman.max-connections=1000",
+                        "--http.client.xrpl.max-connections=1000",
+                        "--management.tracing.sampling.probability=0",
+                        "--logging.level.root=WARN",
+                        "--logging.level.reactor.netty.http.client.HttpClient=WARN");
+        int port = ((WebServerApplicationContext) application).getWebServer().getPort();
+
+        target = URI.create("http://127.0.0.1:" + port + PathConstants.API_V2_PAYMENT + "/initiate/batch");
+        body = mapper.writeValueAsString(mapper.createObjectNode()
+                .put("userName", "bench-load-" + run)
+                .put("senderAddress", SENDER)
+                .put("destinationAddress", DESTINATION)
+                .put("amount", "1"));
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        application.close();
+        xaman.disposeNow();
+        rippled.disposeNow();
+        try (Connection connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+             PreparedStatement transactions = connection.prepareStatement("DELETE FROM xrp_payment.transactions WHERE request_id LIKE ?");
+             PreparedStatement keys = connection.prepareStatement("DELETE FROM xrp_payment.idempotency_keys WHERE request_id LIKE ?")) {
+            transactions.setString(1, "bench-load-%");
+            transactions.executeUpdate();
+            keys.setString(1, "bench-load-%");
+            keys.executeUpdate();
+        }
+    }
+
+    private String rippledResult(String request) {
+        try {
+            JsonNode method = mapper.readTree(request).path("method");
+            return switch (method.asText()) {
+                case "fee" -> FEE_RESULT;
+                case "server_info" -> SERVER_INFO_RESULT;
+                case "account_info" -> ACCOUNT_INFO_RESULT;
+                default -> "{\"error\":\"unknownCmd\",\"status\":\"error\"}";
+            };
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Reported next to the score, a mode that times out or fails initiations shows it here
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Outcomes {
+        public long failures;
+    }
+
+    @Benchmark
+    public int initiateBatch(Outcomes outcomes) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(target)
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .header("RequestId", "bench-load-" + run + "-" + nextRequest.incrementAndGet())
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            outcomes.failures++;
+        }
+        return response.statusCode();
+    }
+}
@@ -0,0 +1,105 @@
+package com.xrp_payment_app.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.xrp_payment_app.utils.XamanPayloadBuilder;
+
+import io.netty.buffer.PooledByteBufAllocator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Writing one Xaman payment payload and reading the create response: the ObjectNode builder
+// (plus the toString() it was logged with) and a full readTree, against the template written
+// into a pooled buffer and the uuid/next.always projection. Run with -prof gc for allocations.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XamanPayloadBenchmark {
+
+    private static final String CALLBACK_URL = "https://payments.example.com/xaman/callback";
+    private static final String DESTINATION = "rPT1Sjq2YGrBMTttX4GZHjKu9dyfzbpAYe";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final XamanPayloadBuilder builder = new XamanPayloadBuilder(CALLBACK_URL);
+    // The request's buffer factory in production
+    private final DataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    private byte[] response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        response = ("{\"uuid\":\"0b5f1e0a-4f6c-4b07-bc13-8d2f1c6a9e21\",\"next\":{\"always\":\"https://xumm.app/sign/0b5f1e0a-4f6c-4b07-bc13-8d2f1c6a9e21\","
+                + "\"no_push_msg_received\":\"https://xumm.app/sign/0b5f1e0a-4f6c-4b07-bc13-8d2f1c6a9e21/qr\"},"
+                + "\"refs\":{\"qr_png\":\"https://xumm.app/sign/0b5f1e0a-4f6c-4b07-bc13-8d2f1c6a9e21_q.png\","
+                + "\"qr_matrix\":\"https://xumm.app/sign/0b5f1e0a-4f6c-4b07-bc13-8d2f1c6a9e21_q.json\","
+                + "\"qr_uri_quality_opts\":[\"m\",\"q\",\"h\"],\"websocket_status\":\"wss://xumm.app/sign/0b5f1e0a-4f6c-4b07-bc13-8d2f1c6a9e21\"},"
+                + "\"pushed\":false}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    // XamanPayloadBuilder.buildPaymentPayload and the create call before the template
+    private ObjectNode treePayload(long amount, long fee, long sequence, long lastLedgerSequence) {
+        ObjectNode payload = mapper.createObjectNode();
+        ObjectNode txJson = mapper.createObjectNode();
+        txJson.put("TransactionType", "Payment");
+        txJson.put("Destination", DESTINATION);
+        txJson.put("Amount", String.valueOf(amount));
+        txJson.put("Fee", String.valueOf(fee));
+        txJson.put("Sequence", sequence);
+        txJson.put("LastLedgerSequence", lastLedgerSequence);
+        payload.set("txjson", txJson);
+        ObjectNode options = mapper.createObjectNode();
+        ObjectNode returnUrl = mapper.createObjectNode();
+        returnUrl.put("app", CALLBACK_URL);
+        returnUrl.put("web", CALLBACK_URL);
+        options.set("return_url", returnUrl);
+        options.put("force_network", "TESTNET");
+        options.put("submit", true);
+        payload.set("options", options);
+        return payload;
+    }
+
+    @Benchmark
+    public void treeModel(Blackhole blackhole) throws IOException {
+        ObjectNode payload = treePayload(1_250_000, 12, 4_711, 9_020);
+        blackhole.consume(payload.toString());
+        blackhole.consume(mapper.writeValueAsBytes(payload));
+
+        JsonNode created = mapper.readTree(response);
+        blackhole.consume(created.path("uuid").asText());
+        blackhole.consume(created.path("next").path("always").asText());
+    }
+
+    @Benchmark
+    public void template(Blackhole blackhole) {
+        DataBuffer request = builder.encode(builder.buildPaymentPayload(DESTINATION, 1_250_000, 12, 4_711, 9_020, true), bufferFactory);
+        blackhole.consume(request.readableByteCount());
+        // Written and released by the HTTP client in production
+        DataBufferUtils.release(request);
+
+        blackhole.consume(builder.readCreated(DefaultDataBufferFactory.sharedInstance.wrap(response)));
+    }
+}
@@ -0,0 +1,125 @@
+package com.xrp_payment_app.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xrp_payment_app.config.OutboundHttpClients;
+import com.xrp_payment_app.service.HttpXrplTransport;
+import com.xrp_payment_app.service.ReadHedger;
+import com.xrp_payment_app.service.RippledNodePool;
+import com.xrp_payment_app.service.WebSocketXrplTransport;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+import okhttp3.HttpUrl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.StandardEnvironment;
+import org.xrpl.xrpl4j.client.JsonRpcClientErrorException;
+import org.xrpl.xrpl4j.client.XrplClient;
+import org.xrpl.xrpl4j.model.client.fees.FeeResult;
+
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Per-call overhead of a fee request through the shared transport, over HTTP and over a
+// multiplexed WebSocket, against the xrpl4j XrplClient (OkHttp) each node used to carry.
+// A local stub answers instantly, so what is measured is the client stack, not rippled.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XrplTransportBenchmark {
+
+    private static final String FEE_RESULT = "{\"current_ledger_size\":\"14\",\"current_queue_size\":\"0\","
+            + "\"drops\":{\"base_fee\":\"10\",\"median_fee\":\"5000\",\"minimum_fee\":\"10\",\"open_ledger_fee\":\"10\"},"
+            + "\"expected_ledger_size\":\"24\",\"ledger_current_index\":26575101,"
+            + "\"levels\":{\"median_level\":\"128000\",\"minimum_level\":\"256\",\"open_ledger_level\":\"256\",\"reference_level\":\"256\"},"
+            + "\"max_queue_size\":\"480\",\"status\":\"success\"}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private DisposableServer server;
+    private OutboundHttpClients outboundHttpClients;
+    private HttpXrplTransport httpTransport;
+    private WebSocketXrplTransport webSocketTransport;
+    private XrplClient xrplClient;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes
+                        .post("/", (request, response) -> request.receive().then()
+                                .then(response.header("Content-Type", "application/json")
+                                        .sendString(Mono.just("{\"result\":" + FEE_RESULT + "}")).then()))
+                        .ws("/ws", (in, out) -> out.sendString(in.receive().asString().map(this::wsResponse))))
+                .bindNow();
+        String url = "http://127.0.0.1:" + server.port() + "/";
+
+        PaymentMetrics paymentMetrics = new PaymentMetrics(new SimpleMeterRegistry());
+        outboundHttpClients = new OutboundHttpClients(new StandardEnvironment(), ObservationRegistry.NOOP);
+        ReadHedger readHedger = new ReadHedger(paymentMetrics, false, 95, 20, 500, 50, 1000, 0.05, 10);
+        RippledNodePool nodePool = new RippledNodePool(readHedger, outboundHttpClients, paymentMetrics, List.of(url), 10_000, 3, 0.5, 10, 200);
+        httpTransport = new HttpXrplTransport(nodePool, paymentMetrics);
+
+        webSocketTransport = new WebSocketXrplTransport("ws://127.0.0.1:" + server.port() + "/ws", 1, 10_000, 5_000, 1_048_576, paymentMetrics);
+        webSocketTransport.start();
+        while (webSocketTransport.openConnections() == 0) {
+            Thread.sleep(10);
+        }
+
+        xrplClient = new XrplClient(HttpUrl.get(url));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        webSocketTransport.stop();
+        outboundHttpClients.dispose();
+        server.disposeNow();
+    }
+
+    private String wsResponse(String request) {
+        try {
+            long id = mapper.readTree(request).path("id").asLong();
+            return "{\"id\":" + id + ",\"type\":\"response\",\"status\":\"success\",\"result\":" + FEE_RESULT + "}";
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public FeeResult xrpl4jClient() throws JsonRpcClientErrorException {
+        return xrplClient.fee();
+    }
+
+    @Benchmark
+    public JsonNode httpTransport() {
+        return httpTransport.send("fee", null).block(Duration.ofSeconds(10));
+    }
+
+    @Benchmark
+    public JsonNode webSocketTransport() {
+        return webSocketTransport.send("fee", null).block(Duration.ofSeconds(10));
+    }
+}
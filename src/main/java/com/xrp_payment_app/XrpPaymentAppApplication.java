@@ -2,8 +2,10 @@ package com.xrp_payment_app;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class XrpPaymentAppApplication {
 
 	public static void main(String[] args) {
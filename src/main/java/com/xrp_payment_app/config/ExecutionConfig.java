@@ -0,0 +1,44 @@
+package com.xrp_payment_app.config;
+
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ExecutionConfig {
+
+    // Runs blocking XRPL/Xaman calls that are fanned out from a request. Follows the
+    // request execution mode: one virtual thread per call, or a bounded platform pool.
+    // Tasks run with the submitting thread's trace context, so their spans join the request.
+    @Bean(name = "ioExecutor", destroyMethod = "shutdown")
+    public ExecutorService ioExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${payment.fan-out.pool-size:64}") int poolSize
+    ) {
+        ContextSnapshotFactory snapshots = ContextSnapshotFactory.builder().build();
+        if (virtualThreads) {
+            return ContextExecutorService.wrap(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("io-", 0).factory()), snapshots);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, "io-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return ContextExecutorService.wrap(executor, snapshots);
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.xrp_payment_app.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.netty.channel.ChannelOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.Http11SslContextSpec;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.annotation.PreDestroy;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Builds the WebClients for outbound hosts (rippled nodes, Xaman), each with its own
+// connection pool, timeouts and metrics. Settings are read from http.client.<name>.* with
+// http.client.defaults.* as fallback.
+@Component
+public class OutboundHttpClients {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundHttpClients.class);
+
+    private record Client(String name, String baseUrl, HttpClient httpClient, int warmupConnections) {}
+
+    private final Environment environment;
+    private final ObservationRegistry observationRegistry;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final List<ConnectionProvider> providers = new CopyOnWriteArrayList<>();
+
+    public OutboundHttpClients(Environment environment, ObservationRegistry observationRegistry) {
+        this.environment = environment;
+        this.observationRegistry = observationRegistry;
+    }
+
+    // settings selects the http.client.<settings> block, name tags the pool in metrics
+    public WebClient create(String settings, String name, String baseUrl) {
+        ConnectionProvider provider = ConnectionProvider.builder(name)
+                .maxConnections(setting(settings, "max-connections", Integer.class, 50))
+                // Callers beyond the pool limit wait here, bounded, instead of opening new sockets
+                .pendingAcquireMaxCount(setting(settings, "pending-acquire-max-count", Integer.class, 500))
+                .pendingAcquireTimeout(Duration.ofMillis(setting(settings, "pending-acquire-timeout-ms", Long.class, 5000L)))
+                .maxIdleTime(Duration.ofMillis(setting(settings, "max-idle-time-ms", Long.class, 30000L)))
+                .maxLifeTime(Duration.ofMillis(setting(settings, "max-life-time-ms", Long.class, 300000L)))
+                .evictInBackground(Duration.ofMillis(setting(settings, "evict-interval-ms", Long.class, 15000L)))
+                // Occupancy (active/idle/pending) and acquire time per pool
+                .metrics(true)
+                .build();
+        providers.add(provider);
+
+        boolean https = baseUrl.startsWith("https");
+        boolean http2 = https && setting(settings, "http2", Boolean.class, true);
+
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, setting(settings, "connect-timeout-ms", Integer.class, 3000))
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(Duration.ofMillis(setting(settings, "response-timeout-ms", Long.class, 10000L)))
+                .keepAlive(true)
+                // Request latency including connect and TLS, tagged by pool rather than URI
+                .metrics(true, uri -> name);
+        if (http2) {
+            // Negotiated through ALPN, servers without HTTP/2 get HTTP/1.1
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                    .secure(spec -> spec.sslContext(Http2SslContextSpec.forClient()));
+        } else if (https) {
+            httpClient = httpClient.secure(spec -> spec.sslContext(Http11SslContextSpec.forClient()));
+        }
+        // One SslContext per client, so TLS sessions are resumed across its connections
+
+        clients.add(new Client(name, baseUrl, httpClient, setting(settings, "warmup-connections", Integer.class, 2)));
+        logger.info("Outbound HTTP client {} for {}: http2={}", name, baseUrl, http2);
+
+        return WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                // Client spans per request, and the traceparent header so the callee joins the trace
+                .observationRegistry(observationRegistry)
+                .build();
+    }
+
+    // Loads event loops, DNS and TLS providers and opens a few connections up front, so the
+    // first payments do not pay for connection setup
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        for (Client client : clients) {
+            client.httpClient().warmup()
+                    .thenMany(Flux.range(0, client.warmupConnections())
+                            .flatMap(i -> client.httpClient().head()
+                                    .uri(URI.create(client.baseUrl()))
+                                    .response((response, body) -> body.then())
+                                    .onErrorResume(e -> Mono.empty())))
+                    .then()
+                    .subscribe(
+                            done -> { },
+                            e -> logger.warn("Warm-up of {} failed: {}", client.name(), e.getMessage()),
+                            () -> logger.info("Warmed up outbound HTTP client {}", client.name()));
+        }
+    }
+
+    @PreDestroy
+    public void dispose() {
+        for (ConnectionProvider provider : providers) {
+            provider.disposeLater().block(Duration.ofSeconds(5));
+        }
+    }
+
+    private <T> T setting(String settings, String key, Class<T> type, T defaultValue) {
+        T value = environment.getProperty("http.client." + settings + "." + key, type);
+        if (value != null) {
+            return value;
+        }
+        return environment.getProperty("http.client.defaults." + key, type, defaultValue);
+    }
+}
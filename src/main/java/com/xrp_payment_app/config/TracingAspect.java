@@ -0,0 +1,112 @@
+package com.xrp_payment_app.config;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+// Child spans for the calls a payment request is made of: the XRPL and Xaman clients and
+// every repository. Server spans come from Spring's HTTP observation and outbound HTTP
+// spans (plus the traceparent header) from the WebClients built in OutboundHttpClients.
+@Aspect
+@Component
+public class TracingAspect {
+
+    private static final String OBSERVATION = "app.call";
+
+    private final ObservationRegistry observationRegistry;
+
+    public TracingAspect(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Around("(execution(public * com.xrp_payment_app.service.XrplClientService.*(..))"
+            + " || execution(public * com.xrp_payment_app.service.XrplService.*(..))"
+            + " || execution(public * com.xrp_payment_app.service.XamanClientService.*(..))"
+            + " || bean(*Repository))"
+            + " && !@annotation(org.springframework.scheduling.annotation.Scheduled)")
+    public Object observe(ProceedingJoinPoint joinPoint) throws Throwable {
+        String component = component(joinPoint);
+        String method = joinPoint.getSignature().getName();
+        Class<?> returnType = ((MethodSignature) joinPoint.getSignature()).getReturnType();
+
+        // Reactive calls are spanned from subscription to completion, not just assembly
+        if (Mono.class.isAssignableFrom(returnType)) {
+            Mono<?> result = (Mono<?>) joinPoint.proceed();
+            return result == null ? null : observeMono(result, component, method);
+        }
+        if (Flux.class.isAssignableFrom(returnType)) {
+            Flux<?> result = (Flux<?>) joinPoint.proceed();
+            return result == null ? null : observeFlux(result, component, method);
+        }
+        // Only spans inside a traced request or batch, idle worker polls would be one trace each
+        if (observationRegistry.getCurrentObservation() == null) {
+            return joinPoint.proceed();
+        }
+        Observation.CheckedCallable<Object, Throwable> proceed = joinPoint::proceed;
+        return observation(component, method).observeChecked(proceed);
+    }
+
+    private <T> Mono<T> observeMono(Mono<T> call, String component, String method) {
+        return Mono.deferContextual(context -> {
+            Observation parent = parent(context);
+            if (parent == null) {
+                return call;
+            }
+            Observation observation = observation(component, method).parentObservation(parent).start();
+            return call.doOnError(observation::error)
+                    .doFinally(signal -> observation.stop())
+                    .contextWrite(ctx -> ctx.put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    private <T> Flux<T> observeFlux(Flux<T> call, String component, String method) {
+        return Flux.deferContextual(context -> {
+            Observation parent = parent(context);
+            if (parent == null) {
+                return call;
+            }
+            Observation observation = observation(component, method).parentObservation(parent).start();
+            return call.doOnError(observation::error)
+                    .doFinally(signal -> observation.stop())
+                    .contextWrite(ctx -> ctx.put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    // The subscriber's context wins over the thread, the subscription may run on an event loop
+    private Observation parent(ContextView context) {
+        Observation parent = context.getOrDefault(ObservationThreadLocalAccessor.KEY, null);
+        return parent != null ? parent : observationRegistry.getCurrentObservation();
+    }
+
+    private Observation observation(String component, String method) {
+        return Observation.createNotStarted(OBSERVATION, observationRegistry)
+                .contextualName(component + "." + method)
+                .lowCardinalityKeyValue("component", component)
+                .lowCardinalityKeyValue("method", method);
+    }
+
+    // Inherited Spring Data methods (save, findById) are named after our repository interface
+    private String component(ProceedingJoinPoint joinPoint) {
+        Class<?> declaringType = joinPoint.getSignature().getDeclaringType();
+        if (declaringType.getName().startsWith("com.xrp_payment_app")) {
+            return declaringType.getSimpleName();
+        }
+        for (Class<?> type : ClassUtils.getAllInterfaces(joinPoint.getThis())) {
+            if (type.getName().startsWith("com.xrp_payment_app")) {
+                return type.getSimpleName();
+            }
+        }
+        return declaringType.getSimpleName();
+    }
+}
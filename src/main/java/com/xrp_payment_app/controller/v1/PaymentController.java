@@ -1,26 +1,94 @@
 package com.xrp_payment_app.controller.v1;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xrp_payment_app.constants.PathConstants;
+import com.xrp_payment_app.dto.BulkPayoutItem;
+import com.xrp_payment_app.dto.BulkPayoutResult;
 import com.xrp_payment_app.dto.PaymentRequest;
 import com.xrp_payment_app.dto.PaymentResponse;
+import com.xrp_payment_app.exception.BadRequestException;
+import com.xrp_payment_app.service.BulkPayoutService;
 import com.xrp_payment_app.service.PaymentService;
 
 import jakarta.servlet.http.HttpServletRequest;
 
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
 @RestController("paymentControllerV1")
 @RequestMapping(PathConstants.API_V1_PAYMENT)
 public class PaymentController {
 
+    private final ObjectMapper mapper = new ObjectMapper();
+
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private BulkPayoutService bulkPayoutService;
+
     @PostMapping("/initiate")
     public PaymentResponse sendPayment(@RequestBody @NotNull PaymentRequest request, HttpServletRequest httpRequest) throws Exception {
         return paymentService.sendCustodialXrpWithFee(request.userId(), request.destinationAddress(), request.amount());
     }
 
-}
\ No newline at end of file
+    // Per-item results are streamed back as NDJSON while the batch settles
+    @PostMapping(value = "/initiate/bulk", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkPayoutResult> sendBulkPayment(@RequestParam String userId,
+                                                  @RequestHeader(value = "RequestId", required = false) String requestId,
+                                                  @RequestBody @NotNull List<BulkPayoutItem> payouts) throws Exception {
+        requireRequestId(requestId);
+        return bulkPayoutService.payout(requestId, userId, payouts);
+    }
+
+    // Same as above with one payout per line. Lines are parsed as the body streams in and the
+    // item limit is enforced while reading, but nothing is submitted before the body is complete
+    // since balances are checked for the batch as a whole
+    @PostMapping(value = "/initiate/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkPayoutResult> sendBulkPaymentStream(@RequestParam String userId,
+                                                        @RequestHeader(value = "RequestId", required = false) String requestId,
+                                                        HttpServletRequest httpRequest) throws Exception {
+        requireRequestId(requestId);
+        List<BulkPayoutItem> payouts = new ArrayList<>();
+        try (MappingIterator<BulkPayoutItem> lines = mapper.readerFor(BulkPayoutItem.class).readValues(httpRequest.getInputStream())) {
+            while (lines.hasNextValue()) {
+                if (payouts.size() == bulkPayoutService.maxItems()) {
+                    throw new BadRequestException(
+                            "Too many payouts",
+                            "A bulk request can contain at most " + bulkPayoutService.maxItems() + " payouts",
+                            "TOO_MANY_ITEMS"
+                    );
+                }
+                payouts.add(lines.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException(
+                    "Malformed payout: " + e.getOriginalMessage(),
+                    e,
+                    "Please provide one JSON payout per line",
+                    "INVALID_PAYOUT"
+            );
+        }
+        return bulkPayoutService.payout(requestId, userId, payouts);
+    }
+
+    private void requireRequestId(String requestId) throws BadRequestException {
+        if (requestId == null || requestId.isBlank()) {
+            throw new BadRequestException(
+                    "Missing RequestId header",
+                    "Please provide a RequestId header",
+                    "MISSING_REQUEST_ID"
+            );
+        }
+    }
+
+}
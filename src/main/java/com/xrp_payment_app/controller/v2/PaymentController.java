@@ -1,32 +1,43 @@
 package com.xrp_payment_app.controller.v2;
 
 import com.xrp_payment_app.dto.BatchXummWebhookEvent;
+import com.xrp_payment_app.dto.FeeQuoteResponse;
 import com.xrp_payment_app.dto.PaymentNonCustodialRequest;
 import com.xrp_payment_app.dto.PaymentSignResponse;
 import com.xrp_payment_app.dto.SuccessPaymentResponse;
 import com.xrp_payment_app.dto.XummWebhookEvent;
 import com.xrp_payment_app.exception.BadRequestException;
 import com.xrp_payment_app.service.PaymentService;
-import com.xrp_payment_app.service.XamanClientService;
+import com.xrp_payment_app.service.WebhookIngestionService;
 import com.xrp_payment_app.constants.PathConstants;
 
 import jakarta.servlet.http.HttpServletRequest;
 
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+
 @RestController("paymentControllerV2")
+@ConditionalOnProperty(name = "payment.v2.mode", havingValue = "blocking", matchIfMissing = true)
 @RequestMapping(PathConstants.API_V2_PAYMENT)
 public class PaymentController {
 
-    private final XamanClientService xamanClientService;
+    private final WebhookIngestionService webhookIngestionService;
 
     @Autowired
     private PaymentService paymentService;
 
-    PaymentController(XamanClientService xamanClientService) {
-        this.xamanClientService = xamanClientService;
+    PaymentController(WebhookIngestionService webhookIngestionService) {
+        this.webhookIngestionService = webhookIngestionService;
+    }
+
+    @GetMapping("/quote")
+    public FeeQuoteResponse quote(@RequestParam BigDecimal amount, @RequestParam(defaultValue = "false") boolean batch) {
+        return paymentService.quote(amount, batch);
     }
 
     @PostMapping("/initiate")
@@ -55,14 +66,17 @@ public class PaymentController {
         return paymentService.sendNonCustodialXrpBatchWithFee(requestId, request.userName(), request.senderAddress(), request.destinationAddress(), request.amount());
     }
 
+    // Acknowledged once queued, the signed payment is fetched and submitted asynchronously
     @PostMapping("/callback")
-    public SuccessPaymentResponse signCallback(@RequestBody XummWebhookEvent event) throws Exception {
-        return xamanClientService.handleSignCallback(event.paymentUuid(), event.status());
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public SuccessPaymentResponse signCallback(@RequestBody XummWebhookEvent event) {
+        return webhookIngestionService.accept(event.paymentUuid(), event.status());
     }
 
     @PostMapping("/callback/batch")
-    public SuccessPaymentResponse batchSignCallback(@RequestBody BatchXummWebhookEvent event) throws Exception {
-        return xamanClientService.handleBatchSignCallback(event.paymentUuids(), event.status());
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public SuccessPaymentResponse batchSignCallback(@RequestBody BatchXummWebhookEvent event) {
+        return webhookIngestionService.acceptBatch(event.paymentUuids(), event.status());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.xrp_payment_app.controller.v2;
+
+import com.xrp_payment_app.dto.BatchXummWebhookEvent;
+import com.xrp_payment_app.dto.FeeQuoteResponse;
+import com.xrp_payment_app.dto.PaymentNonCustodialRequest;
+import com.xrp_payment_app.dto.PaymentSignResponse;
+import com.xrp_payment_app.dto.SuccessPaymentResponse;
+import com.xrp_payment_app.dto.XummWebhookEvent;
+import com.xrp_payment_app.exception.BadRequestException;
+import com.xrp_payment_app.service.PaymentService;
+import com.xrp_payment_app.service.ReactivePaymentService;
+import com.xrp_payment_app.service.WebhookIngestionService;
+import com.xrp_payment_app.constants.PathConstants;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+// Same contract as the blocking v2 controller, served from ReactivePaymentService when
+// payment.v2.mode=reactive. Returning Mono releases the request thread while I/O is pending.
+@RestController("reactivePaymentControllerV2")
+@ConditionalOnProperty(name = "payment.v2.mode", havingValue = "reactive")
+@RequestMapping(PathConstants.API_V2_PAYMENT)
+public class ReactivePaymentController {
+
+    private final ReactivePaymentService reactivePaymentService;
+    private final PaymentService paymentService;
+    private final WebhookIngestionService webhookIngestionService;
+
+    ReactivePaymentController(ReactivePaymentService reactivePaymentService, PaymentService paymentService,
+                              WebhookIngestionService webhookIngestionService) {
+        this.reactivePaymentService = reactivePaymentService;
+        this.paymentService = paymentService;
+        this.webhookIngestionService = webhookIngestionService;
+    }
+
+    @GetMapping("/quote")
+    public FeeQuoteResponse quote(@RequestParam BigDecimal amount, @RequestParam(defaultValue = "false") boolean batch) {
+        return paymentService.quote(amount, batch);
+    }
+
+    @PostMapping("/initiate")
+    public Mono<PaymentSignResponse> sendPayment(@RequestBody @NotNull PaymentNonCustodialRequest request,
+                                                 @RequestHeader(value = "RequestId", required = false) String requestId) {
+        if (requestId == null || requestId.isEmpty()) {
+            return Mono.error(missingRequestId());
+        }
+        return reactivePaymentService.sendNonCustodialXrpWithFee(requestId, request.userName(), request.senderAddress(), request.destinationAddress(), request.amount());
+    }
+
+    @PostMapping("/initiate/batch")
+    public Mono<PaymentSignResponse> sendBatchPayment(@RequestBody @NotNull PaymentNonCustodialRequest request,
+                                                      @RequestHeader(value = "RequestId", required = false) String requestId) {
+        if (requestId == null || requestId.isEmpty()) {
+            return Mono.error(missingRequestId());
+        }
+        return reactivePaymentService.sendNonCustodialXrpBatchWithFee(requestId, request.userName(), request.senderAddress(), request.destinationAddress(), request.amount());
+    }
+
+    @PostMapping("/callback")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Mono<SuccessPaymentResponse> signCallback(@RequestBody XummWebhookEvent event) {
+        return webhookIngestionService.acceptAsync(event.paymentUuid(), event.status());
+    }
+
+    @PostMapping("/callback/batch")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Mono<SuccessPaymentResponse> batchSignCallback(@RequestBody BatchXummWebhookEvent event) {
+        return webhookIngestionService.acceptBatchAsync(event.paymentUuids(), event.status());
+    }
+
+    private BadRequestException missingRequestId() {
+        return new BadRequestException(
+            "Missing RequestId header",
+            "Please provide a RequestId header",
+            "MISSING_REQUEST_ID"
+        );
+    }
+
+}
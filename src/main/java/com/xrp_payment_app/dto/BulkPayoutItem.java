@@ -0,0 +1,9 @@
+package com.xrp_payment_app.dto;
+
+import java.math.BigDecimal;
+
+public record BulkPayoutItem(
+        String reference,
+        String destinationAddress,
+        BigDecimal amount
+) {}
@@ -0,0 +1,14 @@
+package com.xrp_payment_app.dto;
+
+import java.math.BigDecimal;
+
+public record BulkPayoutResult(
+        int index,
+        String reference,
+        String destinationAddress,
+        BigDecimal amount,
+        String status,
+        String transactionHash,
+        String engineResult,
+        String message
+) {}
@@ -0,0 +1,14 @@
+package com.xrp_payment_app.dto;
+
+import java.math.BigDecimal;
+
+public record FeeQuoteResponse(
+        BigDecimal amount,
+        BigDecimal platformFee,
+        BigDecimal networkFee,
+        BigDecimal openLedgerFee,
+        BigDecimal totalCost,
+        BigDecimal reserveBase,
+        BigDecimal reserveIncrement,
+        long ledgerIndex
+) {}
@@ -0,0 +1,13 @@
+package com.xrp_payment_app.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record LedgerParameters(
+        BigDecimal baseFee,
+        BigDecimal openLedgerFee,
+        BigDecimal reserveBase,
+        BigDecimal reserveIncrement,
+        long ledgerIndex,
+        Instant fetchedAt
+) {}
@@ -4,5 +4,6 @@ public record SubmitResultResponse(
         String engineResult,           
         String engineResultMessage,   
         String transactionHash,     
-        boolean isTentativelyAccepted
+        boolean isTentativelyAccepted,
+        String error                   // rippled's error code when it refused the request itself, else empty
 ) {}
\ No newline at end of file
@@ -0,0 +1,6 @@
+package com.xrp_payment_app.dto;
+
+public record XamanPayloadCreated(
+        String uuid,
+        String redirectUrl
+) {}
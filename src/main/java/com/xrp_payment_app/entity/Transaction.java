@@ -8,7 +8,8 @@ import java.time.LocalDateTime;
 @Table(name = "transactions")
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_id_seq")
+    @SequenceGenerator(name = "transactions_id_seq", sequenceName = "transactions_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "xrp_account_id", nullable = false)
@@ -41,6 +42,9 @@ public class Transaction {
     @Column(nullable = false)
     private String status;
 
+    @Column(name = "last_ledger_sequence", nullable = true)
+    private Long lastLedgerSequence;
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
@@ -133,6 +137,14 @@ public class Transaction {
         this.status = status;
     }
 
+    public Long getLastLedgerSequence() {
+        return lastLedgerSequence;
+    }
+
+    public void setLastLedgerSequence(Long lastLedgerSequence) {
+        this.lastLedgerSequence = lastLedgerSequence;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,126 @@
+package com.xrp_payment_app.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+@Entity
+@Table(name = "webhook_events")
+public class WebhookEvent {
+    @Id
+    @Column(name = "payload_uuid")
+    private String payloadUuid;
+
+    @Column(name = "payload_uuids", nullable = false, columnDefinition = "TEXT")
+    private String payloadUuids;
+
+    @Column(name = "signed_status")
+    private String signedStatus;
+
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public List<String> payloadUuidList() {
+        return Arrays.asList(payloadUuids.split(","));
+    }
+
+    // Getters and Setters
+    public String getPayloadUuid() {
+        return payloadUuid;
+    }
+
+    public void setPayloadUuid(String payloadUuid) {
+        this.payloadUuid = payloadUuid;
+    }
+
+    public String getPayloadUuids() {
+        return payloadUuids;
+    }
+
+    public void setPayloadUuids(String payloadUuids) {
+        this.payloadUuids = payloadUuids;
+    }
+
+    public String getSignedStatus() {
+        return signedStatus;
+    }
+
+    public void setSignedStatus(String signedStatus) {
+        this.signedStatus = signedStatus;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
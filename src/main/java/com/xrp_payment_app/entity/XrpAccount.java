@@ -7,7 +7,8 @@ import java.time.LocalDateTime;
 @Table(name = "xrp_accounts")
 public class XrpAccount {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "xrp_accounts_id_seq")
+    @SequenceGenerator(name = "xrp_accounts_id_seq", sequenceName = "xrp_accounts_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_id", nullable = false)
@@ -0,0 +1,5 @@
+package com.xrp_payment_app.event;
+
+public record LedgerClosedEvent(
+        long ledgerIndex
+) {}
@@ -0,0 +1,7 @@
+package com.xrp_payment_app.event;
+
+public record ValidatedTransactionEvent(
+        String transactionHash,
+        String engineResult,
+        long ledgerIndex
+) {}
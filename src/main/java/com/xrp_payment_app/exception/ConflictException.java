@@ -0,0 +1,13 @@
+package com.xrp_payment_app.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class ConflictException extends XrpServiceException {
+    public ConflictException(String message, Throwable cause, String clientMessage, String errorCode) {
+        super(message, cause, clientMessage, errorCode, HttpStatus.CONFLICT);
+    }
+
+    public ConflictException(String message, String clientMessage, String errorCode) {
+        super(message, null, clientMessage, errorCode, HttpStatus.CONFLICT);
+    }
+}
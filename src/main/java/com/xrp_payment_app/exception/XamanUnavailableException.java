@@ -0,0 +1,13 @@
+package com.xrp_payment_app.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class XamanUnavailableException extends XrpServiceException {
+    public XamanUnavailableException(String message, Throwable cause, String clientMessage, String errorCode) {
+        super(message, cause, clientMessage, errorCode, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    public XamanUnavailableException(String message, Throwable cause) {
+        super(message, cause, "Xaman is currently unavailable. Please retry shortly", "XAMAN_UNAVAILABLE", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
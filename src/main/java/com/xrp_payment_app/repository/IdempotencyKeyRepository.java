@@ -0,0 +1,38 @@
+package com.xrp_payment_app.repository;
+
+import com.xrp_payment_app.entity.IdempotencyKey;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.transaction.Transactional;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    // Returns 1 when the caller now owns the key. An IN_PROGRESS claim left behind by a
+    // crashed instance can be taken over once it is older than staleSeconds.
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO xrp_payment.idempotency_keys (request_id, status, request_hash, created_at, updated_at) "
+            + "VALUES (:requestId, 'IN_PROGRESS', :requestHash, now(), now()) "
+            + "ON CONFLICT (request_id) DO UPDATE SET updated_at = now(), request_hash = EXCLUDED.request_hash "
+            + "WHERE idempotency_keys.status = 'IN_PROGRESS' "
+            + "AND idempotency_keys.updated_at < now() - make_interval(secs => :staleSeconds)",
+            nativeQuery = true)
+    int claim(@Param("requestId") String requestId, @Param("requestHash") String requestHash, @Param("staleSeconds") long staleSeconds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE xrp_payment.idempotency_keys SET status = 'COMPLETED', response_body = :responseBody, updated_at = now() "
+            + "WHERE request_id = :requestId",
+            nativeQuery = true)
+    int complete(@Param("requestId") String requestId, @Param("responseBody") String responseBody);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM xrp_payment.idempotency_keys WHERE request_id = :requestId AND status = 'IN_PROGRESS'",
+            nativeQuery = true)
+    int release(@Param("requestId") String requestId);
+}
@@ -0,0 +1,62 @@
+package com.xrp_payment_app.repository;
+
+import com.xrp_payment_app.entity.SubmissionOutboxEntry;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.transaction.Transactional;
+
+public interface SubmissionOutboxRepository extends JpaRepository<SubmissionOutboxEntry, Long> {
+
+    // Claims due entries for one worker. SKIP LOCKED lets concurrent workers (and instances)
+    // claim disjoint rows; a SUBMITTING row whose lease ran out belonged to a dead worker.
+    // The due rows are locked once in a materialized CTE: as an IN subquery the planner may
+    // rescan it per updated row, claiming more than batchSize rows and starving other workers.
+    @Transactional
+    @Query(value = "WITH due AS MATERIALIZED ("
+            + "  SELECT o.id FROM xrp_payment.submission_outbox o "
+            + "  WHERE ((o.status = 'PENDING' AND o.next_attempt_at <= now()) "
+            + "      OR (o.status = 'SUBMITTING' AND o.locked_until < now())) "
+            + "    AND (o.depends_on IS NULL OR EXISTS ("
+            + "      SELECT 1 FROM xrp_payment.submission_outbox d WHERE d.id = o.depends_on AND d.status = 'DONE')) "
+            + "  ORDER BY o.id "
+            + "  LIMIT :batchSize "
+            + "  FOR UPDATE SKIP LOCKED) "
+            + "UPDATE xrp_payment.submission_outbox s SET status = 'SUBMITTING', attempts = s.attempts + 1, "
+            + "locked_until = now() + make_interval(secs => :leaseSeconds), updated_at = now() "
+            + "FROM due WHERE s.id = due.id "
+            + "RETURNING s.*",
+            nativeQuery = true)
+    List<SubmissionOutboxEntry> claim(@Param("batchSize") int batchSize, @Param("leaseSeconds") long leaseSeconds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE xrp_payment.submission_outbox SET status = :status, engine_result = :engineResult, last_error = :lastError, "
+            + "locked_until = NULL, updated_at = now() WHERE id = :id",
+            nativeQuery = true)
+    int complete(@Param("id") Long id, @Param("status") String status,
+                 @Param("engineResult") String engineResult, @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE xrp_payment.submission_outbox SET status = 'PENDING', engine_result = :engineResult, last_error = :lastError, "
+            + "next_attempt_at = now() + make_interval(secs => :delaySeconds), locked_until = NULL, updated_at = now() WHERE id = :id",
+            nativeQuery = true)
+    int reschedule(@Param("id") Long id, @Param("engineResult") String engineResult,
+                   @Param("lastError") String lastError, @Param("delaySeconds") double delaySeconds);
+
+    @Query(value = "SELECT transaction_id FROM xrp_payment.submission_outbox WHERE depends_on = :id AND status = 'PENDING'",
+            nativeQuery = true)
+    List<Long> findPendingDependentTransactionIds(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE xrp_payment.submission_outbox SET status = 'SKIPPED', updated_at = now() WHERE depends_on = :id AND status = 'PENDING'",
+            nativeQuery = true)
+    int skipDependents(@Param("id") Long id);
+}
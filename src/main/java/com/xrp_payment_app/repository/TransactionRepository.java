@@ -2,11 +2,48 @@ package com.xrp_payment_app.repository;
 
 import com.xrp_payment_app.entity.Transaction;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.transaction.Transactional;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+
+    interface UnsettledTransaction {
+        String getTransactionHash();
+        Long getLastLedgerSequence();
+        String getTxBlob();
+    }
+
     Transaction findByPaymentReferenceAndPaymentType(String paymentReference, String paymentType);
     List<Transaction> findByRequestId(String requestId);
+    List<Transaction> findByPaymentReferenceIn(Collection<String> paymentReferences);
+
+    // Final statuses are never overwritten, a late submit result must not undo a validation
+    @Transactional
+    @Modifying
+    @Query("update Transaction t set t.status = :status where t.id in :ids"
+            + " and t.status not in ('VALIDATED', 'FAILED', 'EXPIRED')")
+    int updateStatusByIds(@Param("status") String status, @Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("update Transaction t set t.status = :status where t.transactionHash in :hashes"
+            + " and t.status not in ('VALIDATED', 'FAILED', 'EXPIRED')")
+    int updateStatusByTransactionHashes(@Param("status") String status, @Param("hashes") Collection<String> hashes);
+
+    // Submitted but not final; rows still waiting in the outbox are tracked once it submits them
+    @Query(value = "SELECT t.transaction_hash AS transactionHash, t.last_ledger_sequence AS lastLedgerSequence, o.tx_blob AS txBlob "
+            + "FROM xrp_payment.transactions t "
+            + "LEFT JOIN xrp_payment.submission_outbox o ON o.transaction_id = t.id "
+            + "WHERE t.status IN ('SUBMITTING', 'CONFIRMED', 'QUEUED') "
+            + "AND t.transaction_hash IS NOT NULL "
+            + "AND (o.id IS NULL OR o.status = 'DONE')",
+            nativeQuery = true)
+    List<UnsettledTransaction> findUnsettled();
 }
\ No newline at end of file
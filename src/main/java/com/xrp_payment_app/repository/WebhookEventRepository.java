@@ -0,0 +1,56 @@
+package com.xrp_payment_app.repository;
+
+import com.xrp_payment_app.entity.WebhookEvent;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.transaction.Transactional;
+
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, String> {
+
+    // 0 when the payload was already received, i.e. a webhook retry
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO xrp_payment.webhook_events (payload_uuid, payload_uuids, signed_status, status, created_at, updated_at) "
+            + "VALUES (:payloadUuid, :payloadUuids, :signedStatus, 'PENDING', now(), now()) "
+            + "ON CONFLICT (payload_uuid) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("payloadUuid") String payloadUuid, @Param("payloadUuids") String payloadUuids,
+                       @Param("signedStatus") String signedStatus);
+
+    // Same claim protocol as the submission outbox, including the materialized CTE
+    @Transactional
+    @Query(value = "WITH due AS MATERIALIZED ("
+            + "  SELECT e.payload_uuid FROM xrp_payment.webhook_events e "
+            + "  WHERE (e.status = 'PENDING' AND e.next_attempt_at <= now()) "
+            + "     OR (e.status = 'PROCESSING' AND e.locked_until < now()) "
+            + "  ORDER BY e.created_at "
+            + "  LIMIT :batchSize "
+            + "  FOR UPDATE SKIP LOCKED) "
+            + "UPDATE xrp_payment.webhook_events w SET status = 'PROCESSING', attempts = w.attempts + 1, "
+            + "locked_until = now() + make_interval(secs => :leaseSeconds), updated_at = now() "
+            + "FROM due WHERE w.payload_uuid = due.payload_uuid "
+            + "RETURNING w.*",
+            nativeQuery = true)
+    List<WebhookEvent> claim(@Param("batchSize") int batchSize, @Param("leaseSeconds") long leaseSeconds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE xrp_payment.webhook_events SET status = :status, last_error = :lastError, locked_until = NULL, updated_at = now() "
+            + "WHERE payload_uuid = :payloadUuid",
+            nativeQuery = true)
+    int complete(@Param("payloadUuid") String payloadUuid, @Param("status") String status, @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE xrp_payment.webhook_events SET status = 'PENDING', last_error = :lastError, "
+            + "next_attempt_at = now() + make_interval(secs => :delaySeconds), locked_until = NULL, updated_at = now() "
+            + "WHERE payload_uuid = :payloadUuid",
+            nativeQuery = true)
+    int reschedule(@Param("payloadUuid") String payloadUuid, @Param("lastError") String lastError, @Param("delaySeconds") double delaySeconds);
+}
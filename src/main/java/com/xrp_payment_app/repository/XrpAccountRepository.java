@@ -2,6 +2,10 @@ package com.xrp_payment_app.repository;
 
 import com.xrp_payment_app.entity.XrpAccount;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.transaction.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,4 +19,12 @@ public interface XrpAccountRepository extends JpaRepository<XrpAccount, Long> {
 
     List<XrpAccount> findAllByUserId(Long userId);
 
+    // Find-or-link in a single statement, see resolve_sender_account in V11
+    @Transactional
+    @Query(value = "SELECT * FROM xrp_payment.resolve_sender_account(CAST(:xrpAddress AS VARCHAR), CAST(:userName AS VARCHAR), CAST(:generatedUserName AS VARCHAR))",
+            nativeQuery = true)
+    XrpAccount resolveSenderAccount(@Param("xrpAddress") String xrpAddress,
+                                    @Param("userName") String userName,
+                                    @Param("generatedUserName") String generatedUserName);
+
 }
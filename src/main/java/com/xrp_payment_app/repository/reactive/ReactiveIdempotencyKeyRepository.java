@@ -0,0 +1,61 @@
+package com.xrp_payment_app.repository.reactive;
+
+import com.xrp_payment_app.entity.IdempotencyKey;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Mono;
+
+@Repository
+public class ReactiveIdempotencyKeyRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveIdempotencyKeyRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Long> claim(String requestId, String requestHash, long staleSeconds) {
+        return databaseClient.sql("INSERT INTO xrp_payment.idempotency_keys (request_id, status, request_hash, created_at, updated_at) "
+                        + "VALUES (:requestId, 'IN_PROGRESS', :requestHash, now(), now()) "
+                        + "ON CONFLICT (request_id) DO UPDATE SET updated_at = now(), request_hash = EXCLUDED.request_hash "
+                        + "WHERE idempotency_keys.status = 'IN_PROGRESS' "
+                        + "AND idempotency_keys.updated_at < now() - make_interval(secs => :staleSeconds)")
+                .bind("requestId", requestId)
+                .bind("requestHash", requestHash)
+                .bind("staleSeconds", staleSeconds)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<IdempotencyKey> findById(String requestId) {
+        return databaseClient.sql("SELECT request_id, status, request_hash, response_body FROM xrp_payment.idempotency_keys WHERE request_id = :requestId")
+                .bind("requestId", requestId)
+                .map((row, metadata) -> {
+                    IdempotencyKey key = new IdempotencyKey();
+                    key.setRequestId(row.get("request_id", String.class));
+                    key.setStatus(row.get("status", String.class));
+                    key.setRequestHash(row.get("request_hash", String.class));
+                    key.setResponseBody(row.get("response_body", String.class));
+                    return key;
+                })
+                .first();
+    }
+
+    public Mono<Long> complete(String requestId, String responseBody) {
+        return databaseClient.sql("UPDATE xrp_payment.idempotency_keys SET status = 'COMPLETED', response_body = :responseBody, updated_at = now() "
+                        + "WHERE request_id = :requestId")
+                .bind("requestId", requestId)
+                .bind("responseBody", responseBody)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> release(String requestId) {
+        return databaseClient.sql("DELETE FROM xrp_payment.idempotency_keys WHERE request_id = :requestId AND status = 'IN_PROGRESS'")
+                .bind("requestId", requestId)
+                .fetch()
+                .rowsUpdated();
+    }
+}
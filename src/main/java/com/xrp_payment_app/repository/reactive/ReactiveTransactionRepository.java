@@ -0,0 +1,129 @@
+package com.xrp_payment_app.repository.reactive;
+
+import com.xrp_payment_app.entity.Transaction;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public class ReactiveTransactionRepository {
+
+    private static final String COLUMNS = "id, xrp_account_id, destination_address, amount, platform_fee, network_fee, transaction_hash, "
+            + "payment_reference, payment_type, request_id, status, created_at, last_ledger_sequence";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveTransactionRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Transaction> findByPaymentReferenceAndPaymentType(String paymentReference, String paymentType) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM xrp_payment.transactions WHERE payment_reference = :paymentReference AND payment_type = :paymentType")
+                .bind("paymentReference", paymentReference)
+                .bind("paymentType", paymentType)
+                .map((row, metadata) -> toTransaction(row))
+                .first();
+    }
+
+    public Mono<Transaction> save(Transaction transaction) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+                "INSERT INTO xrp_payment.transactions (xrp_account_id, destination_address, amount, platform_fee, network_fee, transaction_hash, "
+                        + "payment_reference, payment_type, request_id, status, created_at, last_ledger_sequence) "
+                        + "VALUES (:xrpAccountId, :destinationAddress, :amount, :platformFee, :networkFee, :transactionHash, "
+                        + ":paymentReference, :paymentType, :requestId, :status, :createdAt, :lastLedgerSequence) RETURNING id")
+                .bind("xrpAccountId", transaction.getXrpAccountId())
+                .bind("destinationAddress", transaction.getDestinationAddress())
+                .bind("amount", transaction.getAmount())
+                .bind("networkFee", transaction.getNetworkFee())
+                .bind("status", transaction.getStatus())
+                .bind("createdAt", transaction.getCreatedAt());
+        spec = bindNullable(spec, "platformFee", transaction.getPlatformFee(), BigDecimal.class);
+        spec = bindNullable(spec, "transactionHash", transaction.getTransactionHash(), String.class);
+        spec = bindNullable(spec, "paymentReference", transaction.getPaymentReference(), String.class);
+        spec = bindNullable(spec, "paymentType", transaction.getPaymentType(), String.class);
+        spec = bindNullable(spec, "requestId", transaction.getRequestId(), String.class);
+        spec = bindNullable(spec, "lastLedgerSequence", transaction.getLastLedgerSequence(), Long.class);
+
+        return spec.map((row, metadata) -> row.get("id", Long.class))
+                .one()
+                .map(id -> {
+                    transaction.setId(id);
+                    return transaction;
+                });
+    }
+
+    // All rows go out as one pipelined batch on a single connection
+    public Flux<Transaction> saveAll(List<Transaction> transactions) {
+        return databaseClient.inConnectionMany(connection -> {
+                    Statement statement = connection.createStatement(
+                            "INSERT INTO xrp_payment.transactions (xrp_account_id, destination_address, amount, platform_fee, network_fee, transaction_hash, "
+                                    + "payment_reference, payment_type, request_id, status, created_at, last_ledger_sequence) "
+                                    + "VALUES ($1, $2, $3, $4, $5, $6, $7, $8, $9, $10, $11, $12)")
+                            .returnGeneratedValues("id");
+                    for (int i = 0; i < transactions.size(); i++) {
+                        if (i > 0) {
+                            statement.add();
+                        }
+                        Transaction transaction = transactions.get(i);
+                        statement.bind(0, transaction.getXrpAccountId())
+                                .bind(1, transaction.getDestinationAddress())
+                                .bind(2, transaction.getAmount())
+                                .bind(4, transaction.getNetworkFee())
+                                .bind(9, transaction.getStatus())
+                                .bind(10, transaction.getCreatedAt());
+                        bindNullable(statement, 3, transaction.getPlatformFee(), BigDecimal.class);
+                        bindNullable(statement, 5, transaction.getTransactionHash(), String.class);
+                        bindNullable(statement, 6, transaction.getPaymentReference(), String.class);
+                        bindNullable(statement, 7, transaction.getPaymentType(), String.class);
+                        bindNullable(statement, 8, transaction.getRequestId(), String.class);
+                        bindNullable(statement, 11, transaction.getLastLedgerSequence(), Long.class);
+                    }
+                    return Flux.from(statement.execute())
+                            .concatMap(result -> result.map((row, metadata) -> row.get("id", Long.class)));
+                })
+                .zipWithIterable(transactions, (id, transaction) -> {
+                    transaction.setId(id);
+                    return transaction;
+                });
+    }
+
+    private DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec, String name, Object value, Class<?> type) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+    }
+
+    private void bindNullable(Statement statement, int index, Object value, Class<?> type) {
+        if (value != null) {
+            statement.bind(index, value);
+        } else {
+            statement.bindNull(index, type);
+        }
+    }
+
+    private Transaction toTransaction(Row row) {
+        Transaction transaction = new Transaction();
+        transaction.setId(row.get("id", Long.class));
+        transaction.setXrpAccountId(row.get("xrp_account_id", Long.class));
+        transaction.setDestinationAddress(row.get("destination_address", String.class));
+        transaction.setAmount(row.get("amount", BigDecimal.class));
+        transaction.setPlatformFee(row.get("platform_fee", BigDecimal.class));
+        transaction.setNetworkFee(row.get("network_fee", BigDecimal.class));
+        transaction.setTransactionHash(row.get("transaction_hash", String.class));
+        transaction.setPaymentReference(row.get("payment_reference", String.class));
+        transaction.setPaymentType(row.get("payment_type", String.class));
+        transaction.setRequestId(row.get("request_id", String.class));
+        transaction.setStatus(row.get("status", String.class));
+        transaction.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        transaction.setLastLedgerSequence(row.get("last_ledger_sequence", Long.class));
+        return transaction;
+    }
+}
@@ -0,0 +1,27 @@
+package com.xrp_payment_app.repository.reactive;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Mono;
+
+@Repository
+public class ReactiveWebhookEventRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveWebhookEventRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Long> insertIfAbsent(String payloadUuid, String payloadUuids, String signedStatus) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+                        "INSERT INTO xrp_payment.webhook_events (payload_uuid, payload_uuids, signed_status, status, created_at, updated_at) "
+                                + "VALUES (:payloadUuid, :payloadUuids, :signedStatus, 'PENDING', now(), now()) "
+                                + "ON CONFLICT (payload_uuid) DO NOTHING")
+                .bind("payloadUuid", payloadUuid)
+                .bind("payloadUuids", payloadUuids);
+        spec = signedStatus != null ? spec.bind("signedStatus", signedStatus) : spec.bindNull("signedStatus", String.class);
+        return spec.fetch().rowsUpdated();
+    }
+}
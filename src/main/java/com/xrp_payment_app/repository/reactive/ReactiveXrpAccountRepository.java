@@ -0,0 +1,49 @@
+package com.xrp_payment_app.repository.reactive;
+
+import com.xrp_payment_app.entity.XrpAccount;
+
+import io.r2dbc.spi.Row;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+@Repository
+public class ReactiveXrpAccountRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveXrpAccountRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<XrpAccount> findByXrpAddress(String xrpAddress) {
+        return databaseClient.sql("SELECT id, user_id, xrp_address, created_at, updated_at FROM xrp_payment.xrp_accounts WHERE xrp_address = :xrpAddress")
+                .bind("xrpAddress", xrpAddress)
+                .map((row, metadata) -> toXrpAccount(row))
+                .one();
+    }
+
+    public Mono<XrpAccount> resolveSenderAccount(String xrpAddress, String userName, String generatedUserName) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("SELECT id, user_id, xrp_address, created_at, updated_at "
+                        + "FROM xrp_payment.resolve_sender_account(CAST(:xrpAddress AS VARCHAR), CAST(:userName AS VARCHAR), CAST(:generatedUserName AS VARCHAR))")
+                .bind("xrpAddress", xrpAddress)
+                .bind("generatedUserName", generatedUserName);
+        spec = userName != null ? spec.bind("userName", userName) : spec.bindNull("userName", String.class);
+        return spec.map((row, metadata) -> toXrpAccount(row))
+                .one();
+    }
+
+    private XrpAccount toXrpAccount(Row row) {
+        XrpAccount account = new XrpAccount();
+        account.setId(row.get("id", Long.class));
+        account.setUserId(row.get("user_id", Long.class));
+        account.setXrpAddress(row.get("xrp_address", String.class));
+        account.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        account.setUpdatedAt(row.get("updated_at", LocalDateTime.class));
+        return account;
+    }
+}
@@ -0,0 +1,443 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.primitives.UnsignedInteger;
+import com.xrp_payment_app.dto.BulkPayoutItem;
+import com.xrp_payment_app.dto.BulkPayoutResult;
+import com.xrp_payment_app.dto.SubmitResultResponse;
+import com.xrp_payment_app.entity.Transaction;
+import com.xrp_payment_app.entity.User;
+import com.xrp_payment_app.entity.XrpAccount;
+import com.xrp_payment_app.exception.BadRequestException;
+import com.xrp_payment_app.exception.NotFoundException;
+import com.xrp_payment_app.exception.UnprocessedException;
+import com.xrp_payment_app.exception.XrpServiceException;
+import com.xrp_payment_app.repository.TransactionRepository;
+import com.xrp_payment_app.repository.UserRepository;
+import com.xrp_payment_app.repository.XrpAccountRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.xrpl.xrpl4j.crypto.signing.SingleSignedTransaction;
+import org.xrpl.xrpl4j.model.transactions.Address;
+import org.xrpl.xrpl4j.model.transactions.Payment;
+import org.xrpl.xrpl4j.model.transactions.XrpCurrencyAmount;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Custodial payouts to many destinations in one call. Balances and fees are checked once for
+// the whole batch, sequences are reserved as a block, signing runs on all cores and
+// submissions are pipelined. Every payout is stored under its signed hash before it is
+// submitted, the submission runs on its own subscription and the response stream only
+// observes it, so a client that goes away does not stop or orphan the batch.
+@Service
+public class BulkPayoutService {
+    private static final Logger logger = LoggerFactory.getLogger(BulkPayoutService.class);
+    private final BigDecimal PLATFORM_FEE = new BigDecimal("0.2"); // Platform's XRP charge  keep
+    private final String PLATFORM_ADDRESS;
+
+    private record PreparedPayout(int index, BulkPayoutItem item, UnsignedInteger sequence, SingleSignedTransaction<Payment> signed) {}
+
+    // Without a result the submit either was refused by rippled (rejected) or has an unknown outcome
+    private record SubmissionOutcome(PreparedPayout payout, SubmitResultResponse result, String error, boolean rejected) {}
+
+    private static final TypeReference<List<BulkPayoutResult>> RESULTS = new TypeReference<>() {};
+
+    private final UserRepository userRepository;
+    private final XrpAccountRepository xrpAccountRepository;
+    private final TransactionRepository transactionRepository;
+    private final XrplClientService xrplClientService;
+    private final XrplService xrplService;
+    private final LedgerParameterCache ledgerParameterCache;
+    private final PlatformSequenceManager platformSequenceManager;
+    private final PlatformSigningService platformSigningService;
+    private final FinalityTracker finalityTracker;
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Value("${xrpl.finality.ledger-offset:20}")
+    private long lastLedgerOffset;
+
+    @Value("${payment.bulk.max-items:5000}")
+    private int maxItems;
+
+    @Value("${payment.bulk.submit-concurrency:8}")
+    private int submitConcurrency;
+
+    @Value("${payment.bulk.persist-batch-size:50}")
+    private int persistBatchSize;
+
+    @Value("${payment.bulk.persist-max-delay-ms:500}")
+    private long persistMaxDelayMs;
+
+    public BulkPayoutService(
+            @Value("${platform.address}") String platformAddress,
+            UserRepository userRepository,
+            XrpAccountRepository xrpAccountRepository,
+            TransactionRepository transactionRepository,
+            XrplClientService xrplClientService,
+            XrplService xrplService,
+            LedgerParameterCache ledgerParameterCache,
+            PlatformSequenceManager platformSequenceManager,
+            PlatformSigningService platformSigningService,
+            FinalityTracker finalityTracker,
+            IdempotencyService idempotencyService
+    ) {
+        this.PLATFORM_ADDRESS = platformAddress;
+        this.userRepository = userRepository;
+        this.xrpAccountRepository = xrpAccountRepository;
+        this.transactionRepository = transactionRepository;
+        this.xrplClientService = xrplClientService;
+        this.xrplService = xrplService;
+        this.ledgerParameterCache = ledgerParameterCache;
+        this.platformSequenceManager = platformSequenceManager;
+        this.platformSigningService = platformSigningService;
+        this.finalityTracker = finalityTracker;
+        this.idempotencyService = idempotencyService;
+    }
+
+    public int maxItems() {
+        return maxItems;
+    }
+
+    // Everything that can fail the whole batch happens before the stream starts, so those
+    // errors still reach the client as a normal error response
+    public Flux<BulkPayoutResult> payout(String requestId, String userId, List<BulkPayoutItem> items) throws Exception {
+        if (userId == null || userId.isEmpty()) {
+            throw new BadRequestException(
+                    "User ID is required",
+                    "Please provide a valid user ID",
+                    "MISSING_MANDATORY_FIELD"
+            );
+        }
+        if (items == null || items.isEmpty()) {
+            throw new BadRequestException(
+                    "Payouts are required",
+                    "Please provide at least one payout",
+                    "MISSING_MANDATORY_FIELD"
+            );
+        }
+        if (items.size() > maxItems) {
+            throw new BadRequestException(
+                    "Too many payouts: " + items.size(),
+                    "A bulk request can contain at most " + maxItems + " payouts",
+                    "TOO_MANY_ITEMS"
+            );
+        }
+
+        long parsedUserId;
+        try {
+            parsedUserId = Long.parseLong(userId);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException(
+                    "Invalid User ID: " + userId,
+                    "Please provide a valid user ID",
+                    "INVALID_USER_ID"
+            );
+        }
+
+        // A retry with the same RequestId gets the stored results back instead of paying twice
+        String storedResults = idempotencyService.claimOrReplay(requestId, requestHash(userId, items));
+        if (storedResults != null) {
+            return Flux.fromIterable(mapper.readValue(storedResults, RESULTS));
+        }
+        try {
+            return start(requestId, parsedUserId, items);
+        } catch (Exception e) {
+            // Nothing was stored or submitted, the RequestId can be used again
+            idempotencyService.release(requestId);
+            throw e;
+        }
+    }
+
+    private Flux<BulkPayoutResult> start(String requestId, long userId, List<BulkPayoutItem> items) throws Exception {
+        // A RequestId taken over after its key went stale must not pay out a second time
+        if (!transactionRepository.findByRequestId(requestId).isEmpty()) {
+            throw new BadRequestException(
+                    "Duplicate Request ID",
+                    "A transaction with this Request ID already exists",
+                    "DUPLICATE_REQUEST_ID"
+            );
+        }
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException(
+                        "User not found",
+                        "The specified user does not exist.",
+                        "USER_NOT_FOUND"
+                ));
+        XrpAccount senderAccount = xrpAccountRepository.findByUserId(user.getId())
+                .orElseThrow(() -> new NotFoundException(
+                        "XRP account not found",
+                        "No XRP account linked to this user",
+                        "ACCOUNT_NOT_FOUND"
+                ));
+
+        // Invalid items are answered right away and take no part in the batch
+        List<BulkPayoutResult> rejected = new ArrayList<>();
+        List<Integer> accepted = new ArrayList<>();
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (int i = 0; i < items.size(); i++) {
+            BulkPayoutItem item = items.get(i);
+            String problem = validate(item);
+            if (problem != null) {
+                rejected.add(new BulkPayoutResult(i, item == null ? null : item.reference(), item == null ? null : item.destinationAddress(),
+                        item == null ? null : item.amount(), "REJECTED", null, null, problem));
+            } else {
+                accepted.add(i);
+                totalAmount = totalAmount.add(item.amount());
+            }
+        }
+        if (accepted.isEmpty()) {
+            idempotencyService.complete(requestId, serialize(rejected));
+            return Flux.fromIterable(rejected);
+        }
+
+        BigDecimal networkFee = ledgerParameterCache.baseFee();
+        BigDecimal count = BigDecimal.valueOf(accepted.size());
+        BigDecimal platformTotalDebit = totalAmount.add(networkFee.multiply(count));
+        BigDecimal userTotalDebit = totalAmount.add(PLATFORM_FEE.add(networkFee).multiply(count));
+
+        // One balance check per account for the whole batch
+        BigDecimal platformWalletBalance = xrplClientService.getBalance(PLATFORM_ADDRESS);
+        if (platformWalletBalance.compareTo(platformTotalDebit) < 0) {
+            throw new UnprocessedException(
+                    "Insufficient balance",
+                    "Platform's account does not have enough XRP to complete this payment",
+                    "INSUFFICIENT_BALANCE"
+            );
+        }
+        BigDecimal senderBalance = xrplClientService.getBalance(senderAccount.getXrpAddress());
+        if (senderBalance.compareTo(userTotalDebit) < 0) {
+            throw new UnprocessedException(
+                    "Insufficient balance",
+                    "User do not have enough XRP to complete this payment",
+                    "INSUFFICIENT_BALANCE"
+            );
+        }
+
+        UnsignedInteger lastLedgerSequence = UnsignedInteger.valueOf(ledgerParameterCache.get().ledgerIndex() + lastLedgerOffset);
+        List<UnsignedInteger> sequences = platformSequenceManager.acquire(accepted.size(), lastLedgerSequence);
+        XrpCurrencyAmount feeInDrops = XrpCurrencyAmount.ofXrp(networkFee);
+
+        List<PreparedPayout> prepared = new ArrayList<>(accepted.size());
+        try {
+            List<Payment> payments = new ArrayList<>(accepted.size());
+            for (int i = 0; i < accepted.size(); i++) {
+                BulkPayoutItem item = items.get(accepted.get(i));
+                payments.add(Payment.builder()
+                        .account(Address.of(PLATFORM_ADDRESS))
+                        .destination(Address.of(item.destinationAddress()))
+                        .amount(XrpCurrencyAmount.ofXrp(item.amount()))
+                        .fee(feeInDrops)
+                        .sequence(sequences.get(i))
+                        .lastLedgerSequence(lastLedgerSequence)
+                        .signingPublicKey(platformSigningService.publicKey())
+                        .build());
+            }
+            List<SingleSignedTransaction<Payment>> signed = platformSigningService.sign(payments);
+            for (int i = 0; i < accepted.size(); i++) {
+                prepared.add(new PreparedPayout(accepted.get(i), items.get(accepted.get(i)), sequences.get(i), signed.get(i)));
+            }
+
+            // Stored under the locally computed hash before anything is submitted, so a payout
+            // whose submit outcome is lost can still be settled by the finality tracker
+            List<Transaction> transactions = new ArrayList<>(prepared.size());
+            for (PreparedPayout payout : prepared) {
+                transactions.add(transaction(requestId, senderAccount, networkFee, lastLedgerSequence, payout));
+            }
+            transactionRepository.saveAll(transactions);
+        } catch (Exception e) {
+            sequences.forEach(platformSequenceManager::release);
+            throw new XrpServiceException(
+                    "Failed to prepare bulk payout: " + e.getMessage(),
+                    e,
+                    "We couldn’t process your payment request at this time. Please try again later",
+                    "SYSTEM_ERROR",
+                    HttpStatus.INTERNAL_SERVER_ERROR
+            );
+        }
+        logger.info("Bulk payout {}: {} signed, {} rejected, sequences {}..{}", requestId, prepared.size(), rejected.size(),
+                sequences.get(0), sequences.get(sequences.size() - 1));
+
+        prepared.forEach(payout -> finalityTracker.track(hashOf(payout), lastLedgerSequence));
+
+        // Submitted in sequence order with a bounded window in flight, results keep that order
+        List<BulkPayoutResult> results = Collections.synchronizedList(new ArrayList<>(rejected));
+        Sinks.Many<BulkPayoutResult> stream = Sinks.many().unicast().onBackpressureBuffer();
+        Flux.fromIterable(prepared)
+                .flatMapSequential(this::submit, submitConcurrency)
+                .bufferTimeout(persistBatchSize, Duration.ofMillis(persistMaxDelayMs))
+                .concatMap(batch -> Mono.fromCallable(() -> recordOutcomes(batch))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .doOnNext(batch -> {
+                    results.addAll(batch);
+                    // Nobody may be listening any more, the batch carries on regardless
+                    batch.forEach(stream::tryEmitNext);
+                })
+                .then(Mono.fromRunnable(() -> idempotencyService.complete(requestId, serialize(results)))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .subscribe(
+                        null,
+                        error -> {
+                            logger.error("Bulk payout {} stopped: {}", requestId, error.getMessage());
+                            stream.tryEmitError(error);
+                        },
+                        stream::tryEmitComplete
+                );
+
+        return Flux.fromIterable(rejected).concatWith(stream.asFlux());
+    }
+
+    private Mono<SubmissionOutcome> submit(PreparedPayout payout) {
+        return xrplService.submitSignedBlobAsync(payout.signed().signedTransactionBytes().hexValue())
+                .publishOn(Schedulers.boundedElastic())
+                .map(result -> {
+                    // Out-of-order arrival within the window is held by rippled until the
+                    // earlier sequence lands, so it is not treated as a sequence error here
+                    if (!"terPRE_SEQ".equals(result.engineResult())) {
+                        platformSequenceManager.onSubmitResult(payout.sequence(), result.engineResult());
+                    }
+                    return new SubmissionOutcome(payout, result, null, false);
+                })
+                .onErrorResume(XrplService::isSubmitRejected, e -> {
+                    // Never relayed, the sequence was not used
+                    platformSequenceManager.release(payout.sequence());
+                    return Mono.just(new SubmissionOutcome(payout, null, e.getMessage(), true));
+                })
+                .onErrorResume(e -> {
+                    // The submit may have reached the network, so the sequence stays reserved and
+                    // the row SUBMITTING until the finality tracker or a sequence resync settles it
+                    logger.warn("Bulk payout item {} has an unknown submit outcome: {}", payout.index(), e.getMessage());
+                    return Mono.just(new SubmissionOutcome(payout, null, e.getMessage(), false));
+                });
+    }
+
+    private Transaction transaction(String requestId, XrpAccount senderAccount, BigDecimal networkFee,
+                                    UnsignedInteger lastLedgerSequence, PreparedPayout payout) {
+        BulkPayoutItem item = payout.item();
+        Transaction transaction = new Transaction();
+        transaction.setXrpAccountId(senderAccount.getId());
+        transaction.setDestinationAddress(item.destinationAddress());
+        transaction.setAmount(item.amount());
+        transaction.setPlatformFee(PLATFORM_FEE);
+        transaction.setNetworkFee(networkFee);
+        transaction.setTransactionHash(hashOf(payout));
+        transaction.setLastLedgerSequence(lastLedgerSequence.longValue());
+        transaction.setPaymentReference(item.reference());
+        transaction.setRequestId(requestId);
+        transaction.setStatus("SUBMITTING");
+        return transaction;
+    }
+
+    private List<BulkPayoutResult> recordOutcomes(List<SubmissionOutcome> batch) {
+        Map<String, List<String>> hashesByStatus = new HashMap<>();
+        List<BulkPayoutResult> results = new ArrayList<>(batch.size());
+        for (SubmissionOutcome outcome : batch) {
+            PreparedPayout payout = outcome.payout();
+            BulkPayoutItem item = payout.item();
+            String hash = hashOf(payout);
+            if (outcome.rejected()) {
+                hashesByStatus.computeIfAbsent("FAILED", k -> new ArrayList<>()).add(hash);
+                results.add(new BulkPayoutResult(payout.index(), item.reference(), item.destinationAddress(), item.amount(),
+                        "FAILED", hash, null, outcome.error()));
+                continue;
+            }
+            if (outcome.result() == null) {
+                results.add(new BulkPayoutResult(payout.index(), item.reference(), item.destinationAddress(), item.amount(),
+                        "UNKNOWN", hash, null, "Submission outcome unknown, the payout is tracked until it settles: " + outcome.error()));
+                continue;
+            }
+
+            SubmitResultResponse result = outcome.result();
+            String status = statusOf(result.engineResult());
+            hashesByStatus.computeIfAbsent(status, k -> new ArrayList<>()).add(hash);
+            results.add(new BulkPayoutResult(payout.index(), item.reference(), item.destinationAddress(), item.amount(),
+                    status, hash, result.engineResult(), result.engineResultMessage()));
+        }
+
+        // One update per status for the whole chunk; final statuses already written by the
+        // finality tracker are left alone
+        hashesByStatus.forEach((status, hashes) -> {
+            try {
+                transactionRepository.updateStatusByTransactionHashes(status, hashes);
+            } catch (Exception e) {
+                logger.warn("Failed to record {} bulk payout result(s) as {}, left to the finality tracker: {}",
+                        hashes.size(), status, e.getMessage());
+            }
+        });
+        return results;
+    }
+
+    private String hashOf(PreparedPayout payout) {
+        return payout.signed().hash().value();
+    }
+
+    private String serialize(List<BulkPayoutResult> results) {
+        try {
+            return mapper.writeValueAsString(results);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to store bulk payout results", e);
+        }
+    }
+
+    private static String requestHash(String userId, List<BulkPayoutItem> items) {
+        List<Object> fields = new ArrayList<>(items.size() * 3 + 2);
+        fields.add("bulk");
+        fields.add(userId);
+        for (BulkPayoutItem item : items) {
+            fields.add(item == null ? null : item.reference());
+            fields.add(item == null ? null : item.destinationAddress());
+            fields.add(item == null ? null : item.amount());
+        }
+        return IdempotencyService.requestHash(fields.toArray());
+    }
+
+    private String statusOf(String engineResult) {
+        if (engineResult.startsWith("tes")) {
+            // Tentative until the finality tracker sees it in a validated ledger
+            return "CONFIRMED";
+        }
+        if (engineResult.startsWith("tec") || "tefPAST_SEQ".equals(engineResult)
+                || PlatformSequenceManager.isDefinitiveRejection(engineResult)) {
+            return "FAILED";
+        }
+        // ter codes and tefALREADY can still make it into a ledger
+        return "QUEUED";
+    }
+
+    private String validate(BulkPayoutItem item) {
+        if (item == null) {
+            return "Payout is empty";
+        }
+        if (item.destinationAddress() == null || item.destinationAddress().isEmpty()) {
+            return "Destination address is required";
+        }
+        if (!item.destinationAddress().startsWith("r") || item.destinationAddress().equals(PLATFORM_ADDRESS)) {
+            return "Destination address is not valid";
+        }
+        if (item.amount() == null || item.amount().signum() <= 0) {
+            return "Amount must be greater than zero";
+        }
+        if (item.amount().stripTrailingZeros().scale() > 6) {
+            return "Amount has more than 6 decimal places";
+        }
+        return null;
+    }
+}
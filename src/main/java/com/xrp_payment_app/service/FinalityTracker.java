@@ -0,0 +1,238 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.primitives.UnsignedInteger;
+import com.xrp_payment_app.event.ValidatedTransactionEvent;
+import com.xrp_payment_app.repository.TransactionRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.xrpl.xrpl4j.codec.binary.XrplBinaryCodec;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Follows submitted hashes until they are in a validated ledger or their LastLedgerSequence
+// has passed. Validations come from the transactions stream, so the steady state needs no
+// per-hash tx lookups; status changes are flushed to the database in batches. A transaction
+// without LastLedgerSequence can be validated at any later point, it only fails once its
+// account's Sequence moved past it.
+@Service
+public class FinalityTracker {
+    private static final Logger logger = LoggerFactory.getLogger(FinalityTracker.class);
+    private static final int FLUSH_CHUNK_SIZE = 500;
+
+    // Without a LastLedgerSequence, checkAfterLedger is when the account's Sequence is looked at next
+    private record TrackedTransaction(String hash, long checkAfterLedger, boolean hasLastLedgerSequence, String account, long sequence) {}
+
+    private record StatusUpdate(String hash, String status) {}
+
+    private final TransactionRepository transactionRepository;
+    private final XrplService xrplService;
+    private final XrplStreamService xrplStreamService;
+    private final LedgerParameterCache ledgerParameterCache;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final ConcurrentHashMap<String, TrackedTransaction> tracked = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<StatusUpdate> pendingUpdates = new ConcurrentLinkedQueue<>();
+
+    @Value("${xrpl.finality.max-ledgers-without-lls:20}")
+    private long ledgersBetweenSequenceChecks;
+
+    @Value("${xrpl.finality.stream-stale-after-ms:30000}")
+    private long streamStaleAfterMs;
+
+    @Value("${xrpl.finality.fallback-batch-size:50}")
+    private int fallbackBatchSize;
+
+    public FinalityTracker(
+            TransactionRepository transactionRepository,
+            XrplService xrplService,
+            XrplStreamService xrplStreamService,
+            LedgerParameterCache ledgerParameterCache
+    ) {
+        this.transactionRepository = transactionRepository;
+        this.xrplService = xrplService;
+        this.xrplStreamService = xrplStreamService;
+        this.ledgerParameterCache = ledgerParameterCache;
+        // Only validations of hashes followed here are published
+        xrplStreamService.publishTransactionsMatching(tracked::containsKey);
+    }
+
+    // Tracking is in memory, pick up what was still unsettled when the previous instance stopped
+    @EventListener(ApplicationReadyEvent.class)
+    public void rehydrate() {
+        try {
+            List<TransactionRepository.UnsettledTransaction> unsettled = transactionRepository.findUnsettled();
+            for (TransactionRepository.UnsettledTransaction transaction : unsettled) {
+                if (transaction.getLastLedgerSequence() != null) {
+                    track(transaction.getTransactionHash(), UnsignedInteger.valueOf(transaction.getLastLedgerSequence()));
+                } else if (transaction.getTxBlob() != null) {
+                    trackSignedBlob(transaction.getTransactionHash(), transaction.getTxBlob());
+                } else {
+                    track(transaction.getTransactionHash(), null);
+                }
+            }
+            logger.info("Resumed finality tracking of {} unsettled transaction(s)", unsettled.size());
+        } catch (Exception e) {
+            logger.warn("Could not resume finality tracking: {}", e.getMessage());
+        }
+    }
+
+    public void track(String hash, UnsignedInteger lastLedgerSequence) {
+        track(hash, lastLedgerSequence, null, 0);
+    }
+
+    // Blobs signed in Xaman may or may not carry a LastLedgerSequence, read it from the blob
+    public void trackSignedBlob(String hash, String signedTxBlob) {
+        UnsignedInteger lastLedgerSequence = null;
+        String account = null;
+        long sequence = 0;
+        try {
+            JsonNode txJson = mapper.readTree(XrplBinaryCodec.getInstance().decode(signedTxBlob));
+            if (txJson.has("LastLedgerSequence")) {
+                lastLedgerSequence = UnsignedInteger.valueOf(txJson.path("LastLedgerSequence").asLong());
+            }
+            account = txJson.path("Account").asText(null);
+            sequence = txJson.path("Sequence").asLong();
+        } catch (Exception e) {
+            logger.warn("Could not decode signed blob for {}: {}", hash, e.getMessage());
+        }
+        track(hash, lastLedgerSequence, account, sequence);
+    }
+
+    private void track(String hash, UnsignedInteger lastLedgerSequence, String account, long sequence) {
+        if (hash == null || hash.isBlank()) {
+            return;
+        }
+        if (lastLedgerSequence != null) {
+            tracked.put(hash, new TrackedTransaction(hash, lastLedgerSequence.longValue(), true, account, sequence));
+        } else {
+            tracked.put(hash, new TrackedTransaction(hash, currentLedgerIndex() + ledgersBetweenSequenceChecks, false, account, sequence));
+        }
+    }
+
+    public int inFlightCount() {
+        return tracked.size();
+    }
+
+    @EventListener
+    public void onValidatedTransaction(ValidatedTransactionEvent event) {
+        if (tracked.remove(event.transactionHash()) == null) {
+            return;
+        }
+        resolve(event.transactionHash(), event.engineResult());
+    }
+
+    @Scheduled(fixedDelayString = "${xrpl.finality.sweep-interval-ms:1000}")
+    public void sweep() {
+        if (!tracked.isEmpty()) {
+            expireOrPoll();
+        }
+        flush();
+    }
+
+    private void expireOrPoll() {
+        long ledgerIndex = currentLedgerIndex();
+        boolean streamHealthy = xrplStreamService.isHealthy(streamStaleAfterMs);
+        int pollBudget = streamHealthy ? 0 : fallbackBatchSize;
+
+        List<TrackedTransaction> candidates = new ArrayList<>();
+        for (TrackedTransaction transaction : tracked.values()) {
+            if (ledgerIndex > transaction.checkAfterLedger()) {
+                candidates.add(transaction);
+            } else if (pollBudget > 0) {
+                // Stream is down, fall back to looking up a bounded number of hashes
+                candidates.add(transaction);
+                pollBudget--;
+            }
+        }
+
+        for (TrackedTransaction transaction : candidates) {
+            try {
+                boolean due = ledgerIndex > transaction.checkAfterLedger();
+                // Read before the tx lookup, a transaction validated in between then shows up as validated
+                long accountSequence = due && !transaction.hasLastLedgerSequence() && transaction.account() != null
+                        ? xrplService.getValidatedAccountSequence(transaction.account())
+                        : 0;
+                JsonNode result = xrplService.getTransaction(transaction.hash());
+                if (result.path("validated").asBoolean()) {
+                    if (tracked.remove(transaction.hash()) != null) {
+                        resolve(transaction.hash(), result.path("meta").path("TransactionResult").asText());
+                    }
+                } else if (due && transaction.hasLastLedgerSequence()) {
+                    if (tracked.remove(transaction.hash()) != null) {
+                        logger.warn("Transaction {} expired, LastLedgerSequence {} passed", transaction.hash(), transaction.checkAfterLedger());
+                        pendingUpdates.add(new StatusUpdate(transaction.hash(), "EXPIRED"));
+                    }
+                } else if (due && accountSequence > transaction.sequence()) {
+                    // Another transaction took its Sequence, this one can never be applied
+                    if (tracked.remove(transaction.hash()) != null) {
+                        logger.warn("Transaction {} failed, Sequence {} of {} was used by another transaction",
+                                transaction.hash(), transaction.sequence(), transaction.account());
+                        pendingUpdates.add(new StatusUpdate(transaction.hash(), "FAILED"));
+                    }
+                } else if (due) {
+                    // Still pending, or no account to check against: it stays tracked
+                    tracked.replace(transaction.hash(), transaction, new TrackedTransaction(transaction.hash(),
+                            ledgerIndex + ledgersBetweenSequenceChecks, false, transaction.account(), transaction.sequence()));
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to look up transaction {}, will retry: {}", transaction.hash(), e.getMessage());
+            }
+        }
+    }
+
+    private void resolve(String hash, String engineResult) {
+        String status = engineResult.startsWith("tes") ? "VALIDATED" : "FAILED";
+        logger.info("Transaction {} final with {}: {}", hash, engineResult, status);
+        pendingUpdates.add(new StatusUpdate(hash, status));
+    }
+
+    private void flush() {
+        if (pendingUpdates.isEmpty()) {
+            return;
+        }
+        Map<String, List<String>> hashesByStatus = new HashMap<>();
+        StatusUpdate update;
+        while ((update = pendingUpdates.poll()) != null) {
+            hashesByStatus.computeIfAbsent(update.status(), k -> new ArrayList<>()).add(update.hash());
+        }
+
+        hashesByStatus.forEach((status, hashes) -> {
+            for (int from = 0; from < hashes.size(); from += FLUSH_CHUNK_SIZE) {
+                List<String> chunk = hashes.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, hashes.size()));
+                try {
+                    int updated = transactionRepository.updateStatusByTransactionHashes(status, chunk);
+                    logger.debug("Flushed {} {} status updates, {} rows", chunk.size(), status, updated);
+                } catch (Exception e) {
+                    logger.warn("Failed to flush {} status updates, will retry: {}", status, e.getMessage());
+                    chunk.forEach(hash -> pendingUpdates.add(new StatusUpdate(hash, status)));
+                }
+            }
+        });
+    }
+
+    private long currentLedgerIndex() {
+        long streamLedger = xrplStreamService.lastLedgerIndex();
+        if (xrplStreamService.isHealthy(streamStaleAfterMs)) {
+            return streamLedger;
+        }
+        try {
+            // The cache holds the open ledger index, the last validated one is behind it
+            return Math.max(streamLedger, ledgerParameterCache.get().ledgerIndex() - 1);
+        } catch (Exception e) {
+            return streamLedger;
+        }
+    }
+}
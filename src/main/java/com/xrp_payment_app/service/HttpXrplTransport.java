@@ -0,0 +1,86 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.xrp_payment_app.dto.SubmitResultResponse;
+import com.xrp_payment_app.utils.PaymentMetrics;
+import com.xrp_payment_app.utils.SubmitCodec;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.xrpl.xrpl4j.model.jackson.ObjectMapperFactory;
+
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// JSON-RPC over HTTP, routed through the RippledNodePool
+@Service
+@ConditionalOnProperty(name = "xrpl.transport.mode", havingValue = "http", matchIfMissing = true)
+public class HttpXrplTransport implements XrplTransport {
+
+    private final RippledNodePool nodePool;
+    private final PaymentMetrics paymentMetrics;
+    private final ObjectMapper objectMapper = ObjectMapperFactory.create();
+    private final SubmitCodec submitCodec = new SubmitCodec(objectMapper.getFactory());
+
+    public HttpXrplTransport(RippledNodePool nodePool, PaymentMetrics paymentMetrics) {
+        this.nodePool = nodePool;
+        this.paymentMetrics = paymentMetrics;
+    }
+
+    @Override
+    public Mono<JsonNode> send(String method, JsonNode params) {
+        byte[] requestBody = encode(method, params);
+        return paymentMetrics.timeXrpl(method, nodePool.execute(method, node -> node.webClient().post()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(requestBody)
+                        .retrieve()
+                        .bodyToMono(byte[].class))
+                .map(this::decodeResult));
+    }
+
+    // The hot path: no request or response tree is built
+    @Override
+    public Mono<SubmitResultResponse> submit(String signedTxBlob) {
+        return paymentMetrics.timeXrpl("submit", nodePool.execute("submit", node -> node.webClient().post()
+                .contentType(MediaType.APPLICATION_JSON)
+                // Encoded per attempt, the buffer is released once written
+                .body(BodyInserters.fromDataBuffers(Mono.fromSupplier(() -> submitCodec.encodeRequest(signedTxBlob))))
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .as(DataBufferUtils::join)
+                .map(submitCodec::decodeResponse)));
+    }
+
+    @Override
+    public ObjectMapper objectMapper() {
+        return objectMapper;
+    }
+
+    private byte[] encode(String method, JsonNode params) {
+        ObjectNode request = objectMapper.createObjectNode();
+        request.put("method", method);
+        request.putArray("params").add(params != null ? params : objectMapper.createObjectNode());
+        try {
+            return objectMapper.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to encode " + method + " request", e);
+        }
+    }
+
+    private JsonNode decodeResult(byte[] responseBody) {
+        try {
+            return objectMapper.readTree(responseBody).path("result");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse rippled response", e);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xrp_payment_app.dto.PaymentSignResponse;
+import com.xrp_payment_app.entity.IdempotencyKey;
+import com.xrp_payment_app.exception.BadRequestException;
+import com.xrp_payment_app.exception.ConflictException;
+import com.xrp_payment_app.exception.UnprocessedException;
+import com.xrp_payment_app.repository.IdempotencyKeyRepository;
+import com.xrp_payment_app.repository.reactive.ReactiveIdempotencyKeyRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Makes v2 initiation idempotent per RequestId. The key is claimed with a single insert
+// against a unique key, so concurrent requests cannot both pass. Completed responses are
+// stored and replayed; recently seen keys are answered from memory. The key remembers a
+// hash of the request it was first used with, so it cannot be replayed for another body.
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    @FunctionalInterface
+    public interface Initiation<E extends Exception> {
+        PaymentSignResponse run() throws E;
+    }
+
+    private record RecentResponse(String requestHash, PaymentSignResponse response) {}
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ReactiveIdempotencyKeyRepository reactiveIdempotencyKeyRepository;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final long staleAfterSeconds;
+
+    // Keys being processed on this instance, rejected without a database round trip
+    private final Map<String, Boolean> inProgress = new ConcurrentHashMap<>();
+    private final Map<String, RecentResponse> recentResponses;
+
+    public IdempotencyService(
+            IdempotencyKeyRepository idempotencyKeyRepository,
+            ReactiveIdempotencyKeyRepository reactiveIdempotencyKeyRepository,
+            @Value("${payment.idempotency.recent-keys:10000}") int recentKeys,
+            @Value("${payment.idempotency.stale-after-seconds:300}") long staleAfterSeconds
+    ) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.reactiveIdempotencyKeyRepository = reactiveIdempotencyKeyRepository;
+        this.staleAfterSeconds = staleAfterSeconds;
+        this.recentResponses = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RecentResponse> eldest) {
+                return size() > recentKeys;
+            }
+        });
+    }
+
+    // SHA-256 over the fields that define a request; amounts compare by value, not scale
+    public static String requestHash(Object... fields) {
+        String canonical = Arrays.stream(fields)
+                .map(field -> field instanceof BigDecimal amount ? amount.stripTrailingZeros().toPlainString() : String.valueOf(field))
+                .collect(Collectors.joining("\u001F"));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public <E extends Exception> PaymentSignResponse execute(String requestId, String requestHash, Initiation<E> initiation) throws E {
+        PaymentSignResponse recent = recent(requestId, requestHash);
+        if (recent != null) {
+            return recent;
+        }
+        if (inProgress.putIfAbsent(requestId, Boolean.TRUE) != null) {
+            throw inProgressConflict(requestId);
+        }
+
+        try {
+            if (idempotencyKeyRepository.claim(requestId, requestHash, staleAfterSeconds) == 0) {
+                return replay(requestId, requestHash, idempotencyKeyRepository.findById(requestId).orElse(null));
+            }
+
+            PaymentSignResponse response;
+            try {
+                response = initiation.run();
+            } catch (Exception e) {
+                // Nothing durable was created, let the client retry with the same key
+                releaseQuietly(requestId);
+                throw e;
+            }
+            recentResponses.put(requestId, new RecentResponse(requestHash, response));
+            try {
+                idempotencyKeyRepository.complete(requestId, serialize(response));
+            } catch (Exception e) {
+                // Better a free key than one stuck IN_PROGRESS; this instance still replays from memory
+                logger.error("Failed to store response for Request ID {}, releasing the key: {}", requestId, e.getMessage());
+                releaseQuietly(requestId);
+            }
+            return response;
+        } finally {
+            inProgress.remove(requestId);
+        }
+    }
+
+    public Mono<PaymentSignResponse> executeAsync(String requestId, String requestHash, Supplier<Mono<PaymentSignResponse>> initiation) {
+        return Mono.defer(() -> {
+            PaymentSignResponse recent = recent(requestId, requestHash);
+            if (recent != null) {
+                return Mono.just(recent);
+            }
+            if (inProgress.putIfAbsent(requestId, Boolean.TRUE) != null) {
+                return Mono.error(inProgressConflict(requestId));
+            }
+
+            // Set while this request owns the key and has not completed it
+            AtomicBoolean owned = new AtomicBoolean(false);
+            return reactiveIdempotencyKeyRepository.claim(requestId, requestHash, staleAfterSeconds)
+                    .flatMap(claimed -> {
+                        if (claimed == 0) {
+                            return reactiveIdempotencyKeyRepository.findById(requestId)
+                                    .map(Optional::of)
+                                    .defaultIfEmpty(Optional.empty())
+                                    .map(key -> replay(requestId, requestHash, key.orElse(null)));
+                        }
+                        owned.set(true);
+                        return initiation.get()
+                                .onErrorResume(e -> releaseAsync(requestId, owned).then(Mono.error(e)))
+                                .flatMap(response -> {
+                                    recentResponses.put(requestId, new RecentResponse(requestHash, response));
+                                    return reactiveIdempotencyKeyRepository.complete(requestId, serialize(response))
+                                            .doOnSuccess(updated -> owned.set(false))
+                                            .then()
+                                            .onErrorResume(e -> {
+                                                logger.error("Failed to store response for Request ID {}, releasing the key: {}", requestId, e.getMessage());
+                                                return releaseAsync(requestId, owned);
+                                            })
+                                            .thenReturn(response);
+                                });
+                    })
+                    // The client went away mid-initiation, do not leave the key claimed for staleAfterSeconds
+                    .doOnCancel(() -> releaseAsync(requestId, owned).subscribe())
+                    .doFinally(signal -> inProgress.remove(requestId));
+        });
+    }
+
+    // For flows that stream their response: returns the stored body of a completed key, or null
+    // when the caller now owns the key and must complete or release it
+    public String claimOrReplay(String requestId, String requestHash) {
+        if (idempotencyKeyRepository.claim(requestId, requestHash, staleAfterSeconds) == 1) {
+            return null;
+        }
+        String body = storedBody(requestId, requestHash, idempotencyKeyRepository.findById(requestId).orElse(null));
+        logger.info("Replaying response for Request ID: {}", requestId);
+        return body;
+    }
+
+    public void complete(String requestId, String responseBody) {
+        try {
+            idempotencyKeyRepository.complete(requestId, responseBody);
+        } catch (Exception e) {
+            logger.error("Failed to store response for Request ID {}: {}", requestId, e.getMessage());
+        }
+    }
+
+    public void release(String requestId) {
+        releaseQuietly(requestId);
+    }
+
+    private PaymentSignResponse recent(String requestId, String requestHash) {
+        RecentResponse recent = recentResponses.get(requestId);
+        if (recent == null) {
+            return null;
+        }
+        checkRequestHash(requestId, recent.requestHash(), requestHash);
+        logger.info("Replaying response for Request ID: {}", requestId);
+        return recent.response();
+    }
+
+    private PaymentSignResponse replay(String requestId, String requestHash, IdempotencyKey key) {
+        String body = storedBody(requestId, requestHash, key);
+        try {
+            PaymentSignResponse response = mapper.readValue(body, PaymentSignResponse.class);
+            recentResponses.put(requestId, new RecentResponse(key.getRequestHash(), response));
+            logger.info("Replaying response for Request ID: {}", requestId);
+            return response;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to read stored response for " + requestId, e);
+        }
+    }
+
+    private String storedBody(String requestId, String requestHash, IdempotencyKey key) {
+        if (key != null) {
+            checkRequestHash(requestId, key.getRequestHash(), requestHash);
+        }
+        if (key == null || !"COMPLETED".equals(key.getStatus())) {
+            throw inProgressConflict(requestId);
+        }
+        if (key.getResponseBody() == null) {
+            logger.error("Duplicate Request ID: {}", requestId);
+            throw new BadRequestException(
+                    "Duplicate Request ID",
+                    "A transaction with this Request ID already exists",
+                    "DUPLICATE_REQUEST_ID"
+            );
+        }
+        return key.getResponseBody();
+    }
+
+    // Keys stored before request hashes existed have none and are not checked
+    private void checkRequestHash(String requestId, String storedHash, String requestHash) {
+        if (storedHash != null && !Objects.equals(storedHash, requestHash)) {
+            logger.warn("Request ID {} reused with a different request", requestId);
+            throw new UnprocessedException(
+                    "Request ID " + requestId + " was used with a different request",
+                    "This Request ID was already used for a different payment request. Use a new Request ID",
+                    "REQUEST_ID_MISMATCH"
+            );
+        }
+    }
+
+    private void releaseQuietly(String requestId) {
+        try {
+            idempotencyKeyRepository.release(requestId);
+        } catch (Exception e) {
+            logger.warn("Failed to release Request ID {}, it frees up after {}s: {}", requestId, staleAfterSeconds, e.getMessage());
+        }
+    }
+
+    private Mono<Void> releaseAsync(String requestId, AtomicBoolean owned) {
+        if (!owned.compareAndSet(true, false)) {
+            return Mono.empty();
+        }
+        return reactiveIdempotencyKeyRepository.release(requestId)
+                .doOnError(e -> logger.warn("Failed to release Request ID {}, it frees up after {}s: {}", requestId, staleAfterSeconds, e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private String serialize(PaymentSignResponse response) {
+        try {
+            return mapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to store response for " + response.requestId(), e);
+        }
+    }
+
+    private ConflictException inProgressConflict(String requestId) {
+        logger.warn("Request ID already in progress: {}", requestId);
+        return new ConflictException(
+                "Request ID " + requestId + " is already being processed",
+                "A payment with this Request ID is already being processed. Retry shortly to get its result",
+                "REQUEST_IN_PROGRESS"
+        );
+    }
+}
@@ -0,0 +1,170 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.xrp_payment_app.dto.LedgerParameters;
+import com.xrp_payment_app.event.LedgerClosedEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.xrpl.xrpl4j.model.client.fees.FeeResult;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+
+// Shared snapshot of fee and reserve parameters. Readers always get the last snapshot
+// without blocking; refreshes run in the background when a ledger closes or the TTL passes.
+@Service
+public class LedgerParameterCache {
+    private static final Logger logger = LoggerFactory.getLogger(LedgerParameterCache.class);
+
+    private final XrplClientService xrplClientService;
+    private final XrplService xrplService;
+    private final long ttlMs;
+    private final long reserveTtlMs;
+
+    private final AtomicReference<LedgerParameters> current = new AtomicReference<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final ReentrantLock initialLoadLock = new ReentrantLock();
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ledger-parameter-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile BigDecimal reserveBase;
+    private volatile BigDecimal reserveIncrement;
+    private volatile long reservesFetchedAt;
+
+    public LedgerParameterCache(
+            XrplClientService xrplClientService,
+            XrplService xrplService,
+            @Value("${xrpl.ledger-cache.ttl-ms:3000}") long ttlMs,
+            @Value("${xrpl.ledger-cache.reserve-ttl-ms:60000}") long reserveTtlMs
+    ) {
+        this.xrplClientService = xrplClientService;
+        this.xrplService = xrplService;
+        this.ttlMs = ttlMs;
+        this.reserveTtlMs = reserveTtlMs;
+    }
+
+    public LedgerParameters get() {
+        LedgerParameters snapshot = current.get();
+        if (snapshot == null) {
+            return loadInitial();
+        }
+        if (isStale(snapshot)) {
+            refreshAsync();
+        }
+        return snapshot;
+    }
+
+    // Never blocks the caller, the cold-start lookup runs off the event loop
+    public Mono<LedgerParameters> getAsync() {
+        LedgerParameters snapshot = current.get();
+        if (snapshot != null) {
+            return Mono.just(get());
+        }
+        return Mono.fromCallable(this::get).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public BigDecimal baseFee() {
+        return get().baseFee();
+    }
+
+    @Scheduled(fixedDelayString = "${xrpl.ledger-cache.ttl-ms:3000}")
+    public void scheduledRefresh() {
+        if (current.get() != null) {
+            refreshAsync();
+        }
+    }
+
+    @EventListener
+    public void onLedgerClosed(LedgerClosedEvent event) {
+        LedgerParameters snapshot = current.get();
+        if (snapshot != null && snapshot.ledgerIndex() <= event.ledgerIndex()) {
+            refreshAsync();
+        }
+    }
+
+    public void refreshAsync() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        refreshExecutor.execute(() -> {
+            try {
+                current.set(fetch());
+            } catch (Exception e) {
+                logger.warn("Failed to refresh ledger parameters, serving last snapshot: {}", e.getMessage());
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    // Only the very first caller pays for the lookup. A lock instead of synchronized so a
+    // virtual thread waiting here does not pin its carrier during the remote call.
+    private LedgerParameters loadInitial() {
+        initialLoadLock.lock();
+        try {
+            LedgerParameters snapshot = current.get();
+            if (snapshot == null) {
+                snapshot = fetch();
+                current.set(snapshot);
+            }
+            return snapshot;
+        } finally {
+            initialLoadLock.unlock();
+        }
+    }
+
+    private boolean isStale(LedgerParameters snapshot) {
+        return Instant.now().toEpochMilli() - snapshot.fetchedAt().toEpochMilli() > ttlMs;
+    }
+
+    private LedgerParameters fetch() {
+        FeeResult fees = xrplClientService.getFees();
+        refreshReservesIfStale();
+        return new LedgerParameters(
+                fees.drops().baseFee().toXrp(),
+                fees.drops().openLedgerFee().toXrp(),
+                reserveBase,
+                reserveIncrement,
+                fees.ledgerCurrentIndex().unsignedIntegerValue().longValue(),
+                Instant.now()
+        );
+    }
+
+    private void refreshReservesIfStale() {
+        if (reserveBase != null && System.currentTimeMillis() - reservesFetchedAt < reserveTtlMs) {
+            return;
+        }
+        try {
+            JsonNode validatedLedger = xrplService.getServerInfo().path("validated_ledger");
+            reserveBase = new BigDecimal(validatedLedger.path("reserve_base_xrp").asText());
+            reserveIncrement = new BigDecimal(validatedLedger.path("reserve_inc_xrp").asText());
+            reservesFetchedAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            // Reserves change rarely, keep the previous values
+            logger.warn("Failed to refresh reserve parameters: {}", e.getMessage());
+        }
+    }
+}
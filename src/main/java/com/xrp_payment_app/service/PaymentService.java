@@ -1,10 +1,11 @@
 package com.xrp_payment_app.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.primitives.UnsignedInteger;
+import com.xrp_payment_app.dto.FeeQuoteResponse;
+import com.xrp_payment_app.dto.LedgerParameters;
 import com.xrp_payment_app.dto.PaymentResponse;
 import com.xrp_payment_app.dto.PaymentSignResponse;
+import com.xrp_payment_app.dto.XamanPayloadCreated;
 import com.xrp_payment_app.entity.Transaction;
 import com.xrp_payment_app.entity.User;
 import com.xrp_payment_app.entity.XrpAccount;
@@ -12,7 +13,8 @@ import com.xrp_payment_app.exception.*;
 import com.xrp_payment_app.repository.TransactionRepository;
 import com.xrp_payment_app.repository.UserRepository;
 import com.xrp_payment_app.repository.XrpAccountRepository;
-import com.xrp_payment_app.utils.ExtractKeyPair;
+import com.xrp_payment_app.utils.FanOutExecutor;
+import com.xrp_payment_app.utils.FanOutScope;
 import com.xrp_payment_app.utils.GlobalExceptionHandler;
 import com.xrp_payment_app.utils.XamanPayloadBuilder;
 
@@ -34,8 +36,7 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
-
-import static com.xrp_payment_app.utils.SecureSigning.signWithSeed;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class PaymentService {
@@ -56,6 +57,21 @@ public class PaymentService {
     private final XamanClientService xamanClientService;
     @Autowired
     private XamanPayloadBuilder xamanPayloadBuilder;
+    @Autowired
+    private PlatformSequenceManager platformSequenceManager;
+    @Autowired
+    private LedgerParameterCache ledgerParameterCache;
+    @Autowired
+    private PlatformSigningService platformSigningService;
+    @Autowired
+    private FinalityTracker finalityTracker;
+    @Autowired
+    private FanOutExecutor fanOutExecutor;
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Value("${xrpl.finality.ledger-offset:20}")
+    private long lastLedgerOffset;
 
     public PaymentService(
             @Value("${platform.secret}") String platformSecret,
@@ -75,7 +91,34 @@ public class PaymentService {
         Objects.requireNonNull(PLATFORM_ADDRESS, "Platform address must not be null");
     }
 
+    public FeeQuoteResponse quote(BigDecimal amount, boolean batch) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new BadRequestException(
+                    "Amount is required",
+                    "Please provide a valid amount",
+                    "MISSING_MANDATORY_FIELD"
+            );
+        }
+
+        // Served from the ledger parameter cache, no XRPL round trip
+        LedgerParameters parameters = ledgerParameterCache.get();
+        BigDecimal networkFee = batch ? parameters.baseFee().multiply(BigDecimal.valueOf(2)) : parameters.baseFee();
+        BigDecimal totalCost = amount.add(PLATFORM_FEE).add(networkFee);
+
+        return new FeeQuoteResponse(
+                amount,
+                PLATFORM_FEE,
+                networkFee,
+                parameters.openLedgerFee(),
+                totalCost,
+                parameters.reserveBase(),
+                parameters.reserveIncrement(),
+                parameters.ledgerIndex()
+        );
+    }
+
     public PaymentResponse sendCustodialXrpWithFee(String userId, String toAddress, BigDecimal amountToSend) throws BadRequestException, NotFoundException, UnprocessedException, JsonRpcClientErrorException {
+        FanOutScope scope = fanOutExecutor.newScope("v1_initiation", "Custodial payment");
         try{
             if (userId == null || userId.isEmpty()) {
                 logger.error("Invalid User ID: {}", userId);
@@ -106,23 +149,35 @@ public class PaymentService {
 
             // Todo: Input validations
 
+            long parsedUserId;
+            try {
+                parsedUserId = Long.parseLong(userId);
+            } catch (NumberFormatException e) {
+                logger.error("Invalid User ID: {}", userId);
+                throw new BadRequestException(
+                        "Invalid User ID: " + userId,
+                        "Please provide a valid user ID",
+                        "INVALID_USER_ID"
+                );
+            }
+
             // Check user exists
-            User user = userRepository.findById(Long.parseLong(userId))
+            User user = scope.time("load_user", () -> userRepository.findById(parsedUserId)
                     .orElseThrow(() -> new NotFoundException(
                             "User not found",
                             "The specified user does not exist.",
                             "USER_NOT_FOUND"
-                    ));
+                    )));
 
             // Get XRP account
-            XrpAccount senderAccount = xrpAccountRepository.findByUserId(user.getId())
+            XrpAccount senderAccount = scope.time("load_account", () -> xrpAccountRepository.findByUserId(user.getId())
                     .orElseThrow(() -> new NotFoundException(
                             "XRP account not found",
                             "No XRP account linked to this user",
                             "ACCOUNT_NOT_FOUND"
-                    ));
+                    )));
 
-            BigDecimal xrpFeeAmount = xrplClientService.getFees().drops().baseFee().toXrp();
+            BigDecimal xrpFeeAmount = ledgerParameterCache.baseFee();
 
             logger.info("Calculating the total cost");
             // Calculate total cost
@@ -133,18 +188,10 @@ public class PaymentService {
 
             BigDecimal userTotalDebit = userPaymentAmount.add(platformFee).add(networkFee);
             BigDecimal platformTotalDebit = userPaymentAmount.add(networkFee);
-            // Load account info
-            logger.info("Loading the account info");
-            AccountRootObject account = xrplClientService.getAccountData(PLATFORM_ADDRESS);
-            UnsignedInteger sequence =  account.sequence();
-            // UnsignedInteger userPaymentSequence =  sequence;
-            // UnsignedInteger feePaymentSequence =  sequence.plus(UnsignedInteger.ONE);
-
-            logger.info("Platform account sequence: {}", sequence);
 
             // Validate transaction amount
             logger.info("Validating transaction amount");
-            BigDecimal platformWalletBalance = account.balance().toXrp();
+            BigDecimal platformWalletBalance = scope.time("platform_balance", () -> xrplClientService.getBalance(PLATFORM_ADDRESS));
             // BigDecimal xrpFeeAmount = xrplClientService.getFees().drops().baseFee().toXrp();
 
             // BigDecimal totalCost = amountToSend.add(PLATFORM_FEE).add(xrpFeeAmount);
@@ -160,7 +207,7 @@ public class PaymentService {
 
             // Load sender's account info
             logger.info("Loading the account info");
-            BigDecimal senderBalance = xrplClientService.getBalance(senderAccount.getXrpAddress());
+            BigDecimal senderBalance = scope.time("sender_balance", () -> xrplClientService.getBalance(senderAccount.getXrpAddress()));
 
             // Check user's balance
             if (senderBalance.compareTo(userTotalDebit) < 0) {
@@ -176,57 +223,84 @@ public class PaymentService {
             // XrpCurrencyAmount feePaymentAmountInDrops = XrpCurrencyAmount.ofXrp(PLATFORM_FEE);
             XrpCurrencyAmount feeInDrops = XrpCurrencyAmount.ofXrp(xrpFeeAmount);
 
-            // Extract the public key
-            PublicKey publicKey = null;
-            // PrivateKey privateKey = null;
-
-            ExtractKeyPair extractKeyPair = new ExtractKeyPair();
-            KeyPair keyPair = extractKeyPair.deriveKeyPairFromSecret(PLATFORM_SECRET);
-            publicKey = keyPair.publicKey();
-            // privateKey = keyPair.privateKey();
-
-            // Create Payment object
-            Payment payment = Payment.builder()
-                    .account(Address.of(PLATFORM_ADDRESS))
-                    .destination(Address.of(toAddress))
-                    .amount(amountInDrops)
-                    .fee(feeInDrops)
-                    .sequence(sequence)
-                    .signingPublicKey(publicKey)
-                    .build();
-
-            // Sign transaction
-            SingleSignedTransaction<Payment> signedPayment = signWithSeed(PLATFORM_SECRET, payment);
-            SubmitResult<Payment> result = xrplClientService.getXrplClient().submit(signedPayment);
-
-            String txHash = result.transactionResult().hash().value();
+            // Platform key pair is derived once at startup
+            PublicKey publicKey = platformSigningService.publicKey();
+
+            // Bound the time the transaction can stay pending so finality is decidable
+            UnsignedInteger lastLedgerSequence = UnsignedInteger.valueOf(ledgerParameterCache.get().ledgerIndex() + lastLedgerOffset);
+
+            // Reserve the platform account sequence locally, no account_info round trip
+            UnsignedInteger sequence = platformSequenceManager.acquire(lastLedgerSequence);
+            logger.info("Platform account sequence: {}", sequence);
+
+            SingleSignedTransaction<Payment> signedPayment;
+            try {
+                // Create Payment object
+                Payment payment = Payment.builder()
+                        .account(Address.of(PLATFORM_ADDRESS))
+                        .destination(Address.of(toAddress))
+                        .amount(amountInDrops)
+                        .fee(feeInDrops)
+                        .sequence(sequence)
+                        .lastLedgerSequence(lastLedgerSequence)
+                        .signingPublicKey(publicKey)
+                        .build();
+
+                // Sign transaction
+                signedPayment = platformSigningService.sign(payment);
+            } catch (Exception e) {
+                // Nothing left the process, the sequence can be handed out again
+                platformSequenceManager.release(sequence);
+                throw e;
+            }
+
+            // Known before submitting, so a submit that fails in transit can still be followed
+            String txHash = signedPayment.hash().value();
+
+            Transaction transaction = new Transaction();
+            transaction.setXrpAccountId(senderAccount.getId());
+            transaction.setDestinationAddress(toAddress);
+            transaction.setAmount(amountToSend);
+            transaction.setPlatformFee(PLATFORM_FEE);
+            transaction.setNetworkFee(networkFee);
+            transaction.setTransactionHash(txHash);
+            transaction.setLastLedgerSequence(lastLedgerSequence.longValue());
+
+            SubmitResult<Payment> result;
+            try {
+                result = xrplClientService.submit(signedPayment);
+            } catch (Exception e) {
+                // The blob may have reached rippled, keep the sequence in flight and let the
+                // finality tracker and the next resync settle it
+                logger.warn("Submit of {} failed with an unknown outcome: {}", txHash, e.getMessage());
+                transaction.setStatus("SUBMITTING");
+                transactionRepository.save(transaction);
+                finalityTracker.track(txHash, lastLedgerSequence);
+                return new PaymentResponse("PENDING", txHash, "Payment of " + amountToSend + " XRP submitted, awaiting ledger validation");
+            }
+            platformSequenceManager.onSubmitResult(sequence, result.engineResult());
+
             logger.debug("Transaction Status: {}", result.engineResult());
             if (result.engineResult().equals("tesSUCCESS")) {
                 logger.debug("XRP Payment sent successfully");
 
-                // Record transaction
-                Transaction transaction = new Transaction();
-                transaction.setXrpAccountId(senderAccount.getId());
-                transaction.setDestinationAddress(toAddress);
-                transaction.setAmount(amountToSend);
-                transaction.setPlatformFee(PLATFORM_FEE);
-                transaction.setNetworkFee(networkFee);
-                transaction.setTransactionHash(result.transactionResult().hash().value());
-                transaction.setStatus("COMPLETED");
+                // Tentative until the finality tracker sees it in a validated ledger
+                transaction.setStatus("CONFIRMED");
                 transactionRepository.save(transaction);
+                finalityTracker.track(txHash, lastLedgerSequence);
                 logger.debug("Transaction saved successfully into the DB and return response to client");
 
                 return new PaymentResponse("SUCCESS", txHash, "Payment of " + amountToSend + " XRP sent. Fee kept: " + PLATFORM_FEE + " XRP");
+            } else if (result.engineResult().startsWith("ter")) {
+                // Held or queued by rippled, it can still be applied before its LastLedgerSequence
+                transaction.setStatus("QUEUED");
+                transactionRepository.save(transaction);
+                finalityTracker.track(txHash, lastLedgerSequence);
+
+                return new PaymentResponse("PENDING", txHash, "Payment of " + amountToSend + " XRP queued, awaiting ledger validation");
             } else {
 
                 // Record transaction
-                Transaction transaction = new Transaction();
-                transaction.setXrpAccountId(senderAccount.getId());
-                transaction.setDestinationAddress(toAddress);
-                transaction.setAmount(amountToSend);
-                transaction.setPlatformFee(PLATFORM_FEE);
-                transaction.setNetworkFee(networkFee);
-                transaction.setTransactionHash(result.transactionResult().hash().value());
                 transaction.setStatus("FAILED");
                 transactionRepository.save(transaction);
                 logger.debug("Failed transaction saved successfully into the DB");
@@ -237,10 +311,12 @@ public class PaymentService {
                         "XRP_LEDGER_ERROR");
             }
         }
-        catch (BadRequestException | UnprocessedException | NotFoundException  | JsonRpcClientErrorException e) {
+        catch (XrpServiceException | JsonRpcClientErrorException e) {
+            scope.fail();
             throw e;
         }
         catch (Exception e) {
+            scope.fail();
             throw new XrpServiceException(
                     "Failed to initiate payment: "+ e.getMessage(),
                     null,
@@ -249,9 +325,26 @@ public class PaymentService {
                     HttpStatus.INTERNAL_SERVER_ERROR
             );
         }
+        finally {
+            logger.info(scope.finish());
+        }
     }
 
+    // Retries with the same RequestId get the original response back
     public PaymentSignResponse sendNonCustodialXrpBatchWithFee(String requestId, String userName, String senderAddress, String toAddress, BigDecimal amountToSend) throws BadRequestException, NotFoundException, UnprocessedException, JsonRpcClientErrorException {
+        return idempotencyService.execute(requestId,
+                IdempotencyService.requestHash("batch", userName, senderAddress, toAddress, amountToSend),
+                () -> initiateNonCustodialBatch(requestId, userName, senderAddress, toAddress, amountToSend));
+    }
+
+    public PaymentSignResponse sendNonCustodialXrpWithFee(String requestId, String userName, String senderAddress, String toAddress, BigDecimal amountToSend) throws BadRequestException, NotFoundException, UnprocessedException, JsonRpcClientErrorException {
+        return idempotencyService.execute(requestId,
+                IdempotencyService.requestHash("single", userName, senderAddress, toAddress, amountToSend),
+                () -> initiateNonCustodial(requestId, userName, senderAddress, toAddress, amountToSend));
+    }
+
+    private PaymentSignResponse initiateNonCustodialBatch(String requestId, String userName, String senderAddress, String toAddress, BigDecimal amountToSend) throws BadRequestException, NotFoundException, UnprocessedException, JsonRpcClientErrorException {
+        FanOutScope scope = fanOutExecutor.newScope("v2_batch_initiation", "Batch initiation " + requestId);
         try{
             if (senderAddress == null || senderAddress.isEmpty()) {
                 logger.error("Invalid User ID: {}", senderAddress);
@@ -280,61 +373,14 @@ public class PaymentService {
                 );
             }
 
-            // Check duplicate requestId
-            List<Transaction> txnList = transactionRepository.findByRequestId(requestId);
-            if (!txnList.isEmpty()) {
-                logger.error("Duplicate Request ID: {}", requestId);
-                throw new BadRequestException(
-                        "Duplicate Request ID",
-                        "A transaction with this Request ID already exists",
-                        "DUPLICATE_REQUEST_ID"
-                );
-            }  
-
-            XrpAccount xrpAccount = xrpAccountRepository.findByXrpAddress(senderAddress).orElse(null);
-            Long userId = null;
-            if (xrpAccount == null) { 
-       
-                User user = userRepository.findByuserName(userName).orElse(null);
-
-                if (user != null) {
-                    userId = user.getId();
-                    logger.info("User found with ID: {}", userId); 
-                    XrpAccount newAccount = new XrpAccount();
-                    newAccount.setUserId(userId);
-                    newAccount.setXrpAddress(senderAddress);
-                    XrpAccount savedAccount = xrpAccountRepository.save(newAccount);
-                    logger.info("Linked new XRP address to existing user: userId={}, accountId={}", userId, savedAccount.getId());
-                } else {
-                    logger.info("No user found with userName: {}", userName);
-                    User newUser = new User();
-                    newUser.setUserName("user-" + UUID.randomUUID().toString().substring(0, 8));
-                    User savedUser = userRepository.save(newUser);
-                    userId = savedUser.getId();
-
-                    XrpAccount newAccount = new XrpAccount();
-                    newAccount.setUserId(userId);
-                    newAccount.setXrpAddress(senderAddress);
-                    XrpAccount savedAccount = xrpAccountRepository.save(newAccount);
-
-                    logger.info("New user and XRP account created: userId={}, accountId={}", userId, savedAccount.getId());
-                }
-            } else {
-                logger.info("User found with ID: {}", xrpAccount.getUserId()); 
-                userId = xrpAccount.getUserId();
-            }
-        
-     
-            XrpAccount senderAccount = xrpAccountRepository.findByUserIdAndXrpAddress(userId, senderAddress)
-                .orElseThrow(() -> new NotFoundException(
-                        "XRP account not found",
-                        "No XRP account linked to this user",
-                        "ACCOUNT_NOT_FOUND"
-                ));          
+            // account_info does not depend on the database lookups, start it first
+            CompletableFuture<AccountRootObject> accountFuture = scope.submit("account_info", () -> xrplClientService.getAccountData(senderAddress));
+
+            XrpAccount senderAccount = scope.time("resolve_sender", () -> resolveSenderAccount(userName, senderAddress));
 
             // Load account info
             logger.info("Loading the account info");
-            AccountRootObject account = xrplClientService.getAccountData(senderAddress);
+            AccountRootObject account = scope.join(accountFuture);
             UnsignedInteger sequence =  account.sequence();
             UnsignedInteger userPaymentSequence =  sequence;
             UnsignedInteger feePaymentSequence =  sequence.plus(UnsignedInteger.ONE);
@@ -343,7 +389,7 @@ public class PaymentService {
 
             // Validate transaction amount
             logger.info("Validating transaction amount");
-            BigDecimal xrpFeeAmount = xrplClientService.getFees().drops().baseFee().toXrp();
+            BigDecimal xrpFeeAmount = ledgerParameterCache.baseFee();
             BigDecimal paymentTxFee = xrpFeeAmount;
             BigDecimal platformFeeTxFee = xrpFeeAmount;
 
@@ -352,9 +398,8 @@ public class PaymentService {
                                         .add(paymentTxFee)
                                         .add(platformFeeTxFee);
 
-            // Load sender's account info
-            logger.info("Loading the account info");
-            BigDecimal senderBalance = xrplClientService.getBalance(senderAddress);
+            // The balance comes with the account_info already loaded above
+            BigDecimal senderBalance = account.balance().toXrp();
 
             if (senderBalance.compareTo(totalCost) < 0) {
                 throw new UnprocessedException(
@@ -367,31 +412,38 @@ public class PaymentService {
             XrpCurrencyAmount paymentAmountInDrops = XrpCurrencyAmount.ofXrp(amountToSend);
             XrpCurrencyAmount feePaymentAmountInDrops = XrpCurrencyAmount.ofXrp(PLATFORM_FEE);
             XrpCurrencyAmount feeInDrops = XrpCurrencyAmount.ofXrp(xrpFeeAmount);
+            // Bound the time the signed transactions can stay pending so finality is decidable
+            long lastLedgerSequence = ledgerParameterCache.get().ledgerIndex() + lastLedgerOffset;
 
-            ObjectNode userPayload = xamanPayloadBuilder.buildPaymentPayload(
+            XamanPayloadBuilder.PaymentPayload userPayload = xamanPayloadBuilder.buildPaymentPayload(
                     toAddress,
                     paymentAmountInDrops.value().longValue(),
                     feeInDrops.value().longValue(),
                     userPaymentSequence.longValue(), 
+                    lastLedgerSequence,
                     false
             );
 
-             ObjectNode feePayload = xamanPayloadBuilder.buildPaymentPayload(
+             XamanPayloadBuilder.PaymentPayload feePayload = xamanPayloadBuilder.buildPaymentPayload(
                     PLATFORM_ADDRESS,
                     feePaymentAmountInDrops.value().longValue(),
                     feeInDrops.value().longValue(),
                     feePaymentSequence.longValue(), 
+                    lastLedgerSequence,
                     false
             );
 
-            JsonNode userResponse = xamanClientService.callXamanCreatePayload(userPayload);
-            JsonNode feeResponse = xamanClientService.callXamanCreatePayload(feePayload);
+            // Both payloads are independent once the sequence is known
+            CompletableFuture<XamanPayloadCreated> userFuture = scope.submit("xaman_create_user", () -> xamanClientService.callXamanCreatePayload(userPayload));
+            CompletableFuture<XamanPayloadCreated> feeFuture = scope.submit("xaman_create_fee", () -> xamanClientService.callXamanCreatePayload(feePayload));
+            XamanPayloadCreated userResponse = scope.join(userFuture);
+            XamanPayloadCreated feeResponse = scope.join(feeFuture);
 
-            String userPayloadUuid = userResponse.get("uuid").asText();
-            String userXamanRedirectUrl = userResponse.get("next").get("always").asText();
+            String userPayloadUuid = userResponse.uuid();
+            String userXamanRedirectUrl = userResponse.redirectUrl();
 
-            String feePayloadUuid = feeResponse.get("uuid").asText();
-            String feeXamanRedirectUrl = feeResponse.get("next").get("always").asText();
+            String feePayloadUuid = feeResponse.uuid();
+            String feeXamanRedirectUrl = feeResponse.redirectUrl();
 
             if (userXamanRedirectUrl == null || userXamanRedirectUrl.isEmpty() || userPayloadUuid == null || userPayloadUuid.isEmpty()) {
                 throw new UnprocessedException(
@@ -420,7 +472,7 @@ public class PaymentService {
             paymentTransaction.setPaymentReference(userPayloadUuid);
             paymentTransaction.setPaymentType("USER_PAYMENT");
             paymentTransaction.setRequestId(requestId);
-            transactionRepository.save(paymentTransaction);
+            paymentTransaction.setLastLedgerSequence(lastLedgerSequence);
 
             Transaction feeTransaction = new Transaction();
             feeTransaction.setXrpAccountId(senderAccount.getId());
@@ -432,17 +484,21 @@ public class PaymentService {
             feeTransaction.setPaymentReference(feePayloadUuid);
             feeTransaction.setPaymentType("PLATFORM_FEE");
             feeTransaction.setRequestId(requestId);
-            transactionRepository.save(feeTransaction);
+            feeTransaction.setLastLedgerSequence(lastLedgerSequence);
+            // One batched insert for the pair
+            transactionRepository.saveAll(List.of(paymentTransaction, feeTransaction));
 
             logger.info("Transaction saved as INITIATED in DB with payment request: {}", requestId);
 
             return new PaymentSignResponse(requestId, "PENDING", userPayloadUuid, userXamanRedirectUrl, feePayloadUuid, feeXamanRedirectUrl, "Payment is pending user approval via Xaman");
 
         }
-        catch (BadRequestException | UnprocessedException | NotFoundException  | JsonRpcClientErrorException e) {
+        catch (XrpServiceException e) {
+            scope.fail();
             throw e;
         }
         catch (Exception e) {
+            scope.fail();
             throw new XrpServiceException(
                     "Failed to initiate payment: "+ e.getMessage(),
                     null,
@@ -451,9 +507,13 @@ public class PaymentService {
                     HttpStatus.INTERNAL_SERVER_ERROR
             );
         }
+        finally {
+            logger.info(scope.finish());
+        }
     }
 
-    public PaymentSignResponse sendNonCustodialXrpWithFee(String requestId, String userName, String senderAddress, String toAddress, BigDecimal amountToSend) throws BadRequestException, NotFoundException, UnprocessedException, JsonRpcClientErrorException {
+    private PaymentSignResponse initiateNonCustodial(String requestId, String userName, String senderAddress, String toAddress, BigDecimal amountToSend) throws BadRequestException, NotFoundException, UnprocessedException, JsonRpcClientErrorException {
+        FanOutScope scope = fanOutExecutor.newScope("v2_initiation", "Initiation " + requestId);
         try{
             if (senderAddress == null || senderAddress.isEmpty()) {
                 logger.error("Invalid User ID: {}", senderAddress);
@@ -482,61 +542,14 @@ public class PaymentService {
                 );
             }
 
-            // Check duplicate requestId
-            List<Transaction> txnList = transactionRepository.findByRequestId(requestId);
-            if (!txnList.isEmpty()) {
-                logger.error("Duplicate Request ID: {}", requestId);
-                throw new BadRequestException(
-                        "Duplicate Request ID",
-                        "A transaction with this Request ID already exists",
-                        "DUPLICATE_REQUEST_ID"
-                );
-            }  
-
-            XrpAccount xrpAccount = xrpAccountRepository.findByXrpAddress(senderAddress).orElse(null);
-            Long userId = null;
-            if (xrpAccount == null) { 
-       
-                User user = userRepository.findByuserName(userName).orElse(null);
-
-                if (user != null) {
-                    userId = user.getId();
-                    logger.info("User found with ID: {}", userId); 
-                    XrpAccount newAccount = new XrpAccount();
-                    newAccount.setUserId(userId);
-                    newAccount.setXrpAddress(senderAddress);
-                    XrpAccount savedAccount = xrpAccountRepository.save(newAccount);
-                    logger.info("Linked new XRP address to existing user: userId={}, accountId={}", userId, savedAccount.getId());
-                } else {
-                    logger.info("No user found with userName: {}", userName);
-                    User newUser = new User();
-                    newUser.setUserName("user-" + UUID.randomUUID().toString().substring(0, 8));
-                    User savedUser = userRepository.save(newUser);
-                    userId = savedUser.getId();
-
-                    XrpAccount newAccount = new XrpAccount();
-                    newAccount.setUserId(userId);
-                    newAccount.setXrpAddress(senderAddress);
-                    XrpAccount savedAccount = xrpAccountRepository.save(newAccount);
-
-                    logger.info("New user and XRP account created: userId={}, accountId={}", userId, savedAccount.getId());
-                }
-            } else {
-                logger.info("User found with ID: {}", xrpAccount.getUserId()); 
-                userId = xrpAccount.getUserId();
-            }
-        
-     
-            XrpAccount senderAccount = xrpAccountRepository.findByUserIdAndXrpAddress(userId, senderAddress)
-                .orElseThrow(() -> new NotFoundException(
-                        "XRP account not found",
-                        "No XRP account linked to this user",
-                        "ACCOUNT_NOT_FOUND"
-                ));          
+            // account_info does not depend on the database lookups, start it first
+            CompletableFuture<AccountRootObject> accountFuture = scope.submit("account_info", () -> xrplClientService.getAccountData(senderAddress));
+
+            XrpAccount senderAccount = scope.time("resolve_sender", () -> resolveSenderAccount(userName, senderAddress));
 
             // Load account info
             logger.info("Loading the account info");
-            AccountRootObject account = xrplClientService.getAccountData(senderAddress);
+            AccountRootObject account = scope.join(accountFuture);
             UnsignedInteger sequence =  account.sequence();
             UnsignedInteger userPaymentSequence =  sequence;
 
@@ -544,7 +557,7 @@ public class PaymentService {
 
             // Validate transaction amount
             logger.info("Validating transaction amount");
-            BigDecimal xrpFeeAmount = xrplClientService.getFees().drops().baseFee().toXrp();
+            BigDecimal xrpFeeAmount = ledgerParameterCache.baseFee();
             BigDecimal paymentTxFee = xrpFeeAmount;
 
             BigDecimal totalCost = amountToSend
@@ -552,9 +565,8 @@ public class PaymentService {
                                         .add(paymentTxFee);
                                         // .add(platformFeeTxFee);
 
-            // Load sender's account info
-            logger.info("Loading the account info");
-            BigDecimal senderBalance = xrplClientService.getBalance(senderAddress);
+            // The balance comes with the account_info already loaded above
+            BigDecimal senderBalance = account.balance().toXrp();
 
             if (senderBalance.compareTo(totalCost) < 0) {
                 throw new UnprocessedException(
@@ -566,19 +578,22 @@ public class PaymentService {
             // Convert amounts to drops
             XrpCurrencyAmount paymentAmountInDrops = XrpCurrencyAmount.ofXrp(amountToSend);
             XrpCurrencyAmount feeInDrops = XrpCurrencyAmount.ofXrp(xrpFeeAmount);
+            // Bound the time the signed transaction can stay pending so finality is decidable
+            long lastLedgerSequence = ledgerParameterCache.get().ledgerIndex() + lastLedgerOffset;
 
-            ObjectNode userPayload = xamanPayloadBuilder.buildPaymentPayload(
+            XamanPayloadBuilder.PaymentPayload userPayload = xamanPayloadBuilder.buildPaymentPayload(
                     toAddress,
                     paymentAmountInDrops.value().longValue(),
                     feeInDrops.value().longValue(),
                     userPaymentSequence.longValue(), 
+                    lastLedgerSequence,
                     false
             );
 
-            JsonNode userResponse = xamanClientService.callXamanCreatePayload(userPayload);
+            XamanPayloadCreated userResponse = scope.time("xaman_create_user", () -> xamanClientService.callXamanCreatePayload(userPayload));
 
-            String userPayloadUuid = userResponse.get("uuid").asText();
-            String userXamanRedirectUrl = userResponse.get("next").get("always").asText();
+            String userPayloadUuid = userResponse.uuid();
+            String userXamanRedirectUrl = userResponse.redirectUrl();
 
             if (userXamanRedirectUrl == null || userXamanRedirectUrl.isEmpty() || userPayloadUuid == null || userPayloadUuid.isEmpty()) {
                 throw new UnprocessedException(
@@ -599,6 +614,7 @@ public class PaymentService {
             paymentTransaction.setPaymentReference(userPayloadUuid);
             paymentTransaction.setPaymentType("USER_PAYMENT");
             paymentTransaction.setRequestId(requestId);
+            paymentTransaction.setLastLedgerSequence(lastLedgerSequence);
             transactionRepository.save(paymentTransaction);
 
             logger.info("Transaction saved as INITIATED in DB with payment request: {}", requestId);
@@ -606,10 +622,12 @@ public class PaymentService {
             return new PaymentSignResponse(requestId, "PENDING", userPayloadUuid, userXamanRedirectUrl, null, null, "Payment is pending user approval via Xaman");
 
         }
-        catch (BadRequestException | UnprocessedException | NotFoundException  | JsonRpcClientErrorException e) {
+        catch (XrpServiceException e) {
+            scope.fail();
             throw e;
         }
         catch (Exception e) {
+            scope.fail();
             throw new XrpServiceException(
                     "Failed to initiate payment: "+ e.getMessage(),
                     null,
@@ -618,6 +636,23 @@ public class PaymentService {
                     HttpStatus.INTERNAL_SERVER_ERROR
             );
         }
+        finally {
+            logger.info(scope.finish());
+        }
     }
-}
 
+    private XrpAccount resolveSenderAccount(String userName, String senderAddress) {
+        // Lookup, user creation and linking happen in one database round trip
+        String generatedUserName = "user-" + UUID.randomUUID().toString().substring(0, 8);
+        XrpAccount senderAccount = xrpAccountRepository.resolveSenderAccount(senderAddress, userName, generatedUserName);
+        if (senderAccount == null) {
+            throw new NotFoundException(
+                    "XRP account not found",
+                    "No XRP account linked to this user",
+                    "ACCOUNT_NOT_FOUND"
+            );
+        }
+        logger.info("Resolved sender account: userId={}, accountId={}", senderAccount.getUserId(), senderAccount.getId());
+        return senderAccount;
+    }
+}
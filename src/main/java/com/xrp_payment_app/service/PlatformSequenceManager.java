@@ -0,0 +1,280 @@
+package com.xrp_payment_app.service;
+
+import com.google.common.primitives.UnsignedInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.xrpl.xrpl4j.crypto.signing.SingleSignedTransaction;
+import org.xrpl.xrpl4j.model.client.transactions.SubmitResult;
+import org.xrpl.xrpl4j.model.transactions.AccountSet;
+import org.xrpl.xrpl4j.model.transactions.Address;
+import org.xrpl.xrpl4j.model.transactions.XrpCurrencyAmount;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Hands out Sequence numbers for the platform account from local state so custodial
+// payments can be signed and submitted concurrently. account_info is only read on
+// startup and after a sequence error (tefPAST_SEQ / terPRE_SEQ). A sequence is only
+// given back on a definitive rejection; one whose submit outcome is unknown stays in
+// flight until the ledger consumes it or its LastLedgerSequence passes.
+@Service
+public class PlatformSequenceManager {
+    private static final Logger logger = LoggerFactory.getLogger(PlatformSequenceManager.class);
+
+    private record Reservation(long acquiredAt, long lastLedgerSequence) {}
+
+    private final XrplClientService xrplClientService;
+    private final LedgerParameterCache ledgerParameterCache;
+    private final PlatformSigningService platformSigningService;
+    private final XrplStreamService xrplStreamService;
+    private final String platformAddress;
+    private final long staleAfterMs;
+    private final long lastLedgerOffset;
+    private final long streamStaleAfterMs;
+
+    // State below is guarded by "this"
+    private long nextSequence = -1;
+    // Sequences handed out but not yet applied to the open ledger (signing, submitting, queued,
+    // held or with an unknown submit outcome)
+    private final TreeMap<Long, Reservation> inFlight = new TreeMap<>();
+    // Sequences below nextSequence that were never consumed and must be reused or filled
+    private final TreeSet<Long> gaps = new TreeSet<>();
+    private boolean resyncRequested = false;
+
+    public PlatformSequenceManager(
+            XrplClientService xrplClientService,
+            LedgerParameterCache ledgerParameterCache,
+            PlatformSigningService platformSigningService,
+            XrplStreamService xrplStreamService,
+            @Value("${platform.address}") String platformAddress,
+            @Value("${platform.sequence.stale-after-ms:10000}") long staleAfterMs,
+            @Value("${xrpl.finality.ledger-offset:20}") long lastLedgerOffset,
+            @Value("${xrpl.finality.stream-stale-after-ms:30000}") long streamStaleAfterMs
+    ) {
+        this.xrplClientService = xrplClientService;
+        this.ledgerParameterCache = ledgerParameterCache;
+        this.platformSigningService = platformSigningService;
+        this.xrplStreamService = xrplStreamService;
+        this.platformAddress = platformAddress;
+        this.staleAfterMs = staleAfterMs;
+        this.lastLedgerOffset = lastLedgerOffset;
+        this.streamStaleAfterMs = streamStaleAfterMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void syncOnStartup() {
+        try {
+            resync();
+        } catch (Exception e) {
+            logger.warn("Could not sync platform sequence on startup, will retry on first payment: {}", e.getMessage());
+        }
+    }
+
+    public UnsignedInteger acquire(UnsignedInteger lastLedgerSequence) {
+        return acquire(1, lastLedgerSequence).get(0);
+    }
+
+    // Reserves a block of sequences under one lock, consecutive apart from reused gaps. The
+    // transactions must carry lastLedgerSequence, past it an unconsumed sequence is reusable.
+    public List<UnsignedInteger> acquire(int count, UnsignedInteger lastLedgerSequence) {
+        if (!isSynced()) {
+            resync();
+        }
+        synchronized (this) {
+            List<UnsignedInteger> sequences = new ArrayList<>(count);
+            long now = System.currentTimeMillis();
+            while (sequences.size() < count) {
+                // Reuse the lowest unconsumed sequence first so gaps get filled by real payments
+                Long gap = gaps.pollFirst();
+                long sequence = gap != null ? gap : nextSequence++;
+                inFlight.put(sequence, new Reservation(now, lastLedgerSequence.longValue()));
+                sequences.add(UnsignedInteger.valueOf(sequence));
+            }
+            return sequences;
+        }
+    }
+
+    // The sequence was never submitted or was definitively rejected without being consumed
+    public synchronized void release(UnsignedInteger sequence) {
+        long value = sequence.longValue();
+        if (inFlight.remove(value) == null) {
+            return;
+        }
+        gaps.add(value);
+        compact();
+    }
+
+    public void onSubmitResult(UnsignedInteger sequence, String engineResult) {
+        if (engineResult.startsWith("tes") || engineResult.startsWith("tec")) {
+            // Applied to the open ledger, the sequence is consumed
+            synchronized (this) {
+                inFlight.remove(sequence.longValue());
+            }
+            return;
+        }
+        if ("tefPAST_SEQ".equals(engineResult)) {
+            logger.warn("Platform sequence {} was already used, resyncing", sequence);
+            synchronized (this) {
+                inFlight.remove(sequence.longValue());
+                resyncRequested = true;
+            }
+            try {
+                resync();
+            } catch (Exception e) {
+                logger.warn("Platform sequence resync failed, will retry: {}", e.getMessage());
+            }
+            return;
+        }
+        if (isDefinitiveRejection(engineResult)) {
+            release(sequence);
+            return;
+        }
+        if ("terPRE_SEQ".equals(engineResult)) {
+            // Held by rippled until the missing sequence ahead of it is filled
+            logger.warn("Platform sequence {} is ahead of the ledger, scheduling resync", sequence);
+            synchronized (this) {
+                resyncRequested = true;
+            }
+        }
+        // terQUEUED, other ter codes, tefALREADY or an unrecognised result: the transaction
+        // may still be applied, resync() settles it once its LastLedgerSequence has passed
+    }
+
+    // Malformed (tem), failed locally (tel) or rejected for good (tef): the sequence was not used
+    public static boolean isDefinitiveRejection(String engineResult) {
+        if (engineResult.startsWith("tem") || engineResult.startsWith("tel")) {
+            return true;
+        }
+        return engineResult.startsWith("tef") && !"tefPAST_SEQ".equals(engineResult) && !"tefALREADY".equals(engineResult);
+    }
+
+    public void resync() {
+        // Read first: whatever was not applied by this ledger never will be past its LastLedgerSequence
+        long validatedLedger = validatedLedgerIndex();
+        long ledgerSequence = xrplClientService.getAccountDataUncached(platformAddress).sequence().longValue();
+        synchronized (this) {
+            inFlight.headMap(ledgerSequence).clear();
+            gaps.headSet(ledgerSequence).clear();
+            if (nextSequence < ledgerSequence) {
+                nextSequence = ledgerSequence;
+            }
+            // Past its LastLedgerSequence and not consumed by the ledger above, it never will be
+            inFlight.values().removeIf(reservation -> validatedLedger > reservation.lastLedgerSequence());
+            // Anything between the ledger and our cursor that is not still in flight was dropped
+            for (long sequence = ledgerSequence; sequence < nextSequence; sequence++) {
+                if (!inFlight.containsKey(sequence)) {
+                    gaps.add(sequence);
+                }
+            }
+            compact();
+            resyncRequested = false;
+            logger.info("Platform sequence synced: ledger={}, next={}, inFlight={}, gaps={}", ledgerSequence, nextSequence, inFlight.size(), gaps.size());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${platform.sequence.gap-check-interval-ms:5000}")
+    public void detectAndFillGaps() {
+        boolean resync;
+        synchronized (this) {
+            if (nextSequence < 0) {
+                return;
+            }
+            boolean stale = !inFlight.isEmpty()
+                    && System.currentTimeMillis() - inFlight.firstEntry().getValue().acquiredAt() > staleAfterMs;
+            resync = resyncRequested || stale;
+        }
+        if (!resync) {
+            return;
+        }
+
+        try {
+            resync();
+        } catch (Exception e) {
+            logger.warn("Platform sequence resync failed, will retry: {}", e.getMessage());
+            return;
+        }
+
+        // Only gaps below a held transaction block the account; the rest are reused by acquire()
+        UnsignedInteger lastLedgerSequence;
+        try {
+            lastLedgerSequence = UnsignedInteger.valueOf(ledgerParameterCache.get().ledgerIndex() + lastLedgerOffset);
+        } catch (Exception e) {
+            logger.warn("No ledger index to bound gap fills, will retry: {}", e.getMessage());
+            return;
+        }
+        List<Long> blocking = new ArrayList<>();
+        synchronized (this) {
+            if (inFlight.isEmpty()) {
+                return;
+            }
+            long highestInFlight = inFlight.lastKey();
+            for (Long gap : gaps.headSet(highestInFlight)) {
+                blocking.add(gap);
+                inFlight.put(gap, new Reservation(System.currentTimeMillis(), lastLedgerSequence.longValue()));
+            }
+            gaps.removeAll(blocking);
+        }
+
+        for (Long sequence : blocking) {
+            fillGap(UnsignedInteger.valueOf(sequence), lastLedgerSequence);
+        }
+    }
+
+    private void fillGap(UnsignedInteger sequence, UnsignedInteger lastLedgerSequence) {
+        SingleSignedTransaction<AccountSet> signed;
+        try {
+            logger.info("Filling platform sequence gap {} with a no-op AccountSet", sequence);
+            AccountSet accountSet = AccountSet.builder()
+                    .account(Address.of(platformAddress))
+                    .fee(XrpCurrencyAmount.ofXrp(ledgerParameterCache.baseFee()))
+                    .sequence(sequence)
+                    .lastLedgerSequence(lastLedgerSequence)
+                    .signingPublicKey(platformSigningService.publicKey())
+                    .build();
+            signed = platformSigningService.sign(accountSet);
+        } catch (Exception e) {
+            logger.warn("Failed to build gap fill for platform sequence {}: {}", sequence, e.getMessage());
+            release(sequence);
+            return;
+        }
+        try {
+            SubmitResult<AccountSet> result = xrplClientService.submit(signed);
+            onSubmitResult(sequence, result.engineResult());
+        } catch (Exception e) {
+            // May have been applied, the next resync decides once the LastLedgerSequence passes
+            logger.warn("Gap fill for platform sequence {} has an unknown outcome: {}", sequence, e.getMessage());
+        }
+    }
+
+    // Same source as the finality tracker: the ledger stream, else one behind the open ledger
+    private long validatedLedgerIndex() {
+        long streamLedger = xrplStreamService.lastLedgerIndex();
+        if (xrplStreamService.isHealthy(streamStaleAfterMs)) {
+            return streamLedger;
+        }
+        try {
+            return Math.max(streamLedger, ledgerParameterCache.get().ledgerIndex() - 1);
+        } catch (Exception e) {
+            return streamLedger;
+        }
+    }
+
+    private synchronized boolean isSynced() {
+        return nextSequence >= 0;
+    }
+
+    private void compact() {
+        while (!gaps.isEmpty() && gaps.last() == nextSequence - 1) {
+            gaps.pollLast();
+            nextSequence--;
+        }
+    }
+}
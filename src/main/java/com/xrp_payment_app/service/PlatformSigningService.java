@@ -0,0 +1,94 @@
+package com.xrp_payment_app.service;
+
+import com.xrp_payment_app.utils.ExtractKeyPair;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.xrpl.xrpl4j.crypto.keys.KeyPair;
+import org.xrpl.xrpl4j.crypto.keys.PrivateKey;
+import org.xrpl.xrpl4j.crypto.keys.PublicKey;
+import org.xrpl.xrpl4j.crypto.signing.SignatureService;
+import org.xrpl.xrpl4j.crypto.signing.SingleSignedTransaction;
+import org.xrpl.xrpl4j.crypto.signing.bc.BcSignatureService;
+import org.xrpl.xrpl4j.model.transactions.Transaction;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+// Signs platform transactions with a key pair derived once at startup. BcSignatureService
+// keeps one stateful signer per key type and its sign methods are synchronized, so an
+// instance signs one transaction at a time. A pool sized to the signing parallelism lets
+// that many signatures run at once, whichever threads (virtual or platform) ask for them.
+@Service
+public class PlatformSigningService {
+    private static final Logger logger = LoggerFactory.getLogger(PlatformSigningService.class);
+
+    private final KeyPair keyPair;
+    private final BlockingQueue<SignatureService<PrivateKey>> signatureServices;
+    private final ForkJoinPool signingPool;
+
+    public PlatformSigningService(
+            @Value("${platform.secret}") String platformSecret,
+            @Value("${platform.signing.parallelism:0}") int parallelism
+    ) {
+        Objects.requireNonNull(platformSecret, "Platform secret must not be null");
+        this.keyPair = new ExtractKeyPair().deriveKeyPairFromSecret(platformSecret);
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.signingPool = new ForkJoinPool(threads);
+        this.signatureServices = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; i++) {
+            signatureServices.add(new BcSignatureService());
+        }
+        logger.info("Platform signing key derived, batch signing parallelism: {}", threads);
+    }
+
+    public PublicKey publicKey() {
+        return keyPair.publicKey();
+    }
+
+    public <T extends Transaction> SingleSignedTransaction<T> sign(T transaction) {
+        SignatureService<PrivateKey> signatureService;
+        try {
+            signatureService = signatureServices.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting to sign a transaction", e);
+        }
+        try {
+            return signatureService.sign(keyPair.privateKey(), transaction);
+        } finally {
+            signatureServices.add(signatureService);
+        }
+    }
+
+    // Signs on all cores, results keep the order of the input list
+    public <T extends Transaction> List<SingleSignedTransaction<T>> sign(List<T> transactions) {
+        if (transactions.size() < 2) {
+            return transactions.stream().map(this::sign).collect(Collectors.toList());
+        }
+        try {
+            return signingPool.submit(() -> transactions.parallelStream()
+                    .map(this::sign)
+                    .collect(Collectors.toList())
+            ).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while signing transactions", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to sign transactions", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        signingPool.shutdown();
+    }
+}
@@ -0,0 +1,236 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.xrp_payment_app.dto.LedgerParameters;
+import com.xrp_payment_app.dto.PaymentSignResponse;
+import com.xrp_payment_app.dto.XamanPayloadCreated;
+import com.xrp_payment_app.entity.Transaction;
+import com.xrp_payment_app.entity.XrpAccount;
+import com.xrp_payment_app.exception.BadRequestException;
+import com.xrp_payment_app.exception.NotFoundException;
+import com.xrp_payment_app.exception.UnprocessedException;
+import com.xrp_payment_app.exception.XrpServiceException;
+import com.xrp_payment_app.repository.reactive.ReactiveTransactionRepository;
+import com.xrp_payment_app.repository.reactive.ReactiveXrpAccountRepository;
+import com.xrp_payment_app.utils.PaymentMetrics;
+import com.xrp_payment_app.utils.XamanPayloadBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.xrpl.xrpl4j.model.transactions.XrpCurrencyAmount;
+
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+// Non-blocking implementation of the v2 initiation and callback flows. Every XRPL, Xaman
+// and database call is composed as a Mono, so no request thread waits on I/O.
+@Service
+public class ReactivePaymentService {
+    private static final Logger logger = LoggerFactory.getLogger(ReactivePaymentService.class);
+    private final BigDecimal PLATFORM_FEE = new BigDecimal("0.2"); // Platform's XRP charge  keep
+    private final String PLATFORM_ADDRESS;
+
+    private final ReactiveTransactionRepository transactionRepository;
+    private final ReactiveXrpAccountRepository xrpAccountRepository;
+    private final XrplService xrplService;
+    private final XamanClientService xamanClientService;
+    private final XamanPayloadBuilder xamanPayloadBuilder;
+    private final LedgerParameterCache ledgerParameterCache;
+    private final IdempotencyService idempotencyService;
+    private final PaymentMetrics paymentMetrics;
+    private final long lastLedgerOffset;
+
+    public ReactivePaymentService(
+            @Value("${platform.address}") String platformAddress,
+            ReactiveTransactionRepository transactionRepository,
+            ReactiveXrpAccountRepository xrpAccountRepository,
+            XrplService xrplService,
+            XamanClientService xamanClientService,
+            XamanPayloadBuilder xamanPayloadBuilder,
+            LedgerParameterCache ledgerParameterCache,
+            IdempotencyService idempotencyService,
+            PaymentMetrics paymentMetrics,
+            @Value("${xrpl.finality.ledger-offset:20}") long lastLedgerOffset
+    ) {
+        this.PLATFORM_ADDRESS = platformAddress;
+        this.transactionRepository = transactionRepository;
+        this.xrpAccountRepository = xrpAccountRepository;
+        this.xrplService = xrplService;
+        this.xamanClientService = xamanClientService;
+        this.xamanPayloadBuilder = xamanPayloadBuilder;
+        this.ledgerParameterCache = ledgerParameterCache;
+        this.idempotencyService = idempotencyService;
+        this.paymentMetrics = paymentMetrics;
+        this.lastLedgerOffset = lastLedgerOffset;
+    }
+
+    public Mono<PaymentSignResponse> sendNonCustodialXrpWithFee(String requestId, String userName, String senderAddress, String toAddress, BigDecimal amountToSend) {
+        return idempotencyService.executeAsync(requestId,
+                IdempotencyService.requestHash("single", userName, senderAddress, toAddress, amountToSend),
+                () -> initiate(requestId, userName, senderAddress, toAddress, amountToSend, false));
+    }
+
+    public Mono<PaymentSignResponse> sendNonCustodialXrpBatchWithFee(String requestId, String userName, String senderAddress, String toAddress, BigDecimal amountToSend) {
+        return idempotencyService.executeAsync(requestId,
+                IdempotencyService.requestHash("batch", userName, senderAddress, toAddress, amountToSend),
+                () -> initiate(requestId, userName, senderAddress, toAddress, amountToSend, true));
+    }
+
+    private Mono<PaymentSignResponse> initiate(String requestId, String userName, String senderAddress, String toAddress, BigDecimal amountToSend, boolean batch) {
+        // Same flow and stage names as the blocking PaymentService
+        String flow = batch ? "v2_batch_initiation" : "v2_initiation";
+        return paymentMetrics.timeFlow(flow, validate(senderAddress, toAddress, amountToSend)
+                .then(Mono.defer(() -> paymentMetrics.timeStage(flow, "resolve_sender", resolveSenderAccount(userName, senderAddress))))
+                .flatMap(senderAccount -> paymentMetrics.timeStage(flow, "account_info",
+                                Mono.zip(xrplService.getAccountInfoAsync(senderAddress), ledgerParameterCache.getAsync()))
+                        .flatMap(accountAndFees -> {
+                            JsonNode accountData = accountAndFees.getT1();
+                            LedgerParameters parameters = accountAndFees.getT2();
+
+                            long sequence = accountData.path("Sequence").asLong();
+                            BigDecimal senderBalance = XrpCurrencyAmount.ofDrops(accountData.path("Balance").asLong()).toXrp();
+                            BigDecimal xrpFeeAmount = parameters.baseFee();
+
+                            BigDecimal totalCost = amountToSend.add(PLATFORM_FEE).add(xrpFeeAmount);
+                            if (batch) {
+                                totalCost = totalCost.add(xrpFeeAmount);
+                            }
+                            if (senderBalance.compareTo(totalCost) < 0) {
+                                return Mono.error(new UnprocessedException(
+                                        "Insufficient balance",
+                                        "User do not have enough XRP to complete this payment",
+                                        "INSUFFICIENT_BALANCE"
+                                ));
+                            }
+
+                            long feeInDrops = XrpCurrencyAmount.ofXrp(xrpFeeAmount).value().longValue();
+                            // Bound the time the signed transactions can stay pending so finality is decidable
+                            long lastLedgerSequence = parameters.ledgerIndex() + lastLedgerOffset;
+                            XamanPayloadBuilder.PaymentPayload userPayload = xamanPayloadBuilder.buildPaymentPayload(
+                                    toAddress,
+                                    XrpCurrencyAmount.ofXrp(amountToSend).value().longValue(),
+                                    feeInDrops,
+                                    sequence,
+                                    lastLedgerSequence,
+                                    false
+                            );
+                            Mono<XamanPayloadCreated> userResponse = paymentMetrics.timeStage(flow, "xaman_create_user", xamanClientService.createPayloadAsync(userPayload))
+                                    .map(this::requireValidPayload);
+
+                            if (!batch) {
+                                return userResponse.flatMap(user -> paymentMetrics.timeStage(flow, "save", transactionRepository
+                                                .save(initiatedTransaction(senderAccount, toAddress, amountToSend, PLATFORM_FEE, xrpFeeAmount, user, "USER_PAYMENT", requestId, lastLedgerSequence)))
+                                        .thenReturn(new PaymentSignResponse(requestId, "PENDING", user.uuid(), user.redirectUrl(), null, null, "Payment is pending user approval via Xaman")));
+                            }
+
+                            XamanPayloadBuilder.PaymentPayload feePayload = xamanPayloadBuilder.buildPaymentPayload(
+                                    PLATFORM_ADDRESS,
+                                    XrpCurrencyAmount.ofXrp(PLATFORM_FEE).value().longValue(),
+                                    feeInDrops,
+                                    sequence + 1,
+                                    lastLedgerSequence,
+                                    false
+                            );
+                            Mono<XamanPayloadCreated> feeResponse = paymentMetrics.timeStage(flow, "xaman_create_fee", xamanClientService.createPayloadAsync(feePayload))
+                                    .map(this::requireValidPayload);
+
+                            return Mono.zip(userResponse, feeResponse)
+                                    .flatMap(responses -> paymentMetrics.timeStage(flow, "save", transactionRepository
+                                                    .saveAll(List.of(
+                                                            initiatedTransaction(senderAccount, toAddress, amountToSend, PLATFORM_FEE, xrpFeeAmount, responses.getT1(), "USER_PAYMENT", requestId, lastLedgerSequence),
+                                                            initiatedTransaction(senderAccount, PLATFORM_ADDRESS, PLATFORM_FEE, new BigDecimal("0.0"), xrpFeeAmount, responses.getT2(), "PLATFORM_FEE", requestId, lastLedgerSequence)))
+                                                    .then())
+                                            .then(Mono.just(new PaymentSignResponse(
+                                                    requestId,
+                                                    "PENDING",
+                                                    responses.getT1().uuid(),
+                                                    responses.getT1().redirectUrl(),
+                                                    responses.getT2().uuid(),
+                                                    responses.getT2().redirectUrl(),
+                                                    "Payment is pending user approval via Xaman"))));
+                        }))
+                .doOnSuccess(response -> logger.info("Transaction saved as INITIATED in DB with payment request: {}", requestId))
+                .onErrorMap(e -> !(e instanceof XrpServiceException), e -> new XrpServiceException(
+                        "Failed to initiate payment: " + e.getMessage(),
+                        null,
+                        "We couldn’t process your payment request at this time. Please try again later",
+                        "SYSTEM_ERROR",
+                        HttpStatus.INTERNAL_SERVER_ERROR
+                )));
+    }
+
+    private Mono<Void> validate(String senderAddress, String toAddress, BigDecimal amountToSend) {
+        if (senderAddress == null || senderAddress.isEmpty()) {
+            logger.error("Invalid User ID: {}", senderAddress);
+            return Mono.error(new BadRequestException(
+                    "User ID is required",
+                    "Please provide a valid user ID",
+                    "MISSING_MANDATORY_FIELD"
+            ));
+        }
+        if (amountToSend == null || amountToSend.toString().isEmpty()) {
+            logger.error("Invalid Amount: {}", amountToSend);
+            return Mono.error(new BadRequestException(
+                    "Amount is required",
+                    "Please provide a valid amount",
+                    "MISSING_MANDATORY_FIELD"
+            ));
+        }
+        if (toAddress == null || toAddress.isEmpty()) {
+            logger.error("Invalid destination address: {}", toAddress);
+            return Mono.error(new BadRequestException(
+                    "Destination address is required",
+                    "Please provide a valid destination address",
+                    "MISSING_MANDATORY_FIELD"
+            ));
+        }
+        return Mono.empty();
+    }
+
+    private Mono<XrpAccount> resolveSenderAccount(String userName, String senderAddress) {
+        String generatedUserName = "user-" + UUID.randomUUID().toString().substring(0, 8);
+        // The function yields a row of nulls rather than no row when nothing could be resolved
+        return xrpAccountRepository.resolveSenderAccount(senderAddress, userName, generatedUserName)
+                .filter(account -> account.getId() != null)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException(
+                        "XRP account not found",
+                        "No XRP account linked to this user",
+                        "ACCOUNT_NOT_FOUND"
+                )))
+                .doOnNext(account -> logger.info("Resolved sender account: userId={}, accountId={}", account.getUserId(), account.getId()));
+    }
+
+    private XamanPayloadCreated requireValidPayload(XamanPayloadCreated response) {
+        if (response.uuid().isEmpty() || response.redirectUrl().isEmpty()) {
+            throw new UnprocessedException(
+                    "Failed to create Xaman payload",
+                    "Could not get a valid response from Xaman",
+                    "XAMAN_PAYLOAD_ERROR"
+            );
+        }
+        return response;
+    }
+
+    private Transaction initiatedTransaction(XrpAccount senderAccount, String destinationAddress, BigDecimal amount, BigDecimal platformFee,
+                                             BigDecimal networkFee, XamanPayloadCreated xamanResponse, String paymentType, String requestId,
+                                             long lastLedgerSequence) {
+        Transaction transaction = new Transaction();
+        transaction.setXrpAccountId(senderAccount.getId());
+        transaction.setDestinationAddress(destinationAddress);
+        transaction.setAmount(amount);
+        transaction.setPlatformFee(platformFee);
+        transaction.setNetworkFee(networkFee);
+        transaction.setStatus("INITIATED");
+        transaction.setPaymentReference(xamanResponse.uuid());
+        transaction.setPaymentType(paymentType);
+        transaction.setRequestId(requestId);
+        transaction.setLastLedgerSequence(lastLedgerSequence);
+        return transaction;
+    }
+}
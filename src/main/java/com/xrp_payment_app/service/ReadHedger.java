@@ -0,0 +1,144 @@
+package com.xrp_payment_app.service;
+
+import com.xrp_payment_app.utils.LatencyWindow;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Decides when an idempotent XRPL read gets a duplicate request to a second node: after the
+// configured latency percentile of that method has passed without an answer, and only while
+// the hedge budget allows it. Never used for submit.
+@Component
+public class ReadHedger {
+    private static final Logger logger = LoggerFactory.getLogger(ReadHedger.class);
+
+    // Reads only; sending a duplicate submit is never worth the risk
+    private static final Set<String> HEDGEABLE_METHODS = Set.of("account_info", "fee", "server_info", "tx");
+
+    // The percentile is recomputed every tenth of a window of samples, not on every read
+    private static final int RECOMPUTES_PER_WINDOW = 10;
+
+    public record HedgeStats(long requests, long hedged, long hedgeWins, long budgetRejected, long latencySavedMs) {
+        public double hedgeRate() {
+            return requests == 0 ? 0 : (double) hedged / requests;
+        }
+    }
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayMs;
+    private final long initialDelayMs;
+    private final int minSamples;
+    private final int windowSize;
+    private final double budgetRatio;
+    private final double maxTokens;
+
+    private final ConcurrentHashMap<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    // Token bucket: every read earns budgetRatio of a hedge, every hedge spends one
+    private double tokens;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong budgetRejected = new AtomicLong();
+    private final AtomicLong latencySavedMs = new AtomicLong();
+
+    public ReadHedger(
+            PaymentMetrics paymentMetrics,
+            @Value("${xrpl.hedging.enabled:false}") boolean enabled,
+            @Value("${xrpl.hedging.percentile:95}") double percentile,
+            @Value("${xrpl.hedging.min-delay-ms:20}") long minDelayMs,
+            @Value("${xrpl.hedging.initial-delay-ms:500}") long initialDelayMs,
+            @Value("${xrpl.hedging.min-samples:50}") int minSamples,
+            @Value("${xrpl.hedging.window-size:1000}") int windowSize,
+            @Value("${xrpl.hedging.budget-ratio:0.05}") double budgetRatio,
+            @Value("${xrpl.hedging.max-burst:10}") double maxTokens
+    ) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayMs = minDelayMs;
+        this.initialDelayMs = initialDelayMs;
+        this.minSamples = minSamples;
+        this.windowSize = windowSize;
+        this.budgetRatio = budgetRatio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+
+        paymentMetrics.registerCounter(PaymentMetrics.HEDGE_REQUESTS, requests, AtomicLong::get);
+        paymentMetrics.registerCounter(PaymentMetrics.HEDGE_SENT, hedged, AtomicLong::get);
+        paymentMetrics.registerCounter(PaymentMetrics.HEDGE_WINS, hedgeWins, AtomicLong::get);
+        paymentMetrics.registerCounter(PaymentMetrics.HEDGE_BUDGET_REJECTED, budgetRejected, AtomicLong::get);
+        paymentMetrics.registerCounter(PaymentMetrics.HEDGE_LATENCY_SAVED, latencySavedMs, AtomicLong::get);
+    }
+
+    public boolean isHedgeable(String method) {
+        return enabled && HEDGEABLE_METHODS.contains(method);
+    }
+
+    // How long to wait for the first node before hedging
+    public long delayMs(String method) {
+        LatencyWindow window = window(method);
+        if (window.size() < minSamples) {
+            return initialDelayMs;
+        }
+        return Math.max(minDelayMs, window.percentile());
+    }
+
+    public void recordLatency(String method, long latencyMs) {
+        window(method).record(latencyMs);
+    }
+
+    public synchronized void onRequest() {
+        requests.incrementAndGet();
+        tokens = Math.min(maxTokens, tokens + budgetRatio);
+    }
+
+    public synchronized boolean tryAcquireHedge() {
+        if (tokens < 1) {
+            budgetRejected.incrementAndGet();
+            return false;
+        }
+        tokens -= 1;
+        hedged.incrementAndGet();
+        return true;
+    }
+
+    public void onHedgeWin() {
+        hedgeWins.incrementAndGet();
+    }
+
+    // Only known when the losing call still completed after the hedge answered
+    public void onLatencySaved(long savedMs) {
+        if (savedMs > 0) {
+            latencySavedMs.addAndGet(savedMs);
+        }
+    }
+
+    public HedgeStats stats() {
+        return new HedgeStats(requests.get(), hedged.get(), hedgeWins.get(), budgetRejected.get(), latencySavedMs.get());
+    }
+
+    @Scheduled(fixedDelayString = "${xrpl.hedging.stats-interval-ms:60000}")
+    public void logStats() {
+        if (!enabled) {
+            return;
+        }
+        HedgeStats stats = stats();
+        logger.info("Read hedging: requests={}, hedged={} ({}%), wins={}, budgetRejected={}, latencySavedMs={}",
+                stats.requests(), stats.hedged(), String.format("%.2f", stats.hedgeRate() * 100), stats.hedgeWins(),
+                stats.budgetRejected(), stats.latencySavedMs());
+    }
+
+    private LatencyWindow window(String method) {
+        return latencies.computeIfAbsent(method, key -> new LatencyWindow(windowSize, percentile, windowSize / RECOMPUTES_PER_WINDOW));
+    }
+}
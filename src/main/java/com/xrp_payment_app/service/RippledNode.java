@@ -0,0 +1,117 @@
+package com.xrp_payment_app.service;
+
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One rippled JSON-RPC endpoint of the RippledNodePool and its observed health
+public class RippledNode {
+    // Weight of the newest sample in the moving averages
+    private static final double ALPHA = 0.2;
+
+    public record Stats(
+            String url,
+            boolean healthy,
+            String serverState,
+            double latencyMs,
+            double errorRate,
+            long requests,
+            long failures,
+            long validatedLedger,
+            long ledgerLag,
+            int inFlight
+    ) {}
+
+    private final String url;
+    private final WebClient webClient;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    // Guarded by "this"
+    private double latencyMs = 0;
+    private double errorRate = 0;
+
+    private volatile boolean healthy = true;
+    private volatile String serverState = "unknown";
+    private volatile long validatedLedger = 0;
+    private volatile long ledgerLag = 0;
+
+    public RippledNode(String url, WebClient webClient) {
+        this.url = url;
+        this.webClient = webClient;
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public WebClient webClient() {
+        return webClient;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public long validatedLedger() {
+        return validatedLedger;
+    }
+
+    public long ledgerLag() {
+        return ledgerLag;
+    }
+
+    void markHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    void recordServerInfo(String serverState, long validatedLedger) {
+        this.serverState = serverState;
+        this.validatedLedger = validatedLedger;
+    }
+
+    void setLedgerLag(long ledgerLag) {
+        this.ledgerLag = ledgerLag;
+    }
+
+    void started() {
+        inFlight.incrementAndGet();
+        requests.incrementAndGet();
+    }
+
+    synchronized void succeeded(long elapsedMs) {
+        inFlight.decrementAndGet();
+        latencyMs = latencyMs == 0 ? elapsedMs : latencyMs + ALPHA * (elapsedMs - latencyMs);
+        errorRate = errorRate * (1 - ALPHA);
+    }
+
+    // Abandoned by the caller, says nothing about the node
+    void cancelled() {
+        inFlight.decrementAndGet();
+    }
+
+    synchronized void failed(long elapsedMs) {
+        inFlight.decrementAndGet();
+        failures.incrementAndGet();
+        // A failure is at least as slow as it took to notice it
+        latencyMs = Math.max(latencyMs, latencyMs + ALPHA * (elapsedMs - latencyMs));
+        errorRate = errorRate + ALPHA * (1 - errorRate);
+    }
+
+    // Lower is better: expected latency, inflated by recent errors, queued work and ledger lag
+    synchronized double score(double errorPenalty, double lagPenaltyMs) {
+        return latencyMs * (1 + errorRate * errorPenalty) * (1 + inFlight.get()) + ledgerLag * lagPenaltyMs;
+    }
+
+    synchronized double errorRate() {
+        return errorRate;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(url, healthy, serverState, latencyMs, errorRate, requests.get(), failures.get(),
+                validatedLedger, ledgerLag, inFlight.get());
+    }
+}
@@ -0,0 +1,329 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.xrp_payment_app.config.OutboundHttpClients;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+// Routes XRPL JSON-RPC calls across the rippled nodes in xrpl.nodes.http-urls. Each node is
+// scored by observed latency, error rate and validated-ledger lag (from periodic server_info);
+// calls go to the best healthy node and fail over to the next one on transport errors.
+@Service
+public class RippledNodePool {
+    private static final Logger logger = LoggerFactory.getLogger(RippledNodePool.class);
+
+    private static final String SERVER_INFO_REQUEST = """
+            {"method": "server_info", "params": [{}]}
+            """;
+    private static final Set<String> SYNCED_STATES = Set.of("full", "proposing", "validating");
+    private static final long PENDING = -1;
+    private static final long PRIMARY_ANSWERED = -2;
+
+    private final List<RippledNode> nodes;
+    private final Duration requestTimeout;
+    private final long maxLedgerLag;
+    private final double maxErrorRate;
+    private final double errorPenalty;
+    private final double ledgerLagPenaltyMs;
+
+    private final ReadHedger readHedger;
+
+    private final AtomicLong failovers = new AtomicLong();
+    private final AtomicBoolean healthCheckRunning = new AtomicBoolean();
+
+    public RippledNodePool(
+            ReadHedger readHedger,
+            OutboundHttpClients outboundHttpClients,
+            PaymentMetrics paymentMetrics,
+            @Value("${xrpl.nodes.http-urls}") List<String> httpUrls,
+            @Value("${xrpl.nodes.request-timeout-ms:10000}") long requestTimeoutMs,
+            @Value("${xrpl.nodes.max-ledger-lag:3}") long maxLedgerLag,
+            @Value("${xrpl.nodes.max-error-rate:0.5}") double maxErrorRate,
+            @Value("${xrpl.nodes.error-penalty:10}") double errorPenalty,
+            @Value("${xrpl.nodes.ledger-lag-penalty-ms:200}") double ledgerLagPenaltyMs
+    ) {
+        this.readHedger = readHedger;
+        this.nodes = httpUrls.stream()
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(url -> createNode(outboundHttpClients, url))
+                .toList();
+        if (nodes.isEmpty()) {
+            throw new IllegalStateException("At least one rippled URL must be configured in xrpl.nodes.http-urls");
+        }
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.maxLedgerLag = maxLedgerLag;
+        this.maxErrorRate = maxErrorRate;
+        this.errorPenalty = errorPenalty;
+        this.ledgerLagPenaltyMs = ledgerLagPenaltyMs;
+        logger.info("Rippled node pool: {}", nodes.stream().map(RippledNode::url).toList());
+
+        for (RippledNode node : nodes) {
+            // Host and port, two nodes may share a host
+            String tag = URI.create(node.url()).getAuthority();
+            paymentMetrics.registerGauge(PaymentMetrics.NODE_HEALTHY, node, n -> n.isHealthy() ? 1 : 0, "node", tag);
+            paymentMetrics.registerGauge(PaymentMetrics.NODE_LATENCY, node, n -> n.stats().latencyMs(), "node", tag);
+            paymentMetrics.registerGauge(PaymentMetrics.NODE_ERROR_RATE, node, RippledNode::errorRate, "node", tag);
+            paymentMetrics.registerGauge(PaymentMetrics.NODE_LEDGER_LAG, node, RippledNode::ledgerLag, "node", tag);
+            paymentMetrics.registerGauge(PaymentMetrics.NODE_IN_FLIGHT, node, n -> n.stats().inFlight(), "node", tag);
+        }
+        paymentMetrics.registerCounter(PaymentMetrics.NODE_FAILOVERS, failovers, AtomicLong::get);
+    }
+
+    private RippledNode createNode(OutboundHttpClients outboundHttpClients, String url) {
+        String host = Objects.requireNonNull(URI.create(url).getHost(), "Invalid rippled URL: " + url);
+        // Every node gets its own connection pool, tagged with its host
+        WebClient webClient = outboundHttpClients.create("xrpl", "rippled-" + host, url);
+        return new RippledNode(url, webClient);
+    }
+
+    public <T> Mono<T> execute(String method, Function<RippledNode, Mono<T>> call) {
+        return Mono.defer(() -> {
+            List<RippledNode> candidates = candidates();
+            // Nodes this call has been sent to, by the primary, its failovers or the hedge
+            Set<RippledNode> used = ConcurrentHashMap.newKeySet();
+            RippledNode first = nextNode(candidates, used);
+            if (!readHedger.isHedgeable(method) || candidates.size() < 2) {
+                return attempt(method, call, first, candidates, used, () -> true);
+            }
+            return hedged(method, call, first, candidates, used);
+        });
+    }
+
+    // The primary runs on its own subscription. When the hedge wins, the primary is left to
+    // finish on the node it is on, and its late answer tells how much latency the hedge saved.
+    private <T> Mono<T> hedged(String method, Function<RippledNode, Mono<T>> call, RippledNode first,
+                               List<RippledNode> candidates, Set<RippledNode> used) {
+        return Mono.deferContextual(context -> {
+            readHedger.onRequest();
+            long start = System.nanoTime();
+            // Elapsed ms at which the hedge won, PENDING until either side answers
+            AtomicLong hedgeWonAfterMs = new AtomicLong(PENDING);
+
+            Sinks.One<T> primaryResult = Sinks.one();
+            Disposable primary = attempt(method, call, first, candidates, used, () -> hedgeWonAfterMs.get() < 0)
+                    .subscribe(
+                            value -> {
+                                long hedgeWonAfter = hedgeWonAfterMs.getAndSet(PRIMARY_ANSWERED);
+                                if (hedgeWonAfter >= 0) {
+                                    readHedger.onLatencySaved(elapsedMs(start) - hedgeWonAfter);
+                                }
+                                primaryResult.tryEmitValue(value);
+                            },
+                            primaryResult::tryEmitError,
+                            primaryResult::tryEmitEmpty,
+                            Context.of(context));
+
+            // Goes to a node the primary has not been sent to, failovers included; without one left
+            // there is nothing to hedge with and no budget is spent
+            Mono<T> hedge = Mono.delay(Duration.ofMillis(readHedger.delayMs(method)))
+                    .flatMap(tick -> {
+                        RippledNode node = nextNode(candidates, used);
+                        if (node == null) {
+                            return Mono.empty();
+                        }
+                        if (!readHedger.tryAcquireHedge()) {
+                            used.remove(node);
+                            return Mono.empty();
+                        }
+                        return attempt(method, call, node, candidates, used, () -> true);
+                    })
+                    .doOnNext(result -> {
+                        if (hedgeWonAfterMs.compareAndSet(PENDING, elapsedMs(start))) {
+                            readHedger.onHedgeWin();
+                        }
+                    });
+            // The first value wins; a losing hedge is cancelled, a losing primary is not
+            return Mono.firstWithValue(primaryResult.asMono(), hedge)
+                    .onErrorMap(NoSuchElementException.class, this::firstCause)
+                    .doOnCancel(() -> {
+                        if (hedgeWonAfterMs.get() < 0) {
+                            primary.dispose();
+                        }
+                    });
+        });
+    }
+
+    private <T> Mono<T> attempt(String method, Function<RippledNode, Mono<T>> call, RippledNode node,
+                                List<RippledNode> candidates, Set<RippledNode> used, BooleanSupplier mayFailOver) {
+        return Mono.defer(() -> {
+            node.started();
+            long start = System.nanoTime();
+            return call.apply(node)
+                    .timeout(requestTimeout)
+                    .doOnSuccess(result -> succeeded(method, node, start))
+                    .doOnCancel(node::cancelled)
+                    .onErrorResume(e -> {
+                        if (!isNodeFailure(e)) {
+                            // The node answered, the request itself was bad
+                            node.succeeded(elapsedMs(start));
+                            return Mono.error(e);
+                        }
+                        node.failed(elapsedMs(start));
+                        RippledNode next = mayFailOver.getAsBoolean() ? nextNode(candidates, used) : null;
+                        if (next == null) {
+                            return Mono.error(e);
+                        }
+                        failovers.incrementAndGet();
+                        logger.warn("{} failed on {}, failing over to {}: {}", method, node.url(), next.url(), e.toString());
+                        return attempt(method, call, next, candidates, used, mayFailOver);
+                    });
+        });
+    }
+
+    // Best candidate this call has not been sent to yet, claimed atomically
+    private static RippledNode nextNode(List<RippledNode> candidates, Set<RippledNode> used) {
+        for (RippledNode node : candidates) {
+            if (used.add(node)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private void succeeded(String method, RippledNode node, long startNanos) {
+        long elapsed = elapsedMs(startNanos);
+        node.succeeded(elapsed);
+        if (readHedger.isHedgeable(method)) {
+            readHedger.recordLatency(method, elapsed);
+        }
+    }
+
+    private Throwable firstCause(NoSuchElementException e) {
+        // Mono.firstWithValue reports the failures of its sources as suppressed exceptions
+        for (Throwable suppressed : e.getSuppressed()) {
+            if (!(suppressed instanceof NoSuchElementException)) {
+                return suppressed;
+            }
+        }
+        return e;
+    }
+
+    // Healthy nodes best first; if none is healthy all nodes are tried, still best first
+    private List<RippledNode> candidates() {
+        Comparator<RippledNode> byScore = Comparator.comparingDouble(node -> node.score(errorPenalty, ledgerLagPenaltyMs));
+        List<RippledNode> healthy = new ArrayList<>(nodes.size());
+        for (RippledNode node : nodes) {
+            if (node.isHealthy()) {
+                healthy.add(node);
+            }
+        }
+        List<RippledNode> candidates = healthy.isEmpty() ? new ArrayList<>(nodes) : healthy;
+        candidates.sort(byScore);
+        return candidates;
+    }
+
+    // Runs off the scheduler thread so a slow node cannot hold up other scheduled work; a check
+    // still in progress when the next one is due is not overlapped
+    @Scheduled(fixedDelayString = "${xrpl.nodes.health-check-interval-ms:5000}")
+    public void checkHealth() {
+        if (!healthCheckRunning.compareAndSet(false, true)) {
+            return;
+        }
+        Flux.fromIterable(nodes)
+                .flatMap(this::checkNode)
+                .then(Mono.fromRunnable(this::updateHealth))
+                .doFinally(signal -> healthCheckRunning.set(false))
+                .subscribe(null, e -> logger.warn("Rippled health check failed: {}", e.toString()));
+    }
+
+    private void updateHealth() {
+        long highestValidated = nodes.stream().mapToLong(RippledNode::validatedLedger).max().orElse(0);
+        for (RippledNode node : nodes) {
+            RippledNode.Stats stats = node.stats();
+            // A node that did not report a validated ledger counts as too far behind
+            long lag = stats.validatedLedger() > 0 ? highestValidated - stats.validatedLedger() : maxLedgerLag + 1;
+            node.setLedgerLag(lag);
+
+            boolean healthy = SYNCED_STATES.contains(stats.serverState())
+                    && lag <= maxLedgerLag
+                    && node.errorRate() <= maxErrorRate;
+            if (healthy != node.isHealthy()) {
+                logger.warn("Rippled node {} is now {}: state={}, lag={}, errorRate={}", node.url(),
+                        healthy ? "healthy" : "unhealthy", stats.serverState(), lag, String.format("%.2f", node.errorRate()));
+            }
+            node.markHealthy(healthy);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Rippled nodes: {}", nodeStats());
+        }
+    }
+
+    private Mono<Void> checkNode(RippledNode node) {
+        node.started();
+        long start = System.nanoTime();
+        return node.webClient().post()
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(SERVER_INFO_REQUEST)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(requestTimeout)
+                .doOnNext(response -> {
+                    node.succeeded(elapsedMs(start));
+                    JsonNode info = response.path("result").path("info");
+                    node.recordServerInfo(info.path("server_state").asText("unknown"), info.path("validated_ledger").path("seq").asLong(0));
+                })
+                .onErrorResume(e -> {
+                    node.failed(elapsedMs(start));
+                    node.recordServerInfo("unreachable", 0);
+                    logger.debug("Health check failed for {}: {}", node.url(), e.toString());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    public List<RippledNode.Stats> nodeStats() {
+        return nodes.stream().map(RippledNode::stats).toList();
+    }
+
+    public long failovers() {
+        return failovers.get();
+    }
+
+    public List<RippledNode> nodes() {
+        return nodes;
+    }
+
+    private boolean isNodeFailure(Throwable e) {
+        if (e instanceof WebClientRequestException || e instanceof TimeoutException) {
+            return true;
+        }
+        // 5xx and rate limiting are the node's problem, another node may serve the call
+        return e instanceof WebClientResponseException response
+                && (response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,202 @@
+package com.xrp_payment_app.service;
+
+import com.xrp_payment_app.dto.SubmitResultResponse;
+import com.xrp_payment_app.entity.SubmissionOutboxEntry;
+import com.xrp_payment_app.entity.Transaction;
+import com.xrp_payment_app.exception.NotFoundException;
+import com.xrp_payment_app.repository.SubmissionOutboxRepository;
+import com.xrp_payment_app.repository.TransactionRepository;
+import com.xrp_payment_app.utils.TransactionHashes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.transaction.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Signed blobs are written here by the sign callbacks and submitted later by
+// SubmissionOutboxWorker, so callbacks return as soon as the blobs are durable.
+@Service
+public class SubmissionOutboxService {
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionOutboxService.class);
+
+    private final SubmissionOutboxRepository outboxRepository;
+    private final TransactionRepository transactionRepository;
+    private final FinalityTracker finalityTracker;
+    private final int maxAttempts;
+    private final long backoffInitialMs;
+    private final long backoffMaxMs;
+
+    // Wakes idle workers when new work is committed instead of waiting for the next poll
+    private final Semaphore workAvailable = new Semaphore(0);
+
+    public SubmissionOutboxService(
+            SubmissionOutboxRepository outboxRepository,
+            TransactionRepository transactionRepository,
+            FinalityTracker finalityTracker,
+            @Value("${payment.outbox.max-attempts:8}") int maxAttempts,
+            @Value("${payment.outbox.backoff-initial-ms:500}") long backoffInitialMs,
+            @Value("${payment.outbox.backoff-max-ms:60000}") long backoffMaxMs
+    ) {
+        this.outboxRepository = outboxRepository;
+        this.transactionRepository = transactionRepository;
+        this.finalityTracker = finalityTracker;
+        this.maxAttempts = maxAttempts;
+        this.backoffInitialMs = backoffInitialMs;
+        this.backoffMaxMs = backoffMaxMs;
+    }
+
+    // Blobs are submitted in the given order, each one only after the previous was accepted.
+    // Returns the transaction hashes, which are known before submission.
+    @Transactional
+    public List<String> enqueue(List<String> paymentReferences, List<String> signedTxBlobs) {
+        Map<String, Transaction> byReference = transactionRepository.findByPaymentReferenceIn(paymentReferences).stream()
+                .collect(Collectors.toMap(Transaction::getPaymentReference, Function.identity()));
+
+        List<Transaction> transactions = new ArrayList<>(paymentReferences.size());
+        for (String paymentReference : paymentReferences) {
+            Transaction transaction = byReference.get(paymentReference);
+            if (transaction == null) {
+                throw new NotFoundException(
+                        "No transaction for payment reference " + paymentReference,
+                        "The payment for this payload doesn't exist",
+                        "TRANSACTION_NOT_FOUND"
+                );
+            }
+            transactions.add(transaction);
+        }
+        return enqueueTransactions(transactions, signedTxBlobs);
+    }
+
+    @Transactional
+    public List<String> enqueueTransactions(List<Transaction> transactions, List<String> signedTxBlobs) {
+        List<String> hashes = new ArrayList<>(signedTxBlobs.size());
+        if (!"INITIATED".equals(transactions.get(0).getStatus())) {
+            // A repeated callback, the blobs were queued the first time
+            logger.info("Payment {} already queued for submission", transactions.get(0).getPaymentReference());
+            transactions.forEach(transaction -> hashes.add(transaction.getTransactionHash()));
+            return hashes;
+        }
+        Long dependsOn = null;
+        for (int i = 0; i < signedTxBlobs.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            String signedTxBlob = signedTxBlobs.get(i);
+            String hash = TransactionHashes.fromSignedBlob(signedTxBlob);
+            transaction.setTransactionHash(hash);
+            transaction.setStatus("SUBMITTING");
+
+            SubmissionOutboxEntry entry = new SubmissionOutboxEntry();
+            entry.setTransactionId(transaction.getId());
+            entry.setTxBlob(signedTxBlob);
+            entry.setTxHash(hash);
+            entry.setDependsOn(dependsOn);
+            entry.setStatus("PENDING");
+            dependsOn = outboxRepository.save(entry).getId();
+            hashes.add(hash);
+        }
+        transactionRepository.saveAll(transactions);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wakeUp();
+            }
+        });
+        logger.info("Queued {} signed transaction(s) for submission: {}", hashes.size(), hashes);
+        return hashes;
+    }
+
+    public List<SubmissionOutboxEntry> claim(int batchSize, long leaseSeconds) {
+        return outboxRepository.claim(batchSize, leaseSeconds);
+    }
+
+    @Transactional
+    public void recordResult(SubmissionOutboxEntry entry, SubmitResultResponse result) {
+        String engineResult = result.engineResult();
+
+        if (engineResult.startsWith("tes")
+                || "tefALREADY".equals(engineResult)
+                // An earlier attempt got in and consumed the sequence; the finality tracker settles it
+                || ("tefPAST_SEQ".equals(engineResult) && entry.getAttempts() > 1)) {
+            accept(entry, engineResult, "CONFIRMED");
+            return;
+        }
+        if ("terQUEUED".equals(engineResult)) {
+            accept(entry, engineResult, "QUEUED");
+            return;
+        }
+        if (engineResult.startsWith("ter") || engineResult.startsWith("tel")) {
+            retryOrFail(entry, engineResult, result.engineResultMessage());
+            return;
+        }
+        // tec claimed the fee but did not deliver; tef and tem can never succeed
+        fail(entry, engineResult, result.engineResultMessage());
+    }
+
+    @Transactional
+    public void recordError(SubmissionOutboxEntry entry, Exception error) {
+        // Resubmitting the same signed blob is safe, it can only be applied once
+        retryOrFail(entry, null, error.getMessage());
+    }
+
+    @Transactional
+    public void recordRejection(SubmissionOutboxEntry entry, Exception error) {
+        // rippled refused the blob itself, resubmitting it cannot succeed
+        fail(entry, null, error.getMessage());
+    }
+
+    public boolean awaitWork(long timeoutMs) throws InterruptedException {
+        return workAvailable.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void wakeUp() {
+        workAvailable.release();
+    }
+
+    private void accept(SubmissionOutboxEntry entry, String engineResult, String transactionStatus) {
+        outboxRepository.complete(entry.getId(), "DONE", engineResult, null);
+        transactionRepository.updateStatusByIds(transactionStatus, List.of(entry.getTransactionId()));
+        finalityTracker.trackSignedBlob(entry.getTxHash(), entry.getTxBlob());
+        logger.info("Submitted {}: {}", entry.getTxHash(), engineResult);
+        if (entry.getDependsOn() == null) {
+            // A dependent entry may be claimable now
+            wakeUp();
+        }
+    }
+
+    private void retryOrFail(SubmissionOutboxEntry entry, String engineResult, String error) {
+        if (entry.getAttempts() >= maxAttempts) {
+            logger.warn("Giving up on {} after {} attempts", entry.getTxHash(), entry.getAttempts());
+            fail(entry, engineResult, error);
+            return;
+        }
+        long delayMs = Math.min(backoffMaxMs, backoffInitialMs << Math.min(entry.getAttempts() - 1, 20));
+        // Jitter so entries failing together do not retry together
+        delayMs = ThreadLocalRandom.current().nextLong(delayMs / 2, delayMs + 1);
+        logger.warn("Submission of {} failed ({}), retrying in {} ms: {}", entry.getTxHash(), engineResult, delayMs, error);
+        outboxRepository.reschedule(entry.getId(), engineResult, error, delayMs / 1000.0);
+    }
+
+    private void fail(SubmissionOutboxEntry entry, String engineResult, String error) {
+        outboxRepository.complete(entry.getId(), "FAILED", engineResult, error);
+        List<Long> failed = new ArrayList<>();
+        failed.add(entry.getTransactionId());
+        // Transactions chained behind this one are never submitted
+        failed.addAll(outboxRepository.findPendingDependentTransactionIds(entry.getId()));
+        outboxRepository.skipDependents(entry.getId());
+        transactionRepository.updateStatusByIds("FAILED", failed);
+        logger.warn("Submission of {} failed with {}: {}", entry.getTxHash(), engineResult, error);
+    }
+}
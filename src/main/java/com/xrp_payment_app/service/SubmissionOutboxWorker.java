@@ -0,0 +1,133 @@
+package com.xrp_payment_app.service;
+
+import com.xrp_payment_app.dto.SubmitResultResponse;
+import com.xrp_payment_app.entity.SubmissionOutboxEntry;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Fixed pool of workers draining the submission outbox. Each claims a batch of due rows
+// (SKIP LOCKED, so workers on every instance get disjoint rows), submits and records the
+// outcome. Submission throughput follows the worker count, not the HTTP thread pool.
+@Component
+public class SubmissionOutboxWorker {
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionOutboxWorker.class);
+
+    private final SubmissionOutboxService outboxService;
+    private final XrplService xrplService;
+    private final PaymentMetrics paymentMetrics;
+    private final ObservationRegistry observationRegistry;
+    private final int workers;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final long leaseSeconds;
+
+    private volatile boolean running = false;
+    private ExecutorService executor;
+
+    public SubmissionOutboxWorker(
+            SubmissionOutboxService outboxService,
+            XrplService xrplService,
+            PaymentMetrics paymentMetrics,
+            ObservationRegistry observationRegistry,
+            @Value("${payment.outbox.workers:4}") int workers,
+            @Value("${payment.outbox.batch-size:10}") int batchSize,
+            @Value("${payment.outbox.poll-interval-ms:1000}") long pollIntervalMs,
+            @Value("${payment.outbox.lease-seconds:30}") long leaseSeconds
+    ) {
+        this.outboxService = outboxService;
+        this.xrplService = xrplService;
+        this.paymentMetrics = paymentMetrics;
+        this.observationRegistry = observationRegistry;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running || workers <= 0) {
+            return;
+        }
+        running = true;
+        executor = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("outbox-worker-", 0).daemon(true).factory());
+        for (int i = 0; i < workers; i++) {
+            executor.submit(this::run);
+        }
+        logger.info("Started {} submission outbox workers", workers);
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        executor.shutdownNow();
+        // A row claimed but not recorded is picked up again once its lease expires
+        if (!executor.awaitTermination(leaseSeconds, TimeUnit.SECONDS)) {
+            logger.warn("Submission outbox workers did not stop in time");
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                List<SubmissionOutboxEntry> claimed = outboxService.claim(batchSize, leaseSeconds);
+                if (claimed.isEmpty()) {
+                    outboxService.awaitWork(pollIntervalMs);
+                    continue;
+                }
+                for (SubmissionOutboxEntry entry : claimed) {
+                    // One trace per submission, its XRPL and repository calls are child spans
+                    Observation.createNotStarted("outbox.submit", observationRegistry)
+                            .lowCardinalityKeyValue("flow", WebhookIngestionService.CALLBACK_FLOW)
+                            .observe(() -> submit(entry));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Submission outbox worker error, leased rows are retried after the lease: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void submit(SubmissionOutboxEntry entry) {
+        SubmitResultResponse result;
+        try {
+            result = paymentMetrics.timeStage(WebhookIngestionService.CALLBACK_FLOW, "submit",
+                    () -> xrplService.submitSignedBlob(entry.getTxBlob()));
+        } catch (Exception e) {
+            if (XrplService.isSubmitRejected(e)) {
+                outboxService.recordRejection(entry, e);
+            } else {
+                outboxService.recordError(entry, e);
+            }
+            return;
+        }
+        outboxService.recordResult(entry, result);
+    }
+}
@@ -0,0 +1,273 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import org.xrpl.xrpl4j.model.jackson.ObjectMapperFactory;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.WebsocketClientSpec;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps a few persistent WebSocket connections to rippled and multiplexes concurrent commands
+// over them, matching responses by request id. Connections reconnect with backoff and replay
+// the subscriptions that were made on them.
+@Service
+@ConditionalOnProperty(name = "xrpl.transport.mode", havingValue = "websocket")
+public class WebSocketXrplTransport implements XrplTransport {
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketXrplTransport.class);
+
+    // No connection is open right now; safe to retry since nothing was sent
+    static class NotConnectedException extends RuntimeException {
+        NotConnectedException(String message) {
+            super(message);
+        }
+    }
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.create();
+    private final ReactorNettyWebSocketClient webSocketClient;
+    private final URI wsUri;
+    private final Duration requestTimeout;
+    private final Duration connectWait;
+    private final PaymentMetrics paymentMetrics;
+    private final List<Connection> connections = new ArrayList<>();
+
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicInteger nextConnection = new AtomicInteger();
+    // Stream messages (ledgerClosed, transaction, ...) of subscriptions made through this transport
+    private final Sinks.Many<JsonNode> streamMessages = Sinks.many().multicast().directBestEffort();
+
+    public WebSocketXrplTransport(
+            @Value("${xrpl.websocket.url}") String wsUrl,
+            @Value("${xrpl.websocket.connections:4}") int connectionCount,
+            @Value("${xrpl.websocket.request-timeout-ms:10000}") long requestTimeoutMs,
+            @Value("${xrpl.websocket.connect-wait-ms:5000}") long connectWaitMs,
+            @Value("${xrpl.websocket.max-frame-payload-length:1048576}") int maxFramePayloadLength,
+            PaymentMetrics paymentMetrics
+    ) {
+        this.paymentMetrics = paymentMetrics;
+        this.wsUri = URI.create(wsUrl);
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.connectWait = Duration.ofMillis(connectWaitMs);
+        // tx and account responses can exceed the default 64 KiB frame limit
+        this.webSocketClient = new ReactorNettyWebSocketClient(HttpClient.create(),
+                () -> WebsocketClientSpec.builder().maxFramePayloadLength(maxFramePayloadLength));
+        for (int i = 0; i < connectionCount; i++) {
+            connections.add(new Connection(i));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        connections.forEach(Connection::start);
+        logger.info("XRPL WebSocket transport: {} connections to {}", connections.size(), wsUri);
+    }
+
+    @PreDestroy
+    public void stop() {
+        connections.forEach(Connection::stop);
+    }
+
+    @Override
+    public Mono<JsonNode> send(String method, JsonNode params) {
+        ObjectNode command = params != null && params.isObject() ? ((ObjectNode) params).deepCopy() : objectMapper.createObjectNode();
+        command.put("command", method);
+
+        return paymentMetrics.timeXrpl(method, Mono.defer(() -> nextOpenConnection().send(command))
+                // Waits for a connection to come up, e.g. right after startup or during a reconnect
+                .retryWhen(Retry.fixedDelay(Math.max(1, connectWait.toMillis() / 100), Duration.ofMillis(100))
+                        .filter(NotConnectedException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .timeout(requestTimeout));
+    }
+
+    @Override
+    public ObjectMapper objectMapper() {
+        return objectMapper;
+    }
+
+    public Flux<JsonNode> streamMessages() {
+        return streamMessages.asFlux();
+    }
+
+    public int openConnections() {
+        return (int) connections.stream().filter(Connection::isOpen).count();
+    }
+
+    private Connection nextOpenConnection() {
+        int size = connections.size();
+        int start = Math.floorMod(nextConnection.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Connection connection = connections.get((start + i) % size);
+            if (connection.isOpen()) {
+                return connection;
+            }
+        }
+        throw new NotConnectedException("No open WebSocket connection to " + wsUri);
+    }
+
+    private class Connection {
+        private final int index;
+        private final Map<Long, Sinks.One<JsonNode>> pending = new ConcurrentHashMap<>();
+        // Keyed by the subscribe command without its id, replayed after reconnecting
+        private final Map<String, ObjectNode> subscriptions = new ConcurrentHashMap<>();
+
+        private volatile Sinks.Many<String> outbound;
+        private volatile Disposable session;
+
+        Connection(int index) {
+            this.index = index;
+        }
+
+        boolean isOpen() {
+            return outbound != null;
+        }
+
+        void start() {
+            session = Mono.defer(() -> webSocketClient.execute(wsUri, this::handle))
+                    .doOnError(e -> logger.warn("XRPL WebSocket connection {} failed: {}", index, e.getMessage()))
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                    .repeatWhen(completed -> completed.delayElements(Duration.ofSeconds(1)))
+                    .subscribe();
+        }
+
+        void stop() {
+            if (session != null) {
+                session.dispose();
+            }
+        }
+
+        Mono<JsonNode> send(ObjectNode command) {
+            Sinks.Many<String> sink = outbound;
+            if (sink == null) {
+                return Mono.error(new NotConnectedException("WebSocket connection " + index + " is not open"));
+            }
+
+            long id = nextId.incrementAndGet();
+            ObjectNode request = command.deepCopy();
+            request.put("id", id);
+            Sinks.One<JsonNode> response = Sinks.one();
+            pending.put(id, response);
+            try {
+                // Requests from many threads are serialized onto the one socket
+                sink.emitNext(encode(request), Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+            } catch (Exception e) {
+                pending.remove(id);
+                return Mono.error(new NotConnectedException("WebSocket connection " + index + " closed: " + e.getMessage()));
+            }
+            return response.asMono()
+                    // Only what rippled acknowledged is replayed after a reconnect
+                    .doOnNext(result -> {
+                        if (!result.has("error")) {
+                            trackSubscription(command);
+                        }
+                    })
+                    .doFinally(signal -> pending.remove(id));
+        }
+
+        private Mono<Void> handle(WebSocketSession webSocketSession) {
+            Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+            for (ObjectNode subscription : subscriptions.values()) {
+                ObjectNode request = subscription.deepCopy();
+                request.put("id", nextId.incrementAndGet());
+                sink.tryEmitNext(encode(request));
+            }
+            outbound = sink;
+            logger.info("XRPL WebSocket connection {} open, resubscribed {}", index, subscriptions.size());
+
+            Mono<Void> send = webSocketSession.send(sink.asFlux().map(webSocketSession::textMessage));
+            Mono<Void> receive = webSocketSession.receive()
+                    .map(WebSocketMessage::getPayloadAsText)
+                    .doOnNext(this::dispatch)
+                    .then();
+            return Mono.firstWithSignal(send, receive)
+                    .doFinally(signal -> closed(sink));
+        }
+
+        private void dispatch(String message) {
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(message);
+            } catch (JsonProcessingException e) {
+                logger.warn("Unreadable message on XRPL WebSocket connection {}: {}", index, e.getMessage());
+                return;
+            }
+            if (!"response".equals(node.path("type").asText())) {
+                // Connections deliver concurrently, serialize them onto the shared sink
+                streamMessages.emitNext(node, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+                return;
+            }
+            Sinks.One<JsonNode> response = pending.remove(node.path("id").asLong(-1));
+            if (response == null) {
+                // Timed out already, or a resubscription
+                return;
+            }
+            // Same shape as a JSON-RPC result: errors carry "error" and "error_message" at the top level
+            response.tryEmitValue("error".equals(node.path("status").asText()) ? node : node.path("result"));
+        }
+
+        private void closed(Sinks.Many<String> sink) {
+            if (outbound == sink) {
+                outbound = null;
+            }
+            sink.tryEmitComplete();
+            logger.warn("XRPL WebSocket connection {} closed, failing {} pending requests", index, pending.size());
+            for (Long id : List.copyOf(pending.keySet())) {
+                Sinks.One<JsonNode> response = pending.remove(id);
+                if (response != null) {
+                    response.tryEmitError(new IllegalStateException("XRPL WebSocket connection closed before a response"));
+                }
+            }
+        }
+
+        private void trackSubscription(ObjectNode command) {
+            String method = command.path("command").asText();
+            if (!"subscribe".equals(method) && !"unsubscribe".equals(method)) {
+                return;
+            }
+            ObjectNode subscription = command.deepCopy();
+            subscription.put("command", "subscribe");
+            String key = subscription.toString();
+            if ("subscribe".equals(method)) {
+                subscriptions.put(key, subscription);
+            } else {
+                subscriptions.remove(key);
+            }
+        }
+    }
+
+    private String encode(ObjectNode request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to encode " + request.path("command").asText() + " request", e);
+        }
+    }
+}
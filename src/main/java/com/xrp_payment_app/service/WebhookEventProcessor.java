@@ -0,0 +1,187 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.xrp_payment_app.entity.WebhookEvent;
+import com.xrp_payment_app.exception.NotFoundException;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Fixed pool of processors draining queued Xaman callbacks. Each claims a batch of events,
+// fetches all their signed payloads concurrently and queues the blobs for submission.
+@Component
+public class WebhookEventProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookEventProcessor.class);
+
+    private record Fetched(WebhookEvent event, List<String> blobs, Throwable error) {}
+
+    private final WebhookIngestionService ingestionService;
+    private final XamanClientService xamanClientService;
+    private final SubmissionOutboxService submissionOutboxService;
+    private final PaymentMetrics paymentMetrics;
+    private final ObservationRegistry observationRegistry;
+    private final int processors;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final long leaseSeconds;
+    private final int fetchConcurrency;
+
+    private volatile boolean running = false;
+    private ExecutorService executor;
+
+    public WebhookEventProcessor(
+            WebhookIngestionService ingestionService,
+            XamanClientService xamanClientService,
+            SubmissionOutboxService submissionOutboxService,
+            PaymentMetrics paymentMetrics,
+            ObservationRegistry observationRegistry,
+            @Value("${payment.webhook.processors:2}") int processors,
+            @Value("${payment.webhook.batch-size:20}") int batchSize,
+            @Value("${payment.webhook.poll-interval-ms:1000}") long pollIntervalMs,
+            @Value("${payment.webhook.lease-seconds:30}") long leaseSeconds,
+            @Value("${payment.webhook.fetch-concurrency:8}") int fetchConcurrency
+    ) {
+        this.ingestionService = ingestionService;
+        this.xamanClientService = xamanClientService;
+        this.submissionOutboxService = submissionOutboxService;
+        this.paymentMetrics = paymentMetrics;
+        this.observationRegistry = observationRegistry;
+        this.processors = processors;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.leaseSeconds = leaseSeconds;
+        this.fetchConcurrency = fetchConcurrency;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running || processors <= 0) {
+            return;
+        }
+        running = true;
+        executor = Executors.newFixedThreadPool(processors, Thread.ofPlatform().name("webhook-processor-", 0).daemon(true).factory());
+        for (int i = 0; i < processors; i++) {
+            executor.submit(this::run);
+        }
+        logger.info("Started {} webhook processors", processors);
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        executor.shutdownNow();
+        // An event claimed but not recorded is picked up again once its lease expires
+        if (!executor.awaitTermination(leaseSeconds, TimeUnit.SECONDS)) {
+            logger.warn("Webhook processors did not stop in time");
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                List<WebhookEvent> claimed = ingestionService.claim(batchSize, leaseSeconds);
+                if (claimed.isEmpty()) {
+                    ingestionService.awaitWork(pollIntervalMs);
+                    continue;
+                }
+                // One trace per batch, its Xaman fetches and repository calls are child spans
+                Observation.createNotStarted("webhook.process", observationRegistry)
+                        .lowCardinalityKeyValue("flow", WebhookIngestionService.CALLBACK_FLOW)
+                        .observe(() -> process(claimed));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Webhook processor error, leased events are retried after the lease: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void process(List<WebhookEvent> claimed) {
+        List<WebhookEvent> signed = claimed.stream()
+                .filter(event -> {
+                    if ("SIGNED".equals(event.getSignedStatus())) {
+                        return true;
+                    }
+                    logger.info("Payload {} was not signed ({}), nothing to submit", event.getPayloadUuid(), event.getSignedStatus());
+                    ingestionService.complete(event, "SKIPPED", null);
+                    return false;
+                })
+                .toList();
+
+        // Payload fetches for the whole batch run concurrently, the outbox writes one event at a time
+        long start = System.nanoTime();
+        List<Fetched> fetched = Flux.fromIterable(signed)
+                .flatMap(this::fetchBlobs, fetchConcurrency)
+                .collectList()
+                .block();
+        if (fetched == null || fetched.isEmpty()) {
+            return;
+        }
+        paymentMetrics.recordStage(WebhookIngestionService.CALLBACK_FLOW, "fetch_payloads", start, "success");
+        logger.info("Fetched payloads for {} callback(s) in {} ms",
+                fetched.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        for (Fetched result : fetched) {
+            WebhookEvent event = result.event();
+            if (result.error() != null) {
+                ingestionService.retryOrFail(event, result.error().getMessage());
+                continue;
+            }
+            try {
+                paymentMetrics.timeStage(WebhookIngestionService.CALLBACK_FLOW, "enqueue",
+                        () -> submissionOutboxService.enqueue(event.payloadUuidList(), result.blobs()));
+                ingestionService.complete(event, "DONE", null);
+            } catch (NotFoundException e) {
+                logger.warn("No payment for callback payload {}", event.getPayloadUuid());
+                ingestionService.complete(event, "FAILED", e.getMessage());
+            } catch (Exception e) {
+                ingestionService.retryOrFail(event, e.getMessage());
+            }
+        }
+    }
+
+    // Blobs come back in payload order, main payment first
+    private Mono<Fetched> fetchBlobs(WebhookEvent event) {
+        return Flux.fromIterable(event.payloadUuidList())
+                .flatMapSequential(uuid -> xamanClientService.getPayloadAsync(uuid).map(payload -> signedBlob(uuid, payload)))
+                .collectList()
+                .map(blobs -> new Fetched(event, blobs, null))
+                .onErrorResume(e -> Mono.just(new Fetched(event, null, e)));
+    }
+
+    private String signedBlob(String uuid, JsonNode payload) {
+        String hex = payload.path("response").path("hex").asText("");
+        if (hex.isEmpty()) {
+            throw new IllegalStateException("Payload " + uuid + " has no signed transaction yet");
+        }
+        return hex;
+    }
+}
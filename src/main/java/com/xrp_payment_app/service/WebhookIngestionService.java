@@ -0,0 +1,134 @@
+package com.xrp_payment_app.service;
+
+import com.xrp_payment_app.dto.SuccessPaymentResponse;
+import com.xrp_payment_app.entity.WebhookEvent;
+import com.xrp_payment_app.exception.BadRequestException;
+import com.xrp_payment_app.repository.WebhookEventRepository;
+import com.xrp_payment_app.repository.reactive.ReactiveWebhookEventRepository;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Xaman sign callbacks are acknowledged as soon as they are durably queued, keyed by the
+// payload UUID so webhook retries are dropped on insert. WebhookEventProcessor fetches the
+// signed payloads and hands the blobs to the submission outbox.
+@Service
+public class WebhookIngestionService {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookIngestionService.class);
+
+    // Flow name of the callback stages, shared with the processor and the outbox worker
+    public static final String CALLBACK_FLOW = "v2_callback";
+
+    private static final SuccessPaymentResponse RECEIVED =
+            new SuccessPaymentResponse("RECEIVED", null, null, "Callback received");
+
+    private final WebhookEventRepository webhookEventRepository;
+    private final ReactiveWebhookEventRepository reactiveWebhookEventRepository;
+    private final PaymentMetrics paymentMetrics;
+    private final int maxAttempts;
+    private final long backoffInitialMs;
+    private final long backoffMaxMs;
+
+    // Wakes idle processors when an event is queued instead of waiting for the next poll
+    private final Semaphore workAvailable = new Semaphore(0);
+
+    public WebhookIngestionService(
+            WebhookEventRepository webhookEventRepository,
+            ReactiveWebhookEventRepository reactiveWebhookEventRepository,
+            PaymentMetrics paymentMetrics,
+            @Value("${payment.webhook.max-attempts:8}") int maxAttempts,
+            @Value("${payment.webhook.backoff-initial-ms:500}") long backoffInitialMs,
+            @Value("${payment.webhook.backoff-max-ms:60000}") long backoffMaxMs
+    ) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.reactiveWebhookEventRepository = reactiveWebhookEventRepository;
+        this.paymentMetrics = paymentMetrics;
+        this.maxAttempts = maxAttempts;
+        this.backoffInitialMs = backoffInitialMs;
+        this.backoffMaxMs = backoffMaxMs;
+    }
+
+    public SuccessPaymentResponse accept(String payloadUuid, String signedStatus) {
+        return acceptBatch(payloadUuid == null ? null : List.of(payloadUuid), signedStatus);
+    }
+
+    public SuccessPaymentResponse acceptBatch(List<String> payloadUuids, String signedStatus) {
+        return paymentMetrics.timeStage(CALLBACK_FLOW, "accept", () -> {
+            List<String> uuids = requireUuids(payloadUuids);
+            if (webhookEventRepository.insertIfAbsent(uuids.get(0), String.join(",", uuids), signedStatus) > 0) {
+                queued(uuids.get(0));
+            } else {
+                logger.info("Duplicate callback for payload {}", uuids.get(0));
+            }
+            return RECEIVED;
+        });
+    }
+
+    public Mono<SuccessPaymentResponse> acceptAsync(String payloadUuid, String signedStatus) {
+        return acceptBatchAsync(payloadUuid == null ? null : List.of(payloadUuid), signedStatus);
+    }
+
+    public Mono<SuccessPaymentResponse> acceptBatchAsync(List<String> payloadUuids, String signedStatus) {
+        return paymentMetrics.timeStage(CALLBACK_FLOW, "accept", Mono.fromCallable(() -> requireUuids(payloadUuids))
+                .flatMap(uuids -> reactiveWebhookEventRepository.insertIfAbsent(uuids.get(0), String.join(",", uuids), signedStatus)
+                        .doOnNext(inserted -> {
+                            if (inserted > 0) {
+                                queued(uuids.get(0));
+                            } else {
+                                logger.info("Duplicate callback for payload {}", uuids.get(0));
+                            }
+                        }))
+                .thenReturn(RECEIVED));
+    }
+
+    public List<WebhookEvent> claim(int batchSize, long leaseSeconds) {
+        return webhookEventRepository.claim(batchSize, leaseSeconds);
+    }
+
+    public void complete(WebhookEvent event, String status, String error) {
+        webhookEventRepository.complete(event.getPayloadUuid(), status, error);
+    }
+
+    public void retryOrFail(WebhookEvent event, String error) {
+        if (event.getAttempts() >= maxAttempts) {
+            logger.warn("Giving up on callback for payload {} after {} attempts: {}", event.getPayloadUuid(), event.getAttempts(), error);
+            complete(event, "FAILED", error);
+            return;
+        }
+        long delayMs = Math.min(backoffMaxMs, backoffInitialMs << Math.min(event.getAttempts() - 1, 20));
+        // Jitter so events failing together do not retry together
+        delayMs = ThreadLocalRandom.current().nextLong(delayMs / 2, delayMs + 1);
+        logger.warn("Processing callback for payload {} failed, retrying in {} ms: {}", event.getPayloadUuid(), delayMs, error);
+        webhookEventRepository.reschedule(event.getPayloadUuid(), error, delayMs / 1000.0);
+    }
+
+    public boolean awaitWork(long timeoutMs) throws InterruptedException {
+        return workAvailable.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void queued(String payloadUuid) {
+        logger.info("Queued callback for payload {}", payloadUuid);
+        workAvailable.release();
+    }
+
+    private List<String> requireUuids(List<String> payloadUuids) {
+        if (payloadUuids == null || payloadUuids.isEmpty() || payloadUuids.stream().anyMatch(uuid -> uuid == null || uuid.isBlank())) {
+            throw new BadRequestException(
+                    "Callback without payload UUID",
+                    "Please provide the payload UUID(s) of the signed payment",
+                    "MISSING_PAYLOAD_UUID"
+            );
+        }
+        return payloadUuids;
+    }
+}
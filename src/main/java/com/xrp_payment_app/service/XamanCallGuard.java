@@ -0,0 +1,285 @@
+package com.xrp_payment_app.service;
+
+import com.xrp_payment_app.exception.UnprocessedException;
+import com.xrp_payment_app.exception.XamanUnavailableException;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Wraps every Xaman call so a Xaman brownout cannot hold request threads: a per-operation
+// deadline, a bulkhead (bounded concurrency plus a bounded wait queue), jittered retries
+// for idempotent GETs and a circuit breaker that fails fast while Xaman keeps failing.
+@Component
+public class XamanCallGuard {
+    private static final Logger logger = LoggerFactory.getLogger(XamanCallGuard.class);
+
+    enum BreakerState { CLOSED, OPEN, HALF_OPEN }
+
+    private record Waiter(MonoSink<Boolean> sink, AtomicBoolean done) {}
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final int getRetries;
+    private final Duration retryBackoff;
+    private final Duration attemptTimeout;
+    private final int failureThreshold;
+    private final long openMs;
+
+    // Bulkhead
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    // Circuit breaker, guarded by "this"
+    private BreakerState state = BreakerState.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+
+    private final Counter bulkheadRejections;
+    private final Counter breakerRejections;
+    private final Counter retries;
+    private final Counter timeouts;
+    private final PaymentMetrics paymentMetrics;
+
+    public XamanCallGuard(
+            MeterRegistry meterRegistry,
+            PaymentMetrics paymentMetrics,
+            @Value("${xaman.client.max-concurrent:32}") int maxConcurrent,
+            @Value("${xaman.client.max-queued:64}") int maxQueued,
+            @Value("${xaman.client.get-retries:2}") int getRetries,
+            @Value("${xaman.client.retry-backoff-ms:200}") long retryBackoffMs,
+            @Value("${xaman.client.attempt-timeout-ms:3000}") long attemptTimeoutMs,
+            @Value("${xaman.client.breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${xaman.client.breaker.open-ms:30000}") long openMs
+    ) {
+        this.paymentMetrics = paymentMetrics;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.getRetries = getRetries;
+        this.retryBackoff = Duration.ofMillis(retryBackoffMs);
+        this.attemptTimeout = Duration.ofMillis(attemptTimeoutMs);
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+
+        Gauge.builder("xaman.client.active", active, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("xaman.client.queued", queued, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("xaman.client.breaker.open", this, guard -> guard.breakerState() == BreakerState.CLOSED ? 0 : 1)
+                .register(meterRegistry);
+        this.bulkheadRejections = Counter.builder("xaman.client.rejected").tag("reason", "bulkhead").register(meterRegistry);
+        this.breakerRejections = Counter.builder("xaman.client.rejected").tag("reason", "circuit_open").register(meterRegistry);
+        this.retries = Counter.builder("xaman.client.retries").register(meterRegistry);
+        this.timeouts = Counter.builder("xaman.client.timeouts").register(meterRegistry);
+    }
+
+    // Payload creation is not idempotent, a retry could create a second payload
+    public <T> Mono<T> call(String operation, Duration deadline, Mono<T> request) {
+        return guarded(operation, deadline, request, false);
+    }
+
+    public <T> Mono<T> idempotentCall(String operation, Duration deadline, Mono<T> request) {
+        return guarded(operation, deadline, request, true);
+    }
+
+    private <T> Mono<T> guarded(String operation, Duration deadline, Mono<T> request, boolean retryable) {
+        Mono<T> attempt = Mono.defer(() -> {
+            if (!allowRequest()) {
+                breakerRejections.increment();
+                return Mono.error(new XamanUnavailableException("Xaman circuit open, rejected " + operation, null));
+            }
+            // Retried calls cap each attempt so a hung one leaves time for the next
+            Mono<T> bounded = retryable ? request.timeout(attemptTimeout) : request;
+            Mono<Void> release = Mono.fromRunnable(this::release);
+            return Mono.usingWhen(acquire(operation), permit -> bounded,
+                            permit -> release, (permit, error) -> release, permit -> release)
+                    .doOnSuccess(result -> onSuccess())
+                    .doOnError(this::onFailure)
+                    .doOnCancel(this::onCancel);
+        });
+
+        if (retryable && getRetries > 0) {
+            attempt = attempt.retryWhen(Retry.backoff(getRetries, retryBackoff)
+                    .jitter(0.5)
+                    .filter(this::isTransient)
+                    .doBeforeRetry(signal -> {
+                        retries.increment();
+                        logger.warn("Retrying Xaman {} (attempt {}): {}", operation, signal.totalRetries() + 2, signal.failure().getMessage());
+                    })
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        }
+
+        // Timed as the caller sees it, including queueing and retries
+        return paymentMetrics.timeXaman(operation, attempt.timeout(deadline)
+                .onErrorMap(error -> translate(operation, error)));
+    }
+
+    private Mono<Boolean> acquire(String operation) {
+        return Mono.create(sink -> {
+            if (tryAcquire()) {
+                sink.success(Boolean.TRUE);
+                return;
+            }
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                bulkheadRejections.increment();
+                sink.error(new XamanUnavailableException("Xaman bulkhead full, rejected " + operation, null));
+                return;
+            }
+            Waiter waiter = new Waiter(sink, new AtomicBoolean());
+            waiters.add(waiter);
+            // A waiter that hits its deadline gives up its queue slot
+            sink.onCancel(() -> {
+                if (waiter.done().compareAndSet(false, true)) {
+                    waiters.remove(waiter);
+                    queued.decrementAndGet();
+                }
+            });
+            drain();
+        });
+    }
+
+    private void release() {
+        active.decrementAndGet();
+        drain();
+    }
+
+    // Hands free permits to queued waiters in arrival order
+    private void drain() {
+        while (!waiters.isEmpty() && tryAcquire()) {
+            Waiter waiter = waiters.poll();
+            if (waiter == null) {
+                active.decrementAndGet();
+                continue;
+            }
+            if (waiter.done().compareAndSet(false, true)) {
+                queued.decrementAndGet();
+                waiter.sink().success(Boolean.TRUE);
+            } else {
+                active.decrementAndGet();
+            }
+        }
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = active.get();
+            if (current >= maxConcurrent) {
+                return false;
+            }
+            if (active.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private synchronized boolean allowRequest() {
+        if (state == BreakerState.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            state = BreakerState.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == BreakerState.OPEN) {
+            return false;
+        }
+        if (state == BreakerState.HALF_OPEN) {
+            // A single trial call decides whether Xaman is back
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    private synchronized void onSuccess() {
+        if (state != BreakerState.CLOSED) {
+            logger.info("Xaman circuit closed");
+        }
+        state = BreakerState.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    // A trial call cut off by the caller's deadline must not block the next one
+    private synchronized void onCancel() {
+        trialInFlight = false;
+    }
+
+    private void onFailure(Throwable error) {
+        if (error instanceof TimeoutException) {
+            timeouts.increment();
+        }
+        // A rejected request says nothing about Xaman's health
+        if (!isTransient(error)) {
+            synchronized (this) {
+                trialInFlight = false;
+            }
+            return;
+        }
+        synchronized (this) {
+            consecutiveFailures++;
+            if (state == BreakerState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                if (state != BreakerState.OPEN) {
+                    logger.warn("Xaman circuit opened after {} consecutive failures: {}", consecutiveFailures, error.getMessage());
+                }
+                state = BreakerState.OPEN;
+                openedAt = System.currentTimeMillis();
+                trialInFlight = false;
+            }
+        }
+    }
+
+    private boolean isTransient(Throwable error) {
+        if (error instanceof TimeoutException || error instanceof WebClientRequestException) {
+            return true;
+        }
+        if (error instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is5xxServerError() || responseException.getStatusCode().value() == 429;
+        }
+        return false;
+    }
+
+    private Throwable translate(String operation, Throwable error) {
+        if (error instanceof XamanUnavailableException) {
+            return error;
+        }
+        if (error instanceof TimeoutException || isTransient(error)) {
+            return new XamanUnavailableException("Xaman " + operation + " failed: " + error.getMessage(), error);
+        }
+        if (error instanceof WebClientResponseException responseException) {
+            return new UnprocessedException(
+                    "Xaman " + operation + " rejected with " + responseException.getStatusCode().value() + ": " + responseException.getResponseBodyAsString(),
+                    error,
+                    "Xaman rejected the request",
+                    "XAMAN_REQUEST_REJECTED"
+            );
+        }
+        return error;
+    }
+
+    synchronized BreakerState breakerState() {
+        return state;
+    }
+
+    public int queueDepth() {
+        return queued.get();
+    }
+}
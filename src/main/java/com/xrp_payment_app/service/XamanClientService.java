@@ -1,29 +1,44 @@
 package com.xrp_payment_app.service;
 
-import java.util.List;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.web.reactive.function.BodyInserter;
 import org.springframework.web.reactive.function.client.WebClient;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.xrp_payment_app.dto.SubmitResultResponse;
-import com.xrp_payment_app.dto.SuccessPaymentResponse;
-import com.xrp_payment_app.entity.Transaction;
-import com.xrp_payment_app.repository.TransactionRepository;
+import com.xrp_payment_app.dto.XamanPayloadCreated;
+import com.xrp_payment_app.utils.XamanPayloadBuilder;
 
-import jakarta.transaction.Transactional;
+import reactor.core.publisher.Mono;
 
 @Service
 public class XamanClientService {
 
     private static final Logger logger = LoggerFactory.getLogger(XamanClientService.class);
 
+    private record CachedPayload(JsonNode payload, long expiresAtNanos) {}
+
+    public record PayloadCacheStats(long hits, long misses, int size, int maxConcurrentFetches, long avgFetchMs, long latencySavedMs) {
+        public double hitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+    }
+
     @Value("${xaman.api.key}")
     private String xamanApiKey;
 
@@ -34,52 +49,72 @@ public class XamanClientService {
     private String xamanApiBaseUrlV1;
 
 
-    @Autowired
-    private final TransactionRepository transactionRepository;
-    
     @Autowired
     private XrplService xrplService;
     private final WebClient xamanWebClient;
+    private final XamanCallGuard xamanCallGuard;
+    private final XamanPayloadBuilder xamanPayloadBuilder;
+    private final Duration createDeadline;
+    private final Duration getDeadline;
+
+    // Signed payloads never change, repeated callbacks and status reads are served from here
+    private final Map<String, CachedPayload> signedPayloads;
+    private final long payloadTtlNanos;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong fetchNanos = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+    private final AtomicInteger fetchesInFlight = new AtomicInteger();
+    private final AtomicInteger maxConcurrentFetches = new AtomicInteger();
 
 
     public XamanClientService(
         WebClient xamanWebClient, 
-        TransactionRepository transactionRepository,
-        XrplService xrplService
+        XrplService xrplService,
+        XamanCallGuard xamanCallGuard,
+        XamanPayloadBuilder xamanPayloadBuilder,
+        @Value("${xaman.client.create-deadline-ms:10000}") long createDeadlineMs,
+        @Value("${xaman.client.get-deadline-ms:8000}") long getDeadlineMs,
+        @Value("${xaman.payload-cache.max-entries:10000}") int maxEntries,
+        @Value("${xaman.payload-cache.ttl-seconds:600}") long ttlSeconds
     ) {
         this.xamanWebClient = xamanWebClient;
-        this.transactionRepository = transactionRepository; 
         this.xrplService = xrplService;
+        this.xamanCallGuard = xamanCallGuard;
+        this.xamanPayloadBuilder = xamanPayloadBuilder;
+        this.createDeadline = Duration.ofMillis(createDeadlineMs);
+        this.getDeadline = Duration.ofMillis(getDeadlineMs);
+        this.payloadTtlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.signedPayloads = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPayload> eldest) {
+                return size() > maxEntries;
+            }
+        });
     }
 
-    public JsonNode callXamanCreatePayload(ObjectNode payload) throws JsonProcessingException {
-        
-        // ObjectMapper mapper = new ObjectMapper();
-        // String jsonPayload = mapper.writeValueAsString(payload);
-
-        logger.info("Creating Xaman payload: {}", payload.toString());
-        logger.info("xamanApiKey: {}", xamanApiKey);
-        logger.info("xamanApiSecret: {}", xamanApiSecret);
-        logger.info("xamanApiBaseUrlV1: {}", xamanApiBaseUrlV1);
+    public XamanPayloadCreated callXamanCreatePayload(XamanPayloadBuilder.PaymentPayload payload) {
+        // Bounded by the create deadline, failures surface as XamanUnavailableException or UnprocessedException
+        return createPayloadAsync(payload).block();
+    }
 
-        try {
-
-            JsonNode response = xamanWebClient.post()
-                .uri("/payload")
-                .header("X-API-Key", xamanApiKey)
-                .header("X-API-Secret", xamanApiSecret)
-                .header("Content-Type", "application/json")
-                .header("accept", "application/json")
-                .bodyValue(payload)
-                .retrieve()
-                .bodyToMono(JsonNode.class)
-                .block();
-
-            return response;
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create Xaman payload: " + e.getMessage(), e);
-        }
-        
+    // The payload is encoded into the request's own buffer when the request is written
+    public Mono<XamanPayloadCreated> createPayloadAsync(XamanPayloadBuilder.PaymentPayload payload) {
+        BodyInserter<DataBuffer, ReactiveHttpOutputMessage> body = (message, context) ->
+            message.writeWith(Mono.fromSupplier(() -> xamanPayloadBuilder.encode(payload, message.bufferFactory())));
+        return xamanCallGuard.call("create_payload", createDeadline, xamanWebClient.post()
+            .uri("/payload")
+            .header("X-API-Key", xamanApiKey)
+            .header("X-API-Secret", xamanApiSecret)
+            .header("Content-Type", "application/json")
+            .header("accept", "application/json")
+            .body(body)
+            .retrieve()
+            .bodyToFlux(DataBuffer.class)
+            .as(DataBufferUtils::join)
+            .map(xamanPayloadBuilder::readCreated));
     }
 
     public JsonNode getXamanPayload(String uuid) {
@@ -91,118 +126,72 @@ public class XamanClientService {
         logger.info("xamanApiSecret: {}", xamanApiSecret);
         logger.info("xamanApiBaseUrlV1: {}", xamanApiBaseUrlV1);
 
-        try {
-
-            JsonNode response = xamanWebClient.get()
-                .uri("/payload/{uuid}", uuid)
-                .header("X-API-Key", xamanApiKey)
-                .header("X-API-Secret", xamanApiSecret)
-                .header("Content-Type", "application/json")
-                .header("accept", "application/json")
-                .retrieve()
-                .bodyToMono(JsonNode.class)
-                .block();
-
-            return response;
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create Xaman payload: " + e.getMessage(), e);
-        }
-        
+        return getPayloadAsync(uuid).block();
     }
 
-    @Transactional
-    public void handleXamanCallback(String payloadUuid, String paymentTxHash, List<String> signedTxBlobs) throws Exception {
-
-        // String HexEx = "1200002400D03939201B00D07DB26140000000000000646840000000000000C7321020B7628A262E9D16B2E2EFD744FBEBBCA3599C6CCEF1FB44D1289B34C6781A6474473F45F221F9EAFEA9AA7674C12FECFED845F5F5D5E5F5F5F5F5F5F5F5F5F5F5F5F";
-    
-        // Submit main payment
-        SubmitResultResponse mainResult = xrplService.submitSignedBlob(signedTxBlobs.get(0));
-        // Submit fee payment only if main succeeded
-        if (mainResult.engineResult().equals("tesSUCCESS")) {
-            Transaction mainTx = transactionRepository.findByPaymentReferenceAndPaymentType(payloadUuid, "USER_PAYMENT");
-            mainTx.setTransactionHash(mainResult.transactionHash());
-            mainTx.setStatus(mainResult.engineResult().equals("tesSUCCESS") ? "CONFIRMED" : "FAILED");
-            transactionRepository.save(mainTx);
-
-            SubmitResultResponse feeResult = xrplService.submitSignedBlob(signedTxBlobs.get(1));
-            Transaction feeTx = transactionRepository.findByPaymentReferenceAndPaymentType(payloadUuid, "PLATFORM_FEE");
-            feeTx.setTransactionHash(feeResult.transactionHash());
-            feeTx.setStatus(feeResult.engineResult().equals("tesSUCCESS") ? "CONFIRMED" : "FAILED");
-            transactionRepository.save(feeTx);
-        }
+    public Mono<JsonNode> getPayloadAsync(String uuid) {
+        return Mono.defer(() -> {
+            CachedPayload cached = signedPayloads.get(uuid);
+            if (cached != null && cached.expiresAtNanos() - System.nanoTime() > 0) {
+                hits.incrementAndGet();
+                // Credit the hit with what a fetch costs on average
+                long fetched = fetches.get();
+                if (fetched > 0) {
+                    savedNanos.addAndGet(fetchNanos.get() / fetched);
+                }
+                return Mono.just(cached.payload());
+            }
+            misses.incrementAndGet();
+            maxConcurrentFetches.accumulateAndGet(fetchesInFlight.incrementAndGet(), Math::max);
+            long start = System.nanoTime();
+            return fetchPayload(uuid)
+                .doOnNext(payload -> {
+                    fetches.incrementAndGet();
+                    fetchNanos.addAndGet(System.nanoTime() - start);
+                    if (isSigned(payload)) {
+                        signedPayloads.put(uuid, new CachedPayload(payload, System.nanoTime() + payloadTtlNanos));
+                    }
+                })
+                .doFinally(signal -> fetchesInFlight.decrementAndGet());
+        });
     }
 
-    @Transactional
-    public SuccessPaymentResponse handleBatchSignCallback(List<String> payloadUuids, String signedTxStatus) throws Exception {
-    
-        // Submit main payment
-        if(!signedTxStatus.equals("SIGNED")) {
-            throw new RuntimeException("Transaction not signed");
-        }
-        JsonNode mainPaymentPayload = getXamanPayload(payloadUuids.get(0));
-        String signedMainTxBlob = mainPaymentPayload.path("response").path("hex").asText();
-
-        JsonNode feePaymentPayload = getXamanPayload(payloadUuids.get(1));
-        String signedFeeTxBlob = feePaymentPayload.path("response").path("hex").asText();
-
-        List<String> signedTxBlobs = List.of(signedMainTxBlob, signedFeeTxBlob);
-        logger.info("User payload Hex: {}, User Uuid: {}", signedMainTxBlob, payloadUuids.get(0));
-        logger.info("Fee payload Hex: {}, Fee Uuid: {}", signedFeeTxBlob, payloadUuids.get(1));
-
-        SubmitResultResponse mainResult = xrplService.submitSignedBlob(signedTxBlobs.get(0));
-        // Submit fee payment only if main succeeded
-        if (mainResult.engineResult().equals("tesSUCCESS")) {
-            Transaction mainTx = transactionRepository.findByPaymentReferenceAndPaymentType(payloadUuids.get(0), "USER_PAYMENT");
-            mainTx.setTransactionHash(mainResult.transactionHash());
-            mainTx.setStatus(mainResult.engineResult().equals("tesSUCCESS") ? "CONFIRMED" : "FAILED");
-            transactionRepository.save(mainTx);
-
-            SubmitResultResponse feeResult = xrplService.submitSignedBlob(signedTxBlobs.get(1));
-            Transaction feeTx = transactionRepository.findByPaymentReferenceAndPaymentType(payloadUuids.get(1), "PLATFORM_FEE");
-            feeTx.setTransactionHash(feeResult.transactionHash());
-            feeTx.setStatus(feeResult.engineResult().equals("tesSUCCESS") ? "CONFIRMED" : "FAILED");
-            transactionRepository.save(feeTx);
-
-            // PaymentResponse responsePayload = getXamanPayload(payloadUuids.get(0));
-            return new SuccessPaymentResponse("COMPLETED", mainResult.transactionHash(), feeResult.transactionHash(), "Payment successful");
-        } else {
-            Transaction mainTx = transactionRepository.findByPaymentReferenceAndPaymentType(payloadUuids.get(0), "USER_PAYMENT");
-            mainTx.setTransactionHash(mainResult.transactionHash());
-            mainTx.setStatus(mainResult.engineResult().equals("tesSUCCESS") ? "CONFIRMED" : "FAILED");
-            transactionRepository.save(mainTx);
-        }
+    private Mono<JsonNode> fetchPayload(String uuid) {
+        return xamanCallGuard.idempotentCall("get_payload", getDeadline, xamanWebClient.get()
+            .uri("/payload/{uuid}", uuid)
+            .header("X-API-Key", xamanApiKey)
+            .header("X-API-Secret", xamanApiSecret)
+            .header("Content-Type", "application/json")
+            .header("accept", "application/json")
+            .retrieve()
+            .bodyToMono(JsonNode.class));
+    }
 
-        throw new RuntimeException("Main payment failed with engine result: " + mainResult.engineResult());
+    // Only a resolved, signed payload is final; pending ones still change
+    private boolean isSigned(JsonNode payload) {
+        JsonNode meta = payload.path("meta");
+        return meta.path("resolved").asBoolean(false)
+            && meta.path("signed").asBoolean(false)
+            && !payload.path("response").path("hex").asText("").isEmpty();
     }
 
-    @Transactional
-    public SuccessPaymentResponse handleSignCallback(String payloadUuid, String signedTxStatus) throws Exception {
-    
-        // Submit main payment
-        if(!signedTxStatus.equals("SIGNED")) {
-            throw new RuntimeException("Transaction not signed");
-        }
-        JsonNode mainPaymentPayload = getXamanPayload(payloadUuid);
-        String signedMainTxBlob = mainPaymentPayload.path("response").path("hex").asText();
-        logger.info("User payload Hex: {}, User Uuid: {}", signedMainTxBlob, payloadUuid);
-
-        SubmitResultResponse mainResult = xrplService.submitSignedBlob(signedMainTxBlob);
-        // Submit fee payment only if main succeeded
-        if (mainResult.engineResult().equals("tesSUCCESS")) {
-            Transaction mainTx = transactionRepository.findByPaymentReferenceAndPaymentType(payloadUuid, "USER_PAYMENT");
-            mainTx.setTransactionHash(mainResult.transactionHash());
-            mainTx.setStatus(mainResult.engineResult().equals("tesSUCCESS") ? "CONFIRMED" : "FAILED");
-            transactionRepository.save(mainTx);
-
-            return new SuccessPaymentResponse("COMPLETED", mainResult.transactionHash(), null, "Payment successful");
-        } else {
-            Transaction mainTx = transactionRepository.findByPaymentReferenceAndPaymentType(payloadUuid, "USER_PAYMENT");
-            mainTx.setTransactionHash(mainResult.transactionHash());
-            mainTx.setStatus(mainResult.engineResult().equals("tesSUCCESS") ? "CONFIRMED" : "FAILED");
-            transactionRepository.save(mainTx);
-        }
+    public PayloadCacheStats payloadCacheStats() {
+        long fetched = fetches.get();
+        return new PayloadCacheStats(hits.get(), misses.get(), signedPayloads.size(), maxConcurrentFetches.get(),
+            fetched == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(fetchNanos.get() / fetched),
+            TimeUnit.NANOSECONDS.toMillis(savedNanos.get()));
+    }
 
-        throw new RuntimeException("Main payment failed with engine result: " + mainResult.engineResult());
+    @Scheduled(fixedDelayString = "${xaman.payload-cache.cleanup-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        synchronized (signedPayloads) {
+            signedPayloads.values().removeIf(cached -> cached.expiresAtNanos() - now <= 0);
+        }
+        PayloadCacheStats stats = payloadCacheStats();
+        logger.info("Xaman payload cache: hits={}, misses={} ({}% hit rate), size={}, maxConcurrentFetches={}, avgFetchMs={}, latencySavedMs={}",
+            stats.hits(), stats.misses(), String.format("%.2f", stats.hitRate() * 100), stats.size(),
+            stats.maxConcurrentFetches(), stats.avgFetchMs(), stats.latencySavedMs());
     }
 
 }
\ No newline at end of file
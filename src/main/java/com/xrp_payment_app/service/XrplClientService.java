@@ -1,33 +1,114 @@
 package com.xrp_payment_app.service;
 
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.primitives.UnsignedInteger;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.xrpl.xrpl4j.client.XrplClient;
+import org.xrpl.xrpl4j.client.JsonRpcClientErrorException;
+import org.xrpl.xrpl4j.crypto.signing.SingleSignedTransaction;
 import org.xrpl.xrpl4j.model.client.accounts.AccountInfoRequestParams;
 import org.xrpl.xrpl4j.model.client.accounts.AccountInfoResult;
+import org.xrpl.xrpl4j.model.client.common.LedgerIndex;
+import org.xrpl.xrpl4j.model.client.common.LedgerSpecifier;
 import org.xrpl.xrpl4j.model.client.fees.FeeResult;
+import org.xrpl.xrpl4j.model.client.transactions.SubmitRequestParams;
+import org.xrpl.xrpl4j.model.client.transactions.SubmitResult;
 import org.xrpl.xrpl4j.model.ledger.AccountRootObject;
 import org.xrpl.xrpl4j.model.transactions.Address;
+import org.xrpl.xrpl4j.model.transactions.Transaction;
 
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class XrplClientService {
     private static final Logger logger = LoggerFactory.getLogger(XrplClientService.class);
 
-    private final XrplClient xrplClient;
+    // Account state is only reused within the validated ledger it was read in
+    private record AccountKey(String address, long ledgerIndex) {}
+
+    public record AccountCacheStats(long hits, long misses, long coalesced, long evictions, int size) {}
+
+    private final XrplTransport xrplTransport;
+    private final XrplStreamService xrplStreamService;
+    private final PaymentMetrics paymentMetrics;
+    private final long streamStaleAfterMs;
+
+    private final ConcurrentHashMap<AccountKey, CompletableFuture<AccountRootObject>> inFlight = new ConcurrentHashMap<>();
+    private final Map<AccountKey, AccountRootObject> accountCache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
 
-    public XrplClientService(XrplClient xrplClient) {
-        this.xrplClient = xrplClient;
+    public XrplClientService(
+            XrplTransport xrplTransport,
+            XrplStreamService xrplStreamService,
+            PaymentMetrics paymentMetrics,
+            @Value("${xrpl.account-cache.max-entries:10000}") int maxEntries,
+            @Value("${xrpl.finality.stream-stale-after-ms:30000}") long streamStaleAfterMs
+    ) {
+        this.xrplTransport = xrplTransport;
+        this.xrplStreamService = xrplStreamService;
+        this.paymentMetrics = paymentMetrics;
+        this.streamStaleAfterMs = streamStaleAfterMs;
+        this.accountCache = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<AccountKey, AccountRootObject> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        });
+
+        paymentMetrics.registerCounter(PaymentMetrics.ACCOUNT_CACHE_REQUESTS, hits, AtomicLong::get, "result", "hit");
+        paymentMetrics.registerCounter(PaymentMetrics.ACCOUNT_CACHE_REQUESTS, misses, AtomicLong::get, "result", "miss");
+        paymentMetrics.registerCounter(PaymentMetrics.ACCOUNT_CACHE_REQUESTS, coalesced, AtomicLong::get, "result", "coalesced");
+        paymentMetrics.registerCounter(PaymentMetrics.ACCOUNT_CACHE_EVICTIONS, evictions, AtomicLong::get);
+        paymentMetrics.registerGauge(PaymentMetrics.ACCOUNT_CACHE_SIZE, accountCache, Map::size);
     }
 
-    public XrplClient getXrplClient() {
-        try {
-            return xrplClient;
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to fetch XRPL Client", e);
+    // Failing over to another node is safe, a signed transaction can only be applied once
+    public <T extends Transaction> SubmitResult<T> submit(SingleSignedTransaction<T> signedTransaction) throws JsonRpcClientErrorException {
+        SubmitRequestParams params = SubmitRequestParams.of(signedTransaction.signedTransactionBytes().hexValue());
+        JavaType resultType = xrplTransport.objectMapper().getTypeFactory()
+                .constructParametricType(SubmitResult.class, signedTransaction.signedTransaction().getClass());
+        SubmitResult<T> result = request("submit", params, resultType);
+        paymentMetrics.countEngineResult(result.engineResult());
+        return result;
+    }
+
+    // Typed request over the shared transport, rippled errors surface as JsonRpcClientErrorException like xrpl4j's client
+    private <T> T request(String method, Object params, JavaType resultType) throws JsonRpcClientErrorException {
+        ObjectMapper objectMapper = xrplTransport.objectMapper();
+        JsonNode result = xrplTransport.send(method, objectMapper.valueToTree(params)).block();
+        if (result == null || result.isMissingNode()) {
+            throw new JsonRpcClientErrorException("Empty " + method + " response");
+        }
+        if (result.has("error")) {
+            throw new JsonRpcClientErrorException(result.path("error_message").asText(result.path("error").asText()));
         }
+        return objectMapper.convertValue(result, resultType);
+    }
+
+    private <T> T request(String method, Object params, Class<T> resultType) throws JsonRpcClientErrorException {
+        return request(method, params, xrplTransport.objectMapper().constructType(resultType));
     }
 
     public BigDecimal getBalance(String address) throws Exception {
@@ -36,35 +117,110 @@ public class XrplClientService {
                 throw new IllegalArgumentException("Address cannot be null or empty");
             }
             logger.info("Inquiring account balance");
-            AccountInfoRequestParams params = AccountInfoRequestParams.of(Address.of(address));
-            AccountInfoResult result = xrplClient.accountInfo(params);
-            return result.accountData().balance().toXrp();
+            return getAccountData(address).balance().toXrp();
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch balance for " + address);
         }
     }
 
+    // Concurrent callers for the same address and ledger share one account_info request
     public AccountRootObject getAccountData(String address) {
+        if (address == null || address.trim().isEmpty()) {
+            throw new RuntimeException("Failed to fetch account details for " + address,
+                    new IllegalArgumentException("Address cannot be null or empty"));
+        }
+
+        // Without a live ledger stream there is no safe cache boundary, only coalesce
+        long ledgerIndex = xrplStreamService.isHealthy(streamStaleAfterMs) ? xrplStreamService.lastLedgerIndex() : -1;
+        AccountKey key = new AccountKey(address, ledgerIndex);
+
+        if (ledgerIndex > 0) {
+            AccountRootObject cached = accountCache.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<AccountRootObject> request = new CompletableFuture<>();
+        CompletableFuture<AccountRootObject> existing = inFlight.putIfAbsent(key, request);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw new RuntimeException("Failed to fetch account details for " + address, e.getCause());
+            }
+        }
+
         try {
-            if (address == null || address.trim().isEmpty()) {
-                throw new IllegalArgumentException("Address cannot be null or empty");
+            AccountRootObject accountData = ledgerIndex > 0 ? getAccountDataAt(address, ledgerIndex) : null;
+            if (accountData != null) {
+                accountCache.put(key, accountData);
+            } else {
+                accountData = getAccountDataUncached(address);
             }
+            request.complete(accountData);
+            return accountData;
+        } catch (RuntimeException e) {
+            request.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+            throw e;
+        } finally {
+            inFlight.remove(key, request);
+        }
+    }
+
+    // For callers that must see their own just-submitted transactions, e.g. sequence resync
+    public AccountRootObject getAccountDataUncached(String address) {
+        try {
             logger.info("Inquiring account information");
             AccountInfoRequestParams params = AccountInfoRequestParams.of(Address.of(address));
-            AccountInfoResult result = xrplClient.accountInfo(params);
+            AccountInfoResult result = request("account_info", params, AccountInfoResult.class);
             return result.accountData();
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch account details for " + address, e);
         }
     }
 
+    // Read at the ledger the entry is cached under, so the cache key matches the data. Null when
+    // the node answering does not have that ledger yet, the caller then reads without caching
+    private AccountRootObject getAccountDataAt(String address, long ledgerIndex) {
+        try {
+            AccountInfoRequestParams params = AccountInfoRequestParams.builder()
+                    .account(Address.of(address))
+                    .ledgerSpecifier(LedgerSpecifier.ledgerIndex(LedgerIndex.of(UnsignedInteger.valueOf(ledgerIndex))))
+                    .build();
+            return request("account_info", params, AccountInfoResult.class).accountData();
+        } catch (JsonRpcClientErrorException e) {
+            logger.debug("account_info for {} at ledger {} failed, reading without caching: {}", address, ledgerIndex, e.getMessage());
+            return null;
+        }
+    }
+
+    public AccountCacheStats accountCacheStats() {
+        return new AccountCacheStats(hits.get(), misses.get(), coalesced.get(), evictions.get(), accountCache.size());
+    }
+
+    // Entries from older ledgers can never be hit again
+    @Scheduled(fixedDelayString = "${xrpl.account-cache.cleanup-interval-ms:60000}")
+    public void evictSuperseded() {
+        long ledgerIndex = xrplStreamService.lastLedgerIndex();
+        synchronized (accountCache) {
+            accountCache.keySet().removeIf(key -> key.ledgerIndex() < ledgerIndex);
+        }
+        AccountCacheStats stats = accountCacheStats();
+        logger.info("Account cache: hits={}, misses={}, coalesced={}, evictions={}, size={}",
+                stats.hits(), stats.misses(), stats.coalesced(), stats.evictions(), stats.size());
+    }
+
     public FeeResult getFees() {
         try {
             logger.info("Inquiring payment fees");
-            return xrplClient.fee();
+            return request("fee", Collections.emptyMap(), FeeResult.class);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch payment fees", e);
         }
     }
 
-}
\ No newline at end of file
+}
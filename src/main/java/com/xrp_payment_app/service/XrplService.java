@@ -1,45 +1,54 @@
 package com.xrp_payment_app.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import org.springframework.web.reactive.function.client.WebClient;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 // import org.slf4j.Logger;
 // import org.slf4j.LoggerFactory;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
+import reactor.core.publisher.Mono;
+
 // import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xrp_payment_app.dto.SubmitResultResponse;
+import com.xrp_payment_app.exception.UnprocessedException;
+import com.xrp_payment_app.exception.XrpServiceException;
+import com.xrp_payment_app.utils.PaymentMetrics;
+import com.xrp_payment_app.utils.TransactionHashes;
 
 @Service
 public class XrplService {
 
+    // rippled refused the submit request itself, so the transaction was never relayed
+    public static final String SUBMIT_REJECTED = "XRPL_SUBMIT_REJECTED";
+
     // private static final Logger logger = LoggerFactory.getLogger(XrplService.class);
 
-    private final WebClient xrplWebClient;
+    private final XrplTransport xrplTransport;
+    private final PaymentMetrics paymentMetrics;
+
+    public XrplService(XrplTransport xrplTransport, PaymentMetrics paymentMetrics) {
+        this.xrplTransport = xrplTransport;
+        this.paymentMetrics = paymentMetrics;
+    }
 
-    public XrplService(WebClient xrplWebClient) {
-        this.xrplWebClient = xrplWebClient;
+    public static boolean isSubmitRejected(Throwable error) {
+        return error instanceof XrpServiceException serviceException && SUBMIT_REJECTED.equals(serviceException.getErrorCode());
     }
 
-    public WebClient getXrplWebClient() {
+    public SubmitResultResponse submitSignedBlob(String signedTxBlob) {
         try {
-            return xrplWebClient;
+            return submitSignedBlobAsync(signedTxBlob).block();
+        } catch (XrpServiceException e) {
+            throw e;
+        } catch (WebClientResponseException e) {
+            throw new RuntimeException("XRPL node returned error: " + e.getStatusCode() + " - " + e.getResponseBodyAsString(), e);
         } catch (Exception e) {
-            throw new RuntimeException("Failed to fetch XRPL WebClient", e);
+            throw new RuntimeException("Failed to submit transaction or parse response", e);
         }
     }
 
-    public SubmitResultResponse submitSignedBlob(String signedTxBlob) {
-
-        String requestBody = """
-            {
-                "method": "submit",
-                "params": [{
-                    "tx_blob": "%s"
-                }]
-            }
-            """.formatted(signedTxBlob);
+    public Mono<SubmitResultResponse> submitSignedBlobAsync(String signedTxBlob) {
 
         // // Blocking call
         // String responseBody = webClient.post()
@@ -63,33 +72,90 @@ public class XrplService {
         //     throw new RuntimeException("Failed to parse submit response", e);
         // }
 
+        // The hash is derived from the blob, it does not depend on what rippled echoes back
+        return Mono.fromSupplier(() -> TransactionHashes.fromSignedBlob(signedTxBlob))
+                .flatMap(transactionHash -> xrplTransport.submit(signedTxBlob)
+                        .map(result -> {
+                            if (!result.error().isEmpty()) {
+                                // e.g. invalidTransaction for a blob that does not decode or verify
+                                throw new UnprocessedException(
+                                        "rippled rejected submit of " + transactionHash + ": " + result.error() + " " + result.engineResultMessage(),
+                                        "The XRP Ledger rejected the transaction",
+                                        SUBMIT_REJECTED
+                                );
+                            }
+                            if (result.engineResult().isEmpty()) {
+                                throw new RuntimeException("No engine result in the submit response for " + transactionHash);
+                            }
+                            paymentMetrics.countEngineResult(result.engineResult());
+                            return new SubmitResultResponse(result.engineResult(), result.engineResultMessage(), transactionHash,
+                                    result.isTentativelyAccepted(), result.error());
+                        }));
+    }
+
+    // Returns result.account_data, Balance is in drops
+    public Mono<JsonNode> getAccountInfoAsync(String address) {
+
+        ObjectNode params = xrplTransport.objectMapper().createObjectNode()
+                .put("account", address)
+                .put("ledger_index", "current");
+
+        return xrplTransport.send("account_info", params)
+                .map(resultNode -> {
+                    if (resultNode.has("error")) {
+                        throw new RuntimeException("Failed to fetch account details for " + address + ": " + resultNode.path("error").asText());
+                    }
+                    return resultNode.path("account_data");
+                });
+    }
+
+    // The next Sequence of the account in the last validated ledger
+    public long getValidatedAccountSequence(String address) {
+
+        ObjectNode params = xrplTransport.objectMapper().createObjectNode()
+                .put("account", address)
+                .put("ledger_index", "validated");
+
+        JsonNode resultNode;
         try {
-            JsonNode responseJson = xrplWebClient.post()
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(JsonNode.class)
-                    .block();
+            resultNode = xrplTransport.send("account_info", params).block();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch validated account details for " + address, e);
+        }
+        if (resultNode.has("error")) {
+            throw new RuntimeException("Failed to fetch validated account details for " + address + ": " + resultNode.path("error").asText());
+        }
+        return resultNode.path("account_data").path("Sequence").asLong();
+    }
+
+    public JsonNode getTransaction(String transactionHash) {
+
+        ObjectNode params = xrplTransport.objectMapper().createObjectNode()
+                .put("transaction", transactionHash)
+                .put("binary", false);
 
-            // Parse the response
-            JsonNode resultNode = responseJson.path("result");
+        try {
+            // Not found is reported as result.error = "txnNotFound"
+            return xrplTransport.send("tx", params).block();
 
-            String engineResult = resultNode.path("engine_result").asText();
-            String message = resultNode.path("engine_result_message").asText("");
-            String txHash = resultNode.path("tx_json").path("hash").asText();
+        } catch (WebClientResponseException e) {
+            throw new RuntimeException("XRPL node returned error: " + e.getStatusCode() + " - " + e.getResponseBodyAsString(), e);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch transaction " + transactionHash, e);
+        }
+    }
 
-            if (txHash.isBlank()) {
-                throw new RuntimeException("Transaction hash not found in response. Engine result: " + engineResult);
-            }
+    public JsonNode getServerInfo() {
 
-            boolean tentativelyAccepted = engineResult.startsWith("tes");
+        try {
+            JsonNode resultNode = xrplTransport.send("server_info", xrplTransport.objectMapper().createObjectNode()).block();
 
-            return new SubmitResultResponse(engineResult, message, txHash, tentativelyAccepted);
+            return resultNode.path("info");
 
         } catch (WebClientResponseException e) {
             throw new RuntimeException("XRPL node returned error: " + e.getStatusCode() + " - " + e.getResponseBodyAsString(), e);
         } catch (Exception e) {
-            throw new RuntimeException("Failed to submit transaction or parse response", e);
+            throw new RuntimeException("Failed to fetch server info", e);
         }
     }
     
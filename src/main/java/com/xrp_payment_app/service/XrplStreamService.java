@@ -0,0 +1,153 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xrp_payment_app.event.LedgerClosedEvent;
+import com.xrp_payment_app.event.ValidatedTransactionEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.WebsocketClientSpec;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.time.Duration;
+import java.util.function.Predicate;
+
+// Follows the validated ledger and transaction streams over xrpl.testnet.ws-url and
+// republishes them as application events. Of the network-wide transactions only those
+// matching the registered filter (the hashes FinalityTracker follows) become events.
+@Service
+public class XrplStreamService {
+    private static final Logger logger = LoggerFactory.getLogger(XrplStreamService.class);
+
+    private static final String SUBSCRIBE_REQUEST = """
+            {"id": "stream", "command": "subscribe", "streams": ["ledger", "transactions"]}
+            """;
+
+    private final ReactorNettyWebSocketClient webSocketClient;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ApplicationEventPublisher eventPublisher;
+    private final URI wsUri;
+    private final boolean enabled;
+
+    private volatile Predicate<String> transactionFilter = hash -> false;
+    private volatile Disposable connection;
+    private volatile long lastLedgerIndex;
+    private volatile long lastLedgerAt;
+
+    public XrplStreamService(
+            ApplicationEventPublisher eventPublisher,
+            @Value("${xrpl.testnet.ws-url}") String wsUrl,
+            @Value("${xrpl.stream.enabled:true}") boolean enabled,
+            @Value("${xrpl.websocket.max-frame-payload-length:1048576}") int maxFramePayloadLength
+    ) {
+        this.eventPublisher = eventPublisher;
+        // A single large transaction anywhere on the network exceeds the default 64 KiB frame limit
+        this.webSocketClient = new ReactorNettyWebSocketClient(HttpClient.create(),
+                () -> WebsocketClientSpec.builder().maxFramePayloadLength(maxFramePayloadLength));
+        this.wsUri = URI.create(wsUrl);
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            logger.info("XRPL stream disabled");
+            return;
+        }
+        connection = Mono.defer(() -> webSocketClient.execute(wsUri, this::handle))
+                .doOnError(e -> logger.warn("XRPL stream connection failed: {}", e.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .repeatWhen(completed -> completed.delayElements(Duration.ofSeconds(1)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (connection != null) {
+            connection.dispose();
+        }
+    }
+
+    public void publishTransactionsMatching(Predicate<String> filter) {
+        this.transactionFilter = filter;
+    }
+
+    public long lastLedgerIndex() {
+        return lastLedgerIndex;
+    }
+
+    public boolean isHealthy(long staleAfterMs) {
+        return lastLedgerAt > 0 && System.currentTimeMillis() - lastLedgerAt < staleAfterMs;
+    }
+
+    private Mono<Void> handle(WebSocketSession session) {
+        logger.info("XRPL stream connected to {}", wsUri);
+        return session.send(Mono.just(session.textMessage(SUBSCRIBE_REQUEST)))
+                .thenMany(session.receive()
+                        .map(WebSocketMessage::getPayloadAsText)
+                        .doOnNext(this::dispatch))
+                .then();
+    }
+
+    private void dispatch(String message) {
+        try {
+            JsonNode node = mapper.readTree(message);
+            switch (node.path("type").asText()) {
+                case "ledgerClosed" -> onLedgerClosed(node.path("ledger_index").asLong());
+                case "transaction" -> onTransaction(node);
+                case "response" -> {
+                    // The subscribe response carries the current validated ledger
+                    long ledgerIndex = node.path("result").path("ledger_index").asLong();
+                    if (ledgerIndex > 0) {
+                        onLedgerClosed(ledgerIndex);
+                    }
+                }
+                default -> { }
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to handle XRPL stream message: {}", e.getMessage());
+        }
+    }
+
+    private void onLedgerClosed(long ledgerIndex) {
+        if (ledgerIndex <= lastLedgerIndex) {
+            return;
+        }
+        lastLedgerIndex = ledgerIndex;
+        lastLedgerAt = System.currentTimeMillis();
+        eventPublisher.publishEvent(new LedgerClosedEvent(ledgerIndex));
+    }
+
+    private void onTransaction(JsonNode node) {
+        if (!node.path("validated").asBoolean()) {
+            return;
+        }
+        String hash = node.path("transaction").path("hash").asText("");
+        if (hash.isEmpty()) {
+            hash = node.path("hash").asText("");
+        }
+        if (!transactionFilter.test(hash)) {
+            return;
+        }
+        eventPublisher.publishEvent(new ValidatedTransactionEvent(
+                hash,
+                node.path("engine_result").asText(),
+                node.path("ledger_index").asLong()
+        ));
+    }
+}
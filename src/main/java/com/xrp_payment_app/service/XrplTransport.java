@@ -0,0 +1,29 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.xrp_payment_app.dto.SubmitResultResponse;
+
+import reactor.core.publisher.Mono;
+
+// The one way XRPL commands reach rippled. Implementations are selected with
+// xrpl.transport.mode and share xrpl4j's ObjectMapper for all (de)serialization.
+public interface XrplTransport {
+
+    // Sends one command and emits its "result" object, which carries "error" when rippled rejected it
+    Mono<JsonNode> send(String method, JsonNode params);
+
+    ObjectMapper objectMapper();
+
+    // Only engine_result, its message, the transaction hash and a rippled error are used by callers
+    default Mono<SubmitResultResponse> submit(String signedTxBlob) {
+        ObjectNode params = objectMapper().createObjectNode().put("tx_blob", signedTxBlob);
+        return send("submit", params).map(result -> {
+            String engineResult = result.path("engine_result").asText("");
+            String message = result.path("engine_result_message").asText(result.path("error_message").asText(""));
+            return new SubmitResultResponse(engineResult, message, result.path("tx_json").path("hash").asText(""),
+                    engineResult.startsWith("tes"), result.path("error").asText(""));
+        });
+    }
+}
@@ -0,0 +1,36 @@
+package com.xrp_payment_app.utils;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+// Entry point for running independent remote calls of one request in parallel. The
+// semaphore caps how many fanned-out calls are in flight across all requests.
+@Component
+public class FanOutExecutor {
+
+    private final ExecutorService ioExecutor;
+    private final Semaphore permits;
+    private final long deadlineMs;
+    private final PaymentMetrics paymentMetrics;
+
+    public FanOutExecutor(
+            @Qualifier("ioExecutor") ExecutorService ioExecutor,
+            @Value("${payment.fan-out.max-concurrency:256}") int maxConcurrency,
+            @Value("${payment.fan-out.deadline-ms:10000}") long deadlineMs,
+            PaymentMetrics paymentMetrics
+    ) {
+        this.paymentMetrics = paymentMetrics;
+        this.ioExecutor = ioExecutor;
+        this.permits = new Semaphore(maxConcurrency);
+        this.deadlineMs = deadlineMs;
+    }
+
+    // The flow names the timers, the name (usually with the request ID) only the log line
+    public FanOutScope newScope(String flow, String name) {
+        return new FanOutScope(flow, name, ioExecutor, permits, deadlineMs, paymentMetrics);
+    }
+}
@@ -0,0 +1,165 @@
+package com.xrp_payment_app.utils;
+
+import com.xrp_payment_app.exception.XrpServiceException;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+// One request's fan-out: every stage shares a single deadline and its duration is recorded,
+// so the log and the payment.stage timers show which round trip dominated.
+public class FanOutScope {
+
+    // A stage that may throw a checked exception, rethrown to the caller as is
+    @FunctionalInterface
+    public interface Stage<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private final String flow;
+    private final String name;
+    private final PaymentMetrics metrics;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final long startedAt = System.nanoTime();
+    private final long deadlineAt;
+    private final Map<String, Long> stageMillis = new ConcurrentHashMap<>();
+    private volatile boolean failed = false;
+
+    FanOutScope(String flow, String name, ExecutorService executor, Semaphore permits, long deadlineMs, PaymentMetrics metrics) {
+        this.flow = flow;
+        this.name = name;
+        this.metrics = metrics;
+        this.executor = executor;
+        this.permits = permits;
+        this.deadlineAt = startedAt + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+    }
+
+    // On the deadline the stage is interrupted, which cancels the blocking HTTP call it is
+    // waiting on. A request that already reached the server may still take effect there: a
+    // Xaman payload created that late is never returned, never signed and expires unused.
+    public <T> CompletableFuture<T> submit(String stage, Callable<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            boolean acquired = false;
+            try {
+                acquired = permits.tryAcquire(remainingMs(), TimeUnit.MILLISECONDS);
+                if (!acquired) {
+                    throw new TimeoutException("No fan-out capacity for " + stage);
+                }
+                result.complete(record(stage, call::call));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                if (acquired) {
+                    permits.release();
+                }
+            }
+        });
+        result.orTimeout(remainingMs(), TimeUnit.MILLISECONDS).whenComplete((value, error) -> {
+            if (error instanceof TimeoutException) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    // Waits for a stage and rethrows its original failure
+    public <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            failed = true;
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof TimeoutException) {
+                throw deadlineExceeded(cause.getMessage(), cause);
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    // Runs a stage on the calling thread, recording it like a fanned-out one. It cannot be cut
+    // short, so the deadline is checked before it starts and again once it returns.
+    public <T, E extends Exception> T time(String stage, Stage<T, E> call) throws E {
+        checkDeadline(stage);
+        T result = record(stage, call);
+        checkDeadline(stage);
+        return result;
+    }
+
+    private <T, E extends Exception> T record(String stage, Stage<T, E> call) throws E {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = call.call();
+            outcome = "success";
+            return result;
+        } catch (Exception e) {
+            failed = true;
+            throw e;
+        } finally {
+            stageMillis.put(stage, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            metrics.recordStage(flow, stage, start, outcome);
+        }
+    }
+
+    // Marks a failure outside of a timed stage, e.g. a validation error
+    public void fail() {
+        failed = true;
+    }
+
+    // Records the whole flow and returns the summary line
+    public String finish() {
+        metrics.recordFlow(flow, startedAt, failed ? "error" : "success");
+        return summary();
+    }
+
+    public Map<String, Long> stageTimings() {
+        return Map.copyOf(stageMillis);
+    }
+
+    public String summary() {
+        String stages = stageMillis.entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue() + "ms")
+                .sorted()
+                .collect(Collectors.joining(", "));
+        return name + " took " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) + "ms [" + stages + "]";
+    }
+
+    private void checkDeadline(String stage) {
+        if (System.nanoTime() - deadlineAt >= 0) {
+            failed = true;
+            throw deadlineExceeded("deadline reached at " + stage, null);
+        }
+    }
+
+    private XrpServiceException deadlineExceeded(String detail, Throwable cause) {
+        return new XrpServiceException(
+                name + " exceeded its deadline: " + detail,
+                cause,
+                "The payment network is taking too long to respond. Please try again later",
+                "UPSTREAM_TIMEOUT",
+                HttpStatus.GATEWAY_TIMEOUT
+        );
+    }
+
+    private long remainingMs() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineAt - System.nanoTime()));
+    }
+}
@@ -2,6 +2,8 @@ package com.xrp_payment_app.utils;
 
 import com.xrp_payment_app.dto.ErrorResponse;
 import com.xrp_payment_app.exception.*;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -17,9 +19,17 @@ import java.util.UUID;
 public class GlobalExceptionHandler {
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    private final PaymentMetrics paymentMetrics;
+    private final Tracer tracer;
+
+    public GlobalExceptionHandler(PaymentMetrics paymentMetrics, Tracer tracer) {
+        this.paymentMetrics = paymentMetrics;
+        this.tracer = tracer;
+    }
+
     @ExceptionHandler(BadRequestException.class)
     public ResponseEntity<ErrorResponse> handleBadRequestException(BadRequestException ex, HttpServletRequest request) {
-        String traceId = UUID.randomUUID().toString();
+        String traceId = traceId();
         logger.error("TraceId: {}, ErrorCode: {}, ErrorMessage: {}", traceId, ex.getErrorCode(), ex.getMessage());
         ErrorResponse errorResponse = new ErrorResponse(
                 Instant.now().toString(),
@@ -29,12 +39,13 @@ public class GlobalExceptionHandler {
                 request.getRequestURI(),
                 traceId
         );
+        paymentMetrics.countError(errorResponse.errorCode(), HttpStatus.BAD_REQUEST.value());
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler(UnprocessedException.class)
     public ResponseEntity<ErrorResponse> handleUnprocessedException(UnprocessedException ex, HttpServletRequest request) {
-        String traceId = UUID.randomUUID().toString();
+        String traceId = traceId();
         logger.error("TraceId: {}, ErrorCode: {}, ErrorMessage: {}", traceId, ex.getErrorCode(), ex.getMessage());
         ErrorResponse errorResponse = new ErrorResponse(
                 Instant.now().toString(),
@@ -44,12 +55,13 @@ public class GlobalExceptionHandler {
                 request.getRequestURI(),
                 traceId
         );
+        paymentMetrics.countError(errorResponse.errorCode(), HttpStatus.UNPROCESSABLE_ENTITY.value());
         return new ResponseEntity<>(errorResponse, HttpStatus.UNPROCESSABLE_ENTITY);
     }
 
     @ExceptionHandler(NotFoundException.class)
     public ResponseEntity<ErrorResponse> handleResourceNotFound(NotFoundException ex, HttpServletRequest request) {
-        String traceId = UUID.randomUUID().toString();
+        String traceId = traceId();
         logger.error("TraceId: {}, ErrorCode: {}, ErrorMessage: {}", traceId, ex.getErrorCode(), ex.getMessage());
         ErrorResponse errorResponse = new ErrorResponse(
                 Instant.now().toString(),
@@ -59,12 +71,45 @@ public class GlobalExceptionHandler {
                 request.getRequestURI(),
                 traceId
         );
+        paymentMetrics.countError(errorResponse.errorCode(), HttpStatus.NOT_FOUND.value());
         return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<ErrorResponse> handleConflictException(ConflictException ex, HttpServletRequest request) {
+        String traceId = traceId();
+        logger.error("TraceId: {}, ErrorCode: {}, ErrorMessage: {}", traceId, ex.getErrorCode(), ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(
+                Instant.now().toString(),
+                HttpStatus.CONFLICT.value(),
+                ex.getErrorCode(),
+                ex.getClientMessage(),
+                request.getRequestURI(),
+                traceId
+        );
+        paymentMetrics.countError(errorResponse.errorCode(), HttpStatus.CONFLICT.value());
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(XamanUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleXamanUnavailableException(XamanUnavailableException ex, HttpServletRequest request) {
+        String traceId = traceId();
+        logger.error("TraceId: {}, ErrorCode: {}, ErrorMessage: {}", traceId, ex.getErrorCode(), ex.getMessage());
+        ErrorResponse errorResponse = new ErrorResponse(
+                Instant.now().toString(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                ex.getErrorCode(),
+                ex.getClientMessage(),
+                request.getRequestURI(),
+                traceId
+        );
+        paymentMetrics.countError(errorResponse.errorCode(), HttpStatus.SERVICE_UNAVAILABLE.value());
+        return new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(XrpServiceException.class)
     public ResponseEntity<ErrorResponse> handleXrpServiceException(XrpServiceException ex, HttpServletRequest request) {
-        String traceId = UUID.randomUUID().toString();
+        String traceId = traceId();
         logger.error("TraceId: {}, ErrorCode: {}, ErrorMessage: {}", traceId, ex.getErrorCode(), ex.getMessage());
         ErrorResponse errorResponse = new ErrorResponse(
                 Instant.now().toString(),
@@ -74,6 +119,7 @@ public class GlobalExceptionHandler {
                 request.getRequestURI(),
                 traceId
         );
+        paymentMetrics.countError(errorResponse.errorCode(), HttpStatus.INTERNAL_SERVER_ERROR.value());
         return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
@@ -85,8 +131,18 @@ public class GlobalExceptionHandler {
                 "INTERNAL_ERROR",
                 "An unexpected error occurred.",
                 request.getRequestURI(),
-                UUID.randomUUID().toString()
+                traceId()
         );
+        paymentMetrics.countError(errorResponse.errorCode(), HttpStatus.INTERNAL_SERVER_ERROR.value());
         return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
     }
+
+    // The request's trace ID, so a client-reported error can be looked up in the tracing backend
+    private String traceId() {
+        Span span = tracer.currentSpan();
+        if (span != null && !span.context().traceId().isEmpty()) {
+            return span.context().traceId();
+        }
+        return UUID.randomUUID().toString();
+    }
 }
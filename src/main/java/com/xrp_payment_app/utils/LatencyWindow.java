@@ -0,0 +1,55 @@
+package com.xrp_payment_app.utils;
+
+import java.util.Arrays;
+
+// The most recent latency samples of one operation and one percentile over them. Reading the
+// percentile is a volatile read, it is recomputed from a sorted copy every recomputeEvery
+// samples (on every sample while fewer than that were recorded) by the recording thread.
+public class LatencyWindow {
+    private final long[] samples;
+    private final double percentile;
+    private final int recomputeEvery;
+    private int next = 0;
+    private int size = 0;
+    private int sinceRecompute = 0;
+
+    private volatile long cachedPercentile = -1;
+
+    public LatencyWindow(int capacity, double percentile, int recomputeEvery) {
+        this.samples = new long[capacity];
+        this.percentile = percentile;
+        this.recomputeEvery = Math.max(1, recomputeEvery);
+    }
+
+    public void record(long latencyMs) {
+        long[] copy = null;
+        synchronized (this) {
+            samples[next] = latencyMs;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+            if (size <= recomputeEvery || ++sinceRecompute >= recomputeEvery) {
+                sinceRecompute = 0;
+                copy = Arrays.copyOf(samples, size);
+            }
+        }
+        // Sorted outside the lock, other recorders only wait for the copy
+        if (copy != null) {
+            cachedPercentile = nearestRank(copy, percentile);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // As of the last recompute, -1 while empty
+    public long percentile() {
+        return cachedPercentile;
+    }
+
+    private static long nearestRank(long[] values, double percentile) {
+        Arrays.sort(values);
+        int rank = (int) Math.ceil(percentile / 100.0 * values.length);
+        return values[Math.max(0, Math.min(values.length - 1, rank - 1))];
+    }
+}
@@ -0,0 +1,148 @@
+package com.xrp_payment_app.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+// Meter names and tags for the payment pipeline in one place. Histograms and percentiles
+// are switched on per meter name in application.yaml (management.metrics.distribution).
+@Component
+public class PaymentMetrics {
+
+    public static final String XRPL_REQUEST = "xrpl.request";
+    public static final String XAMAN_REQUEST = "xaman.request";
+    public static final String PAYMENT_STAGE = "payment.stage";
+    public static final String PAYMENT_FLOW = "payment.flow";
+    public static final String ACCOUNT_CACHE_REQUESTS = "xrpl.account.cache.requests";
+    public static final String ACCOUNT_CACHE_EVICTIONS = "xrpl.account.cache.evictions";
+    public static final String ACCOUNT_CACHE_SIZE = "xrpl.account.cache.size";
+    public static final String HEDGE_REQUESTS = "xrpl.hedge.requests";
+    public static final String HEDGE_SENT = "xrpl.hedge.sent";
+    public static final String HEDGE_WINS = "xrpl.hedge.wins";
+    public static final String HEDGE_BUDGET_REJECTED = "xrpl.hedge.budget.rejected";
+    public static final String HEDGE_LATENCY_SAVED = "xrpl.hedge.latency.saved.ms";
+    public static final String NODE_HEALTHY = "xrpl.node.healthy";
+    public static final String NODE_LATENCY = "xrpl.node.latency.ms";
+    public static final String NODE_ERROR_RATE = "xrpl.node.error.rate";
+    public static final String NODE_LEDGER_LAG = "xrpl.node.ledger.lag";
+    public static final String NODE_IN_FLIGHT = "xrpl.node.in.flight";
+    public static final String NODE_FAILOVERS = "xrpl.node.failovers";
+
+    private final MeterRegistry meterRegistry;
+
+    public PaymentMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Mono<T> timeXrpl(String method, Mono<T> call) {
+        return timed(XRPL_REQUEST, "method", method, call);
+    }
+
+    public <T> Mono<T> timeXaman(String operation, Mono<T> call) {
+        return timed(XAMAN_REQUEST, "operation", operation, call);
+    }
+
+    public <T> Mono<T> timeStage(String flow, String stage, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnSuccess(result -> recordStage(flow, stage, start, "success"))
+                    .doOnError(error -> recordStage(flow, stage, start, "error"))
+                    .doOnCancel(() -> recordStage(flow, stage, start, "cancelled"));
+        });
+    }
+
+    public <T> T timeStage(String flow, String stage, Callable<T> call) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = call.call();
+            outcome = "success";
+            return result;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            recordStage(flow, stage, start, outcome);
+        }
+    }
+
+    public <T> Mono<T> timeFlow(String flow, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnSuccess(result -> recordFlow(flow, start, "success"))
+                    .doOnError(error -> recordFlow(flow, start, "error"))
+                    .doOnCancel(() -> recordFlow(flow, start, "cancelled"));
+        });
+    }
+
+    public void recordStage(String flow, String stage, long startNanos, String outcome) {
+        Timer.builder(PAYMENT_STAGE)
+                .tag("flow", flow)
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFlow(String flow, long startNanos, String outcome) {
+        Timer.builder(PAYMENT_FLOW)
+                .tag("flow", flow)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void countEngineResult(String engineResult) {
+        Counter.builder("xrpl.submit.result")
+                .tag("engine_result", engineResult == null || engineResult.isEmpty() ? "none" : engineResult)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void countError(String errorCode, int status) {
+        Counter.builder("payment.errors")
+                .tag("code", errorCode == null ? "UNKNOWN" : errorCode)
+                .tag("status", String.valueOf(status))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // Counts kept by the component itself are read on scrape rather than mirrored
+    public <T> void registerCounter(String name, T source, ToDoubleFunction<T> count, String... tags) {
+        FunctionCounter.builder(name, source, count).tags(Tags.of(tags)).register(meterRegistry);
+    }
+
+    public <T> void registerGauge(String name, T source, ToDoubleFunction<T> value, String... tags) {
+        Gauge.builder(name, source, value).tags(Tags.of(tags)).register(meterRegistry);
+    }
+
+    private <T> Mono<T> timed(String name, String tagKey, String tagValue, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnSuccess(result -> record(name, tagKey, tagValue, start, "success"))
+                    .doOnError(error -> record(name, tagKey, tagValue, start, "error"))
+                    .doOnCancel(() -> record(name, tagKey, tagValue, start, "cancelled"));
+        });
+    }
+
+    private void record(String name, String tagKey, String tagValue, long startNanos, String outcome) {
+        Timer.builder(name)
+                .tag(tagKey, tagValue)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -8,14 +8,15 @@ import org.xrpl.xrpl4j.crypto.signing.SingleSignedTransaction;
 import org.xrpl.xrpl4j.crypto.signing.bc.BcDerivedKeySignatureService;
 import org.xrpl.xrpl4j.crypto.signing.bc.BcSignatureService;
 import org.xrpl.xrpl4j.model.transactions.Payment;
+import org.xrpl.xrpl4j.model.transactions.Transaction;
 
 public class SecureSigning {
 
-    public static SingleSignedTransaction<Payment> signWithSeed(String sSecret, Payment payment) {
+    public static <T extends Transaction> SingleSignedTransaction<T> signWithSeed(String sSecret, T transaction) {
         ExtractKeyPair extractKeyPair = new ExtractKeyPair();
         PrivateKey privateKey = extractKeyPair.deriveKeyPairFromSecret(sSecret).privateKey();
         SignatureService<PrivateKey> signatureService = new BcSignatureService();
-        return signatureService.sign(privateKey, payment);
+        return signatureService.sign(privateKey, transaction);
     }
 
     public static SingleSignedTransaction<Payment> signWithDerivedKey(ServerSecret secret, Payment payment) {
@@ -0,0 +1,116 @@
+package com.xrp_payment_app.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.xrp_payment_app.dto.SubmitResultResponse;
+
+import io.netty.buffer.PooledByteBufAllocator;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+// Encodes rippled submit requests straight into pooled buffers and reads only the fields
+// we use from the response. Everything else, including the echoed tx_blob and tx_json
+// fields other than hash, is skipped without being materialized.
+public class SubmitCodec {
+    // {"method":"submit","params":[{"tx_blob":""}]}
+    private static final int REQUEST_OVERHEAD = 48;
+
+    private final JsonFactory jsonFactory;
+    private final DataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    public SubmitCodec(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    // The buffer is released by the HTTP client once written
+    public DataBuffer encodeRequest(String signedTxBlob) {
+        DataBuffer buffer = bufferFactory.allocateBuffer(signedTxBlob.length() + REQUEST_OVERHEAD);
+        try (JsonGenerator generator = jsonFactory.createGenerator(buffer.asOutputStream())) {
+            generator.writeStartObject();
+            generator.writeStringField("method", "submit");
+            generator.writeArrayFieldStart("params");
+            generator.writeStartObject();
+            generator.writeStringField("tx_blob", signedTxBlob);
+            generator.writeEndObject();
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            DataBufferUtils.release(buffer);
+            throw new UncheckedIOException("Failed to encode submit request", e);
+        }
+        return buffer;
+    }
+
+    // Releases the buffer
+    public SubmitResultResponse decodeResponse(DataBuffer buffer) {
+        try (InputStream in = buffer.asInputStream(true); JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Submit response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("result".equals(field) && value == JsonToken.START_OBJECT) {
+                    return readResult(parser);
+                }
+                parser.skipChildren();
+            }
+            throw new IOException("Submit response has no result");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse submit response", e);
+        }
+    }
+
+    private SubmitResultResponse readResult(JsonParser parser) throws IOException {
+        String engineResult = "";
+        String message = "";
+        String error = "";
+        String errorMessage = "";
+        String hash = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "engine_result" -> engineResult = parser.getValueAsString("");
+                case "engine_result_message" -> message = parser.getValueAsString("");
+                case "error" -> error = parser.getValueAsString("");
+                case "error_message" -> errorMessage = parser.getValueAsString("");
+                case "tx_json" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        hash = readHash(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        if (message.isEmpty()) {
+            message = errorMessage;
+        }
+        return new SubmitResultResponse(engineResult, message, hash, engineResult.startsWith("tes"), error);
+    }
+
+    private String readHash(JsonParser parser) throws IOException {
+        String hash = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("hash".equals(field)) {
+                hash = parser.getValueAsString("");
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return hash;
+    }
+}
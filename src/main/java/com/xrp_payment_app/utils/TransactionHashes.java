@@ -0,0 +1,30 @@
+package com.xrp_payment_app.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+// The hash rippled will assign to a signed transaction, known before it is submitted
+public final class TransactionHashes {
+    // "TXN\0", the transaction ID hash prefix
+    private static final byte[] TRANSACTION_ID_PREFIX = {0x54, 0x58, 0x4E, 0x00};
+
+    private TransactionHashes() {
+    }
+
+    public static String fromSignedBlob(String signedTxBlob) {
+        if (signedTxBlob == null || signedTxBlob.isBlank()) {
+            throw new IllegalArgumentException("Signed transaction blob cannot be null or empty");
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-512");
+            digest.update(TRANSACTION_ID_PREFIX);
+            digest.update(HexFormat.of().parseHex(signedTxBlob));
+            // SHA-512Half
+            return HexFormat.of().withUpperCase().formatHex(Arrays.copyOf(digest.digest(), 32));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-512 is not available", e);
+        }
+    }
+}
@@ -1,38 +1,122 @@
 package com.xrp_payment_app.utils;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.xrp_payment_app.dto.XamanPayloadCreated;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+// Xaman payment payloads are written from a template: everything but Destination, Amount,
+// Fee, Sequence and LastLedgerSequence is serialized once, the per-payment fields are spliced
+// into the request buffer. Of the create response only uuid and next.always are read.
 @Component
 public class XamanPayloadBuilder {
 
-    @Value("${xaman.api.callback-url}")
-    private String callbackUrl;
+    public record PaymentPayload(String destinationAddress, long totalAmountDrops, long feeDrops, long sequence,
+                                 long lastLedgerSequence, boolean submit) {}
+
+    private static final byte[] HEAD = ascii("{\"txjson\":{\"TransactionType\":\"Payment\",\"Destination\":\"");
+    private static final byte[] AMOUNT = ascii("\",\"Amount\":\"");
+    private static final byte[] FEE = ascii("\",\"Fee\":\"");
+    private static final byte[] SEQUENCE = ascii("\",\"Sequence\":");
+    private static final byte[] LAST_LEDGER_SEQUENCE = ascii(",\"LastLedgerSequence\":");
+    // Amount, Fee, Sequence and LastLedgerSequence, at most 19 digits each
+    private static final int MAX_DIGITS = 4 * 19;
 
     private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = mapper.getFactory();
+    // "},\"options\":{...}}" for submit=true and submit=false
+    private final byte[] submitTail;
+    private final byte[] signOnlyTail;
+
+    public XamanPayloadBuilder(@Value("${xaman.api.callback-url}") String callbackUrl) {
+        this.submitTail = tail(callbackUrl, true);
+        this.signOnlyTail = tail(callbackUrl, false);
+    }
 
-    public ObjectNode buildPaymentPayload(
+    public PaymentPayload buildPaymentPayload(
             String destinationAddress,
             long totalAmountDrops,
             long feeDrops,
             long sequence,
+            long lastLedgerSequence,
             boolean submit
     ) {
-        
-        ObjectNode payload = mapper.createObjectNode();
+        return new PaymentPayload(destinationAddress, totalAmountDrops, feeDrops, sequence, lastLedgerSequence, submit);
+    }
+
+    public DataBuffer encode(PaymentPayload payload, DataBufferFactory bufferFactory) {
+        byte[] tail = payload.submit() ? submitTail : signOnlyTail;
+        byte[] destination = JsonStringEncoder.getInstance().quoteAsUTF8(payload.destinationAddress());
+        DataBuffer buffer = bufferFactory.allocateBuffer(HEAD.length + destination.length + AMOUNT.length + FEE.length
+                + SEQUENCE.length + LAST_LEDGER_SEQUENCE.length + MAX_DIGITS + tail.length);
+        buffer.write(HEAD);
+        buffer.write(destination);
+        buffer.write(AMOUNT);
+        writeLong(buffer, payload.totalAmountDrops());
+        buffer.write(FEE);
+        writeLong(buffer, payload.feeDrops());
+        buffer.write(SEQUENCE);
+        writeLong(buffer, payload.sequence());
+        buffer.write(LAST_LEDGER_SEQUENCE);
+        writeLong(buffer, payload.lastLedgerSequence());
+        buffer.write(tail);
+        return buffer;
+    }
 
-        ObjectNode txJson = mapper.createObjectNode();
-        txJson.put("TransactionType", "Payment");
-        txJson.put("Destination", destinationAddress);
-        txJson.put("Amount", String.valueOf(totalAmountDrops));
-        txJson.put("Fee", String.valueOf(feeDrops));
-        txJson.put("Sequence", sequence);
+    // Releases the buffer
+    public XamanPayloadCreated readCreated(DataBuffer buffer) {
+        try (InputStream in = buffer.asInputStream(true); JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Xaman response is not a JSON object");
+            }
+            String uuid = "";
+            String redirectUrl = "";
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("uuid".equals(field)) {
+                    uuid = parser.getValueAsString("");
+                } else if ("next".equals(field) && value == JsonToken.START_OBJECT) {
+                    redirectUrl = readAlways(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new XamanPayloadCreated(uuid, redirectUrl);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse Xaman payload response", e);
+        }
+    }
 
-        payload.set("txjson", txJson);
+    private String readAlways(JsonParser parser) throws IOException {
+        String always = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("always".equals(field)) {
+                always = parser.getValueAsString("");
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return always;
+    }
 
+    private byte[] tail(String callbackUrl, boolean submit) {
         ObjectNode options = mapper.createObjectNode();
         ObjectNode returnUrl = mapper.createObjectNode();
         returnUrl.put("app", callbackUrl);
@@ -40,11 +124,26 @@ public class XamanPayloadBuilder {
         options.set("return_url", returnUrl);
         options.put("force_network", "TESTNET");
         options.put("submit", submit);
+        try {
+            return ("},\"options\":" + mapper.writeValueAsString(options) + "}").getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize Xaman payload options", e);
+        }
+    }
 
-        payload.set("options", options);
-        
-        return payload;
+    // Amounts and sequences are never negative
+    private static void writeLong(DataBuffer buffer, long value) {
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.write((byte) ('0' + value / divisor % 10));
+        }
+    }
 
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
     }
 
     // public Map<String, Object> buildMultiPaymentPayload(
@@ -0,0 +1,15 @@
+CREATE TABLE idempotency_keys (
+    request_id VARCHAR(255) PRIMARY KEY,
+    status VARCHAR(20) NOT NULL,
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Requests made before this table existed stay duplicates, without a response to replay
+INSERT INTO idempotency_keys (request_id, status)
+SELECT DISTINCT request_id, 'COMPLETED'
+FROM transactions
+WHERE request_id IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_transactions_request_id ON transactions (request_id);
@@ -0,0 +1,46 @@
+-- Returns the account linked to an address, linking it to the named user (or to a new
+-- user with the generated name) when the address is new. One round trip, safe under
+-- concurrent calls for the same address.
+CREATE OR REPLACE FUNCTION resolve_sender_account(
+    p_xrp_address VARCHAR,
+    p_user_name VARCHAR,
+    p_generated_user_name VARCHAR
+)
+RETURNS xrp_accounts
+LANGUAGE plpgsql
+SET search_path FROM CURRENT
+AS $$
+DECLARE
+    v_account xrp_accounts;
+    v_user_id BIGINT;
+    v_created_user BOOLEAN := FALSE;
+BEGIN
+    SELECT * INTO v_account FROM xrp_accounts WHERE xrp_address = p_xrp_address;
+    IF FOUND THEN
+        RETURN v_account;
+    END IF;
+
+    SELECT id INTO v_user_id FROM users WHERE user_name = p_user_name;
+    IF NOT FOUND THEN
+        INSERT INTO users (user_name, created_at, updated_at)
+        VALUES (p_generated_user_name, now(), now())
+        RETURNING id INTO v_user_id;
+        v_created_user := TRUE;
+    END IF;
+
+    INSERT INTO xrp_accounts (user_id, xrp_address, created_at, updated_at)
+    VALUES (v_user_id, p_xrp_address, now(), now())
+    ON CONFLICT (xrp_address) DO NOTHING
+    RETURNING * INTO v_account;
+
+    IF v_account.id IS NULL THEN
+        -- A concurrent call linked the address first, use its account
+        IF v_created_user THEN
+            DELETE FROM users WHERE id = v_user_id;
+        END IF;
+        SELECT * INTO v_account FROM xrp_accounts WHERE xrp_address = p_xrp_address;
+    END IF;
+
+    RETURN v_account;
+END;
+$$;
@@ -0,0 +1,5 @@
+-- Hibernate reserves ids 50 at a time (pooled optimizer), which lets it batch INSERTs.
+-- Rows inserted with the column default simply take the top id of a block.
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE xrp_accounts_id_seq INCREMENT BY 50;
+ALTER SEQUENCE transactions_id_seq INCREMENT BY 50;
@@ -0,0 +1,22 @@
+CREATE TABLE submission_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    transaction_id BIGINT NOT NULL REFERENCES transactions(id),
+    tx_blob TEXT NOT NULL,
+    tx_hash VARCHAR(100) NOT NULL,
+    -- Only submitted once the referenced entry was accepted (platform fee after the payment)
+    depends_on BIGINT REFERENCES submission_outbox(id),
+    status VARCHAR(20) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_until TIMESTAMP,
+    engine_result VARCHAR(50),
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+ALTER SEQUENCE submission_outbox_id_seq INCREMENT BY 50;
+
+CREATE INDEX idx_submission_outbox_pending ON submission_outbox (next_attempt_at) WHERE status = 'PENDING';
+CREATE INDEX idx_submission_outbox_submitting ON submission_outbox (locked_until) WHERE status = 'SUBMITTING';
+CREATE INDEX idx_submission_outbox_depends_on ON submission_outbox (depends_on) WHERE depends_on IS NOT NULL;
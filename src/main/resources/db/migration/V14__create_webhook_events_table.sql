@@ -0,0 +1,18 @@
+-- Xaman sign callbacks, acknowledged on receipt and processed asynchronously.
+-- Keyed by the (main) payload UUID so webhook retries are dropped on insert.
+CREATE TABLE webhook_events (
+    payload_uuid VARCHAR(100) PRIMARY KEY,
+    -- Comma separated, main payment first; more than one for batch callbacks
+    payload_uuids TEXT NOT NULL,
+    signed_status VARCHAR(50),
+    status VARCHAR(20) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_until TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_webhook_events_pending ON webhook_events (next_attempt_at) WHERE status = 'PENDING';
+CREATE INDEX idx_webhook_events_processing ON webhook_events (locked_until) WHERE status = 'PROCESSING';
@@ -0,0 +1,6 @@
+-- Lets the finality tracker pick unsettled transactions back up after a restart
+ALTER TABLE transactions
+ADD COLUMN IF NOT EXISTS last_ledger_sequence BIGINT;
+
+CREATE INDEX IF NOT EXISTS idx_transactions_unsettled ON transactions (id)
+WHERE status IN ('SUBMITTING', 'CONFIRMED', 'QUEUED');
@@ -0,0 +1,3 @@
+-- Fingerprint of the request a key was first used with, a reuse with another body is rejected
+ALTER TABLE idempotency_keys
+ADD COLUMN IF NOT EXISTS request_hash VARCHAR(64);
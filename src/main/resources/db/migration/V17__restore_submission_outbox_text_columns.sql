@@ -0,0 +1,4 @@
+-- Hibernate's schema update had narrowed these to VARCHAR(255), too short for a signed blob
+ALTER TABLE submission_outbox
+ALTER COLUMN tx_blob TYPE TEXT,
+ALTER COLUMN last_error TYPE TEXT;
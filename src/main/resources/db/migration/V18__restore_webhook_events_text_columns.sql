@@ -0,0 +1,4 @@
+-- Hibernate's schema update had narrowed these to VARCHAR(255)
+ALTER TABLE webhook_events
+ALTER COLUMN payload_uuids TYPE TEXT,
+ALTER COLUMN last_error TYPE TEXT;
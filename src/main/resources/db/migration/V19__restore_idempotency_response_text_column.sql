@@ -0,0 +1,3 @@
+-- Hibernate's schema update had narrowed this to VARCHAR(255), shorter than an initiation response
+ALTER TABLE idempotency_keys
+ALTER COLUMN response_body TYPE TEXT;
@@ -0,0 +1,53 @@
+package com.xrp_payment_app.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs against the configured Postgres like contextLoads, see SubmissionOutboxRepositoryTest
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyKeyRepositoryTest {
+
+    private static final String PREFIX = "idempotency-repository-test-";
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM xrp_payment.idempotency_keys WHERE request_id LIKE ?", PREFIX + "%");
+    }
+
+    @Test
+    void aClaimedKeyCanBeTakenOnlyOnce() {
+        String requestId = PREFIX + "claimed";
+
+        assertThat(idempotencyKeyRepository.claim(requestId, "hash", 300)).isEqualTo(1);
+        assertThat(idempotencyKeyRepository.claim(requestId, "hash", 300)).isZero();
+    }
+
+    // The schema is updated by Hibernate on startup, it must keep the TEXT column from V10
+    @Test
+    void aCompletedResponseIsStoredWhole() {
+        String requestId = PREFIX + "completed";
+        // A batch initiation response carries two payload UUIDs and two sign URLs
+        String response = "{\"requestId\":\"" + requestId + "\",\"status\":\"PENDING\",\"message\":\"" + "x".repeat(400) + "\"}";
+        idempotencyKeyRepository.claim(requestId, "hash", 300);
+
+        assertThat(idempotencyKeyRepository.complete(requestId, response)).isEqualTo(1);
+
+        assertThat(idempotencyKeyRepository.findById(requestId).orElseThrow().getResponseBody()).isEqualTo(response);
+    }
+}
@@ -0,0 +1,168 @@
+package com.xrp_payment_app.repository;
+
+import com.xrp_payment_app.entity.SubmissionOutboxEntry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+// Runs against the configured Postgres like contextLoads, the claim query relies on
+// FOR UPDATE SKIP LOCKED. Each claim runs in its own transaction as in the worker.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SubmissionOutboxRepositoryTest {
+
+    private static final String DESTINATION = "rOutboxLeaseTest";
+
+    @Autowired
+    private SubmissionOutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM xrp_payment.submission_outbox WHERE transaction_id IN ("
+                + "SELECT id FROM xrp_payment.transactions WHERE destination_address = ?) AND depends_on IS NOT NULL", DESTINATION);
+        jdbcTemplate.update("DELETE FROM xrp_payment.submission_outbox WHERE transaction_id IN ("
+                + "SELECT id FROM xrp_payment.transactions WHERE destination_address = ?)", DESTINATION);
+        jdbcTemplate.update("DELETE FROM xrp_payment.transactions WHERE destination_address = ?", DESTINATION);
+    }
+
+    private long entry(Long dependsOn) {
+        return entry(dependsOn, "1200");
+    }
+
+    private long entry(Long dependsOn, String txBlob) {
+        Long transactionId = jdbcTemplate.queryForObject("INSERT INTO xrp_payment.transactions (xrp_account_id, destination_address, amount, status) "
+                + "VALUES ((SELECT id FROM xrp_payment.xrp_accounts ORDER BY id LIMIT 1), ?, 1, 'SUBMITTING') RETURNING id",
+                Long.class, DESTINATION);
+        return jdbcTemplate.queryForObject("INSERT INTO xrp_payment.submission_outbox (transaction_id, tx_blob, tx_hash, depends_on, status) "
+                + "VALUES (?, ?, ?, ?, 'PENDING') RETURNING id", Long.class, transactionId, txBlob, "hash-" + transactionId, dependsOn);
+    }
+
+    private static List<Long> ids(List<SubmissionOutboxEntry> claimed) {
+        return claimed.stream().map(SubmissionOutboxEntry::getId).toList();
+    }
+
+    private SubmissionOutboxEntry claimed(List<SubmissionOutboxEntry> claimed, long id) {
+        return claimed.stream().filter(entry -> entry.getId() == id).findFirst().orElseThrow();
+    }
+
+    @Test
+    void aClaimedEntryIsLeasedAndNotClaimedAgain() {
+        long id = entry(null);
+
+        List<SubmissionOutboxEntry> first = outboxRepository.claim(100, 30);
+        SubmissionOutboxEntry entry = claimed(first, id);
+        assertThat(entry.getStatus()).isEqualTo("SUBMITTING");
+        assertThat(entry.getAttempts()).isEqualTo(1);
+        assertThat(entry.getLockedUntil()).isAfter(LocalDateTime.now().plusSeconds(20));
+
+        assertThat(ids(outboxRepository.claim(100, 30))).doesNotContain(id);
+    }
+
+    @Test
+    void aClaimTakesNoMoreThanItsBatch() {
+        long first = entry(null);
+        long second = entry(null);
+
+        assertThat(ids(outboxRepository.claim(1, 30))).containsExactly(first);
+        assertThat(ids(outboxRepository.claim(1, 30))).containsExactly(second);
+    }
+
+    // The schema is updated by Hibernate on startup, it must keep the TEXT column from V13
+    @Test
+    void aSignedBlobIsStoredWhole() {
+        String signedBlob = "12".repeat(400);
+        long id = entry(null, signedBlob);
+
+        assertThat(claimed(outboxRepository.claim(100, 30), id).getTxBlob()).isEqualTo(signedBlob);
+    }
+
+    @Test
+    void anEntryWhoseLeaseRanOutIsClaimedAgain() {
+        long id = entry(null);
+        // A worker that died right after claiming
+        claimed(outboxRepository.claim(100, 0), id);
+
+        SubmissionOutboxEntry reclaimed = claimed(outboxRepository.claim(100, 30), id);
+
+        assertThat(reclaimed.getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void aRescheduledEntryIsClaimedOnlyWhenDue() {
+        long id = entry(null);
+        claimed(outboxRepository.claim(100, 30), id);
+
+        outboxRepository.reschedule(id, "terQUEUED", "busy", 60);
+        assertThat(ids(outboxRepository.claim(100, 30))).doesNotContain(id);
+
+        outboxRepository.reschedule(id, "terQUEUED", "busy", 0);
+        assertThat(ids(outboxRepository.claim(100, 30))).contains(id);
+    }
+
+    @Test
+    void aDependentEntryWaitsUntilItsPredecessorIsDone() {
+        long payment = entry(null);
+        long fee = entry(payment);
+
+        List<Long> first = ids(outboxRepository.claim(100, 30));
+        assertThat(first).contains(payment).doesNotContain(fee);
+
+        outboxRepository.complete(payment, "DONE", "tesSUCCESS", null);
+
+        assertThat(ids(outboxRepository.claim(100, 30))).contains(fee);
+    }
+
+    @Test
+    void concurrentClaimsSkipRowsLockedByEachOther() throws Exception {
+        long first = entry(null);
+        long second = entry(null);
+        CountDownLatch claimedFirst = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // Holds its claim's row locks open until released
+        CompletableFuture<List<Long>> held = CompletableFuture.supplyAsync(() -> transaction.execute(status -> {
+            List<Long> claimed = ids(outboxRepository.claim(1, 30));
+            claimedFirst.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return claimed;
+        }));
+        assertThat(claimedFirst.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<Long> other = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> ids(outboxRepository.claim(100, 30)));
+        release.countDown();
+        List<Long> locked = held.get(5, TimeUnit.SECONDS);
+
+        assertThat(locked).containsAnyOf(first, second);
+        assertThat(other).doesNotContainAnyElementsOf(locked).containsAnyOf(first, second);
+    }
+}
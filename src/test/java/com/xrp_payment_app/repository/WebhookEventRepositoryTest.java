@@ -0,0 +1,147 @@
+package com.xrp_payment_app.repository;
+
+import com.xrp_payment_app.entity.WebhookEvent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+// Runs against the configured Postgres like contextLoads, see SubmissionOutboxRepositoryTest
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WebhookEventRepositoryTest {
+
+    private static final String PREFIX = "webhook-lease-test-";
+
+    @Autowired
+    private WebhookEventRepository webhookEventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM xrp_payment.webhook_events WHERE payload_uuid LIKE ?", PREFIX + "%");
+    }
+
+    private String event(String name) {
+        String uuid = PREFIX + name;
+        webhookEventRepository.insertIfAbsent(uuid, uuid + "," + uuid + "-fee", "SIGNED");
+        return uuid;
+    }
+
+    private static List<String> uuids(List<WebhookEvent> claimed) {
+        return claimed.stream().map(WebhookEvent::getPayloadUuid).toList();
+    }
+
+    private WebhookEvent claimed(List<WebhookEvent> claimed, String uuid) {
+        return claimed.stream().filter(event -> event.getPayloadUuid().equals(uuid)).findFirst().orElseThrow();
+    }
+
+    @Test
+    void aRetriedWebhookIsNotQueuedTwice() {
+        String uuid = PREFIX + "retried";
+
+        assertThat(webhookEventRepository.insertIfAbsent(uuid, uuid, "SIGNED")).isEqualTo(1);
+        assertThat(webhookEventRepository.insertIfAbsent(uuid, uuid, "SIGNED")).isZero();
+    }
+
+    @Test
+    void aClaimedEventIsLeasedAndNotClaimedAgain() {
+        String uuid = event("leased");
+
+        WebhookEvent event = claimed(webhookEventRepository.claim(100, 30), uuid);
+        assertThat(event.getStatus()).isEqualTo("PROCESSING");
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getLockedUntil()).isAfter(LocalDateTime.now().plusSeconds(20));
+        assertThat(event.payloadUuidList()).containsExactly(uuid, uuid + "-fee");
+
+        assertThat(uuids(webhookEventRepository.claim(100, 30))).doesNotContain(uuid);
+    }
+
+    @Test
+    void anEventWhoseLeaseRanOutIsClaimedAgain() {
+        String uuid = event("expired");
+        // A processor that died right after claiming
+        claimed(webhookEventRepository.claim(100, 0), uuid);
+
+        assertThat(claimed(webhookEventRepository.claim(100, 30), uuid).getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void aRescheduledEventIsClaimedOnlyWhenDueAndACompletedOneNever() {
+        String uuid = event("rescheduled");
+        claimed(webhookEventRepository.claim(100, 30), uuid);
+
+        webhookEventRepository.reschedule(uuid, "Xaman unavailable", 60);
+        assertThat(uuids(webhookEventRepository.claim(100, 30))).doesNotContain(uuid);
+
+        webhookEventRepository.reschedule(uuid, "Xaman unavailable", 0);
+        claimed(webhookEventRepository.claim(100, 30), uuid);
+
+        webhookEventRepository.complete(uuid, "DONE", null);
+        assertThat(uuids(webhookEventRepository.claim(100, 0))).doesNotContain(uuid);
+    }
+
+    // The schema is updated by Hibernate on startup, it must keep the TEXT column from V14
+    @Test
+    void aLongErrorIsStoredWhole() {
+        String uuid = event("long-error");
+        claimed(webhookEventRepository.claim(100, 30), uuid);
+        String error = "Xaman returned 502: " + "x".repeat(500);
+
+        webhookEventRepository.reschedule(uuid, error, 0);
+
+        assertThat(claimed(webhookEventRepository.claim(100, 30), uuid).getLastError()).isEqualTo(error);
+    }
+
+    @Test
+    void concurrentClaimsSkipRowsLockedByEachOther() throws Exception {
+        String first = event("first");
+        String second = event("second");
+        CountDownLatch claimedFirst = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // Holds its claim's row locks open until released
+        CompletableFuture<List<String>> held = CompletableFuture.supplyAsync(() -> transaction.execute(status -> {
+            List<String> claimed = uuids(webhookEventRepository.claim(1, 30));
+            claimedFirst.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return claimed;
+        }));
+        assertThat(claimedFirst.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<String> other = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> uuids(webhookEventRepository.claim(100, 30)));
+        release.countDown();
+        List<String> locked = held.get(5, TimeUnit.SECONDS);
+
+        assertThat(locked).containsAnyOf(first, second);
+        assertThat(other).doesNotContainAnyElementsOf(locked).containsAnyOf(first, second);
+    }
+}
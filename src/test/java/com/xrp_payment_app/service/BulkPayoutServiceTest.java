@@ -0,0 +1,235 @@
+package com.xrp_payment_app.service;
+
+import com.google.common.primitives.UnsignedInteger;
+import com.xrp_payment_app.dto.BulkPayoutItem;
+import com.xrp_payment_app.dto.BulkPayoutResult;
+import com.xrp_payment_app.dto.LedgerParameters;
+import com.xrp_payment_app.dto.SubmitResultResponse;
+import com.xrp_payment_app.entity.Transaction;
+import com.xrp_payment_app.entity.User;
+import com.xrp_payment_app.entity.XrpAccount;
+import com.xrp_payment_app.exception.BadRequestException;
+import com.xrp_payment_app.exception.UnprocessedException;
+import com.xrp_payment_app.repository.TransactionRepository;
+import com.xrp_payment_app.repository.UserRepository;
+import com.xrp_payment_app.repository.XrpAccountRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.xrpl.xrpl4j.codec.addresses.UnsignedByteArray;
+import org.xrpl.xrpl4j.crypto.keys.PublicKey;
+import org.xrpl.xrpl4j.crypto.signing.SingleSignedTransaction;
+import org.xrpl.xrpl4j.model.transactions.Hash256;
+import org.xrpl.xrpl4j.model.transactions.Payment;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkPayoutServiceTest {
+
+    private static final String PLATFORM_ADDRESS = "rPEPPER7kfTD9w2To4CQk6UCfuHM9c6GDY";
+    private static final String SENDER_ADDRESS = "rHb9CJAWyB4rj91VRWn96DkukG4bwdtyTh";
+    private static final String DESTINATION = "rPT1Sjq2YGrBMTttX4GZHjKu9dyfzbpAYe";
+    private static final UnsignedInteger LLS = UnsignedInteger.valueOf(121);
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final XrpAccountRepository xrpAccountRepository = mock(XrpAccountRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final XrplClientService xrplClientService = mock(XrplClientService.class);
+    private final XrplService xrplService = mock(XrplService.class);
+    private final LedgerParameterCache ledgerParameterCache = mock(LedgerParameterCache.class);
+    private final PlatformSequenceManager platformSequenceManager = mock(PlatformSequenceManager.class);
+    private final PlatformSigningService platformSigningService = mock(PlatformSigningService.class);
+    private final FinalityTracker finalityTracker = mock(FinalityTracker.class);
+    private final IdempotencyService idempotencyService = mock(IdempotencyService.class);
+
+    private BulkPayoutService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new BulkPayoutService(PLATFORM_ADDRESS, userRepository, xrpAccountRepository, transactionRepository,
+                xrplClientService, xrplService, ledgerParameterCache, platformSequenceManager, platformSigningService,
+                finalityTracker, idempotencyService);
+        ReflectionTestUtils.setField(service, "lastLedgerOffset", 20L);
+        ReflectionTestUtils.setField(service, "maxItems", 100);
+        ReflectionTestUtils.setField(service, "submitConcurrency", 4);
+        ReflectionTestUtils.setField(service, "persistBatchSize", 10);
+        ReflectionTestUtils.setField(service, "persistMaxDelayMs", 500L);
+
+        User user = new User();
+        user.setId(7L);
+        XrpAccount account = new XrpAccount();
+        account.setId(3L);
+        account.setXrpAddress(SENDER_ADDRESS);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(xrpAccountRepository.findByUserId(7L)).thenReturn(Optional.of(account));
+        when(ledgerParameterCache.baseFee()).thenReturn(new BigDecimal("0.00001"));
+        when(ledgerParameterCache.get()).thenReturn(new LedgerParameters(
+                new BigDecimal("0.00001"), new BigDecimal("0.00001"), BigDecimal.ONE, new BigDecimal("0.2"), 101, Instant.now()));
+        when(xrplClientService.getBalance(anyString())).thenReturn(new BigDecimal("1000"));
+        when(platformSigningService.publicKey()).thenReturn(PublicKey.fromBase16EncodedPublicKey("ED" + "0".repeat(64)));
+        when(platformSequenceManager.acquire(anyInt(), eq(LLS))).thenAnswer(invocation -> {
+            List<UnsignedInteger> sequences = new ArrayList<>();
+            for (int i = 0; i < (int) invocation.getArgument(0); i++) {
+                sequences.add(UnsignedInteger.valueOf(10 + i));
+            }
+            return sequences;
+        });
+        when(platformSigningService.sign(anyList())).thenAnswer(invocation -> {
+            List<SingleSignedTransaction<Payment>> signed = new ArrayList<>();
+            for (int i = 0; i < ((List<?>) invocation.getArgument(0)).size(); i++) {
+                signed.add(signed("BLOB" + i, "HASH" + i));
+            }
+            return signed;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SingleSignedTransaction<Payment> signed(String blob, String hash) {
+        SingleSignedTransaction<Payment> signed = mock(SingleSignedTransaction.class);
+        UnsignedByteArray bytes = mock(UnsignedByteArray.class);
+        when(bytes.hexValue()).thenReturn(blob);
+        when(signed.signedTransactionBytes()).thenReturn(bytes);
+        when(signed.hash()).thenReturn(Hash256.of(hash));
+        return signed;
+    }
+
+    private static List<BulkPayoutItem> items(int count) {
+        List<BulkPayoutItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new BulkPayoutItem("ref-" + i, DESTINATION, BigDecimal.ONE));
+        }
+        return items;
+    }
+
+    private static SubmitResultResponse result(String engineResult) {
+        return new SubmitResultResponse(engineResult, engineResult, null, engineResult.startsWith("tes"), "");
+    }
+
+    @Test
+    void everyPayoutIsStoredUnderItsHashBeforeItIsSubmitted() throws Exception {
+        when(xrplService.submitSignedBlobAsync(anyString())).thenReturn(Mono.just(result("tesSUCCESS")));
+
+        StepVerifier.create(service.payout("req-1", "7", items(3)))
+                .expectNextCount(3)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Transaction>> saved = ArgumentCaptor.forClass(List.class);
+        verify(transactionRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).extracting(Transaction::getTransactionHash).containsExactly("HASH0", "HASH1", "HASH2");
+        assertThat(saved.getValue()).extracting(Transaction::getStatus).containsOnly("SUBMITTING");
+        verify(finalityTracker).track("HASH0", LLS);
+        verify(transactionRepository).updateStatusByTransactionHashes("CONFIRMED", List.of("HASH0", "HASH1", "HASH2"));
+        verify(idempotencyService).complete(eq("req-1"), anyString());
+    }
+
+    @Test
+    void aSubmitErrorLeavesThePayoutInFlightWithAnUnknownOutcome() throws Exception {
+        when(xrplService.submitSignedBlobAsync("BLOB0")).thenReturn(Mono.just(result("tesSUCCESS")));
+        when(xrplService.submitSignedBlobAsync("BLOB1")).thenReturn(Mono.error(new IllegalStateException("connection reset")));
+
+        List<BulkPayoutResult> results = service.payout("req-1", "7", items(2)).collectList().block(Duration.ofSeconds(5));
+
+        assertThat(results).extracting(BulkPayoutResult::status).containsExactly("CONFIRMED", "UNKNOWN");
+        assertThat(results.get(1).transactionHash()).isEqualTo("HASH1");
+        verify(platformSequenceManager, never()).release(any());
+        verify(platformSequenceManager, never()).onSubmitResult(eq(UnsignedInteger.valueOf(11)), anyString());
+        verify(transactionRepository).updateStatusByTransactionHashes("CONFIRMED", List.of("HASH0"));
+    }
+
+    @Test
+    void aDefinitiveRejectionIsReportedToTheSequenceManagerAndFailsTheRow() throws Exception {
+        when(xrplService.submitSignedBlobAsync(anyString())).thenReturn(Mono.just(result("temBAD_AMOUNT")));
+
+        List<BulkPayoutResult> results = service.payout("req-1", "7", items(1)).collectList().block(Duration.ofSeconds(5));
+
+        assertThat(results).extracting(BulkPayoutResult::status).containsExactly("FAILED");
+        verify(platformSequenceManager).onSubmitResult(UnsignedInteger.valueOf(10), "temBAD_AMOUNT");
+        verify(transactionRepository).updateStatusByTransactionHashes("FAILED", List.of("HASH0"));
+    }
+
+    @Test
+    void aSubmitRippledRefusedFailsTheRowAndFreesTheSequence() throws Exception {
+        when(xrplService.submitSignedBlobAsync(anyString())).thenReturn(Mono.error(new UnprocessedException(
+                "rippled rejected submit: invalidTransaction", "The XRP Ledger rejected the transaction", XrplService.SUBMIT_REJECTED)));
+
+        List<BulkPayoutResult> results = service.payout("req-1", "7", items(1)).collectList().block(Duration.ofSeconds(5));
+
+        assertThat(results).extracting(BulkPayoutResult::status).containsExactly("FAILED");
+        assertThat(results.get(0).message()).contains("invalidTransaction");
+        verify(platformSequenceManager).release(UnsignedInteger.valueOf(10));
+        verify(transactionRepository).updateStatusByTransactionHashes("FAILED", List.of("HASH0"));
+    }
+
+    @Test
+    void theBatchCarriesOnWhenTheClientGoesAway() throws Exception {
+        Sinks.One<SubmitResultResponse> slow = Sinks.one();
+        when(xrplService.submitSignedBlobAsync("BLOB0")).thenReturn(Mono.just(result("tesSUCCESS")));
+        when(xrplService.submitSignedBlobAsync("BLOB1")).thenReturn(slow.asMono());
+
+        StepVerifier.create(service.payout("req-1", "7", items(2)))
+                .expectNextCount(1)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        slow.tryEmitValue(result("tesSUCCESS"));
+
+        verify(transactionRepository, timeout(2_000)).updateStatusByTransactionHashes("CONFIRMED", List.of("HASH1"));
+        verify(idempotencyService, timeout(2_000)).complete(eq("req-1"), anyString());
+    }
+
+    @Test
+    void aRepeatedRequestIdReplaysTheStoredResults() throws Exception {
+        when(idempotencyService.claimOrReplay(eq("req-1"), anyString())).thenReturn(
+                "[{\"index\":0,\"reference\":\"ref-0\",\"destinationAddress\":\"" + DESTINATION + "\",\"amount\":1,"
+                        + "\"status\":\"CONFIRMED\",\"transactionHash\":\"HASH0\",\"engineResult\":\"tesSUCCESS\",\"message\":null}]");
+
+        List<BulkPayoutResult> results = service.payout("req-1", "7", items(1)).collectList().block(Duration.ofSeconds(5));
+
+        assertThat(results).extracting(BulkPayoutResult::transactionHash).containsExactly("HASH0");
+        verify(xrplService, never()).submitSignedBlobAsync(anyString());
+        verify(platformSequenceManager, never()).acquire(anyInt(), any());
+    }
+
+    @Test
+    void aNonNumericUserIdIsABadRequest() {
+        assertThatThrownBy(() -> service.payout("req-1", "abc", items(1)))
+                .isInstanceOfSatisfying(BadRequestException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo("INVALID_USER_ID"));
+    }
+
+    @Test
+    void aBatchRejectedUpFrontReleasesTheRequestId() throws Exception {
+        when(xrplClientService.getBalance(SENDER_ADDRESS)).thenReturn(BigDecimal.ONE);
+
+        assertThatThrownBy(() -> service.payout("req-1", "7", items(3)))
+                .isInstanceOf(UnprocessedException.class);
+
+        verify(idempotencyService).release("req-1");
+        verify(platformSequenceManager, never()).acquire(anyInt(), any());
+    }
+}
@@ -0,0 +1,174 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.primitives.UnsignedInteger;
+import com.xrp_payment_app.event.ValidatedTransactionEvent;
+import com.xrp_payment_app.repository.TransactionRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FinalityTrackerTest {
+
+    private static final String ACCOUNT = "rHb9CJAWyB4rj91VRWn96DkukG4bwdtyTh";
+    // Payment with Sequence 1 from ACCOUNT, without and with LastLedgerSequence 123
+    private static final String BLOB_WITHOUT_LLS = "120000228000000024000000016140000000000F424068400000000000000C"
+            + "8114B5F762798A53D543A014CAF8B297CFF8F2F937E8";
+    private static final String BLOB_WITH_LLS = "12000022800000002400000001201B0000007B6140000000000F424068400000000000000C"
+            + "8114B5F762798A53D543A014CAF8B297CFF8F2F937E8";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final XrplService xrplService = mock(XrplService.class);
+    private final XrplStreamService xrplStreamService = mock(XrplStreamService.class);
+    private final LedgerParameterCache ledgerParameterCache = mock(LedgerParameterCache.class);
+
+    private FinalityTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        when(xrplStreamService.lastLedgerIndex()).thenReturn(100L);
+        when(xrplStreamService.isHealthy(anyLong())).thenReturn(true);
+        tracker = new FinalityTracker(transactionRepository, xrplService, xrplStreamService, ledgerParameterCache);
+        ReflectionTestUtils.setField(tracker, "ledgersBetweenSequenceChecks", 20L);
+    }
+
+    private void ledger(long ledgerIndex) {
+        when(xrplStreamService.lastLedgerIndex()).thenReturn(ledgerIndex);
+    }
+
+    private static TransactionRepository.UnsettledTransaction unsettled(String hash, Long lastLedgerSequence) {
+        return new TransactionRepository.UnsettledTransaction() {
+            public String getTransactionHash() {
+                return hash;
+            }
+
+            public Long getLastLedgerSequence() {
+                return lastLedgerSequence;
+            }
+
+            public String getTxBlob() {
+                return null;
+            }
+        };
+    }
+
+    @Test
+    void rehydrateTracksUnsettledRowsAgain() {
+        when(transactionRepository.findUnsettled()).thenReturn(List.of(unsettled("AA", 120L), unsettled("BB", null)));
+
+        tracker.rehydrate();
+
+        assertThat(tracker.inFlightCount()).isEqualTo(2);
+    }
+
+    @Test
+    void aValidationOfARehydratedHashIsFlushed() {
+        when(transactionRepository.findUnsettled()).thenReturn(List.of(unsettled("AA", 120L)));
+        tracker.rehydrate();
+
+        tracker.onValidatedTransaction(new ValidatedTransactionEvent("AA", "tesSUCCESS", 101));
+        tracker.sweep();
+
+        verify(transactionRepository).updateStatusByTransactionHashes("VALIDATED", List.of("AA"));
+        assertThat(tracker.inFlightCount()).isZero();
+    }
+
+    @Test
+    void anExpiredHashIsLookedUpBeforeItIsMarkedExpired() throws Exception {
+        tracker.track("CC", UnsignedInteger.valueOf(99));
+        when(xrplService.getTransaction("CC")).thenReturn(mapper.readTree("{\"validated\":false}"));
+
+        tracker.sweep();
+
+        verify(transactionRepository).updateStatusByTransactionHashes("EXPIRED", List.of("CC"));
+        verify(transactionRepository, never()).updateStatusByTransactionHashes("VALIDATED", List.of("CC"));
+    }
+
+    @Test
+    void aFailedRehydrationDoesNotStopStartup() {
+        when(transactionRepository.findUnsettled()).thenThrow(new IllegalStateException("database down"));
+
+        tracker.rehydrate();
+
+        assertThat(tracker.inFlightCount()).isZero();
+        verify(transactionRepository, never()).updateStatusByTransactionHashes(anyString(), anyCollection());
+    }
+
+    @Test
+    void aBlobWithLastLedgerSequenceExpiresOnceItPassed() throws Exception {
+        tracker.trackSignedBlob("DD", BLOB_WITH_LLS);
+        when(xrplService.getTransaction("DD")).thenReturn(mapper.readTree("{\"validated\":false}"));
+
+        ledger(123);
+        tracker.sweep();
+        assertThat(tracker.inFlightCount()).isEqualTo(1);
+
+        ledger(124);
+        tracker.sweep();
+        verify(transactionRepository).updateStatusByTransactionHashes("EXPIRED", List.of("DD"));
+        verify(xrplService, never()).getValidatedAccountSequence(anyString());
+    }
+
+    @Test
+    void aBlobWithoutLastLedgerSequenceFailsOnlyOnceItsSequenceWasUsed() throws Exception {
+        tracker.trackSignedBlob("EE", BLOB_WITHOUT_LLS);
+        when(xrplService.getTransaction("EE")).thenReturn(mapper.readTree("{\"validated\":false}"));
+        when(xrplService.getValidatedAccountSequence(ACCOUNT)).thenReturn(1L);
+
+        // Long past any ledger-based limit, but the Sequence is still free
+        ledger(500);
+        tracker.sweep();
+        assertThat(tracker.inFlightCount()).isEqualTo(1);
+
+        when(xrplService.getValidatedAccountSequence(ACCOUNT)).thenReturn(2L);
+        // Not looked at again before the next check
+        tracker.sweep();
+        assertThat(tracker.inFlightCount()).isEqualTo(1);
+
+        ledger(521);
+        tracker.sweep();
+        verify(transactionRepository).updateStatusByTransactionHashes("FAILED", List.of("EE"));
+        verify(transactionRepository, never()).updateStatusByTransactionHashes("EXPIRED", List.of("EE"));
+        assertThat(tracker.inFlightCount()).isZero();
+    }
+
+    @Test
+    void aBlobWithoutLastLedgerSequenceValidatedLateIsValidated() throws Exception {
+        tracker.trackSignedBlob("FF", BLOB_WITHOUT_LLS);
+        when(xrplService.getValidatedAccountSequence(ACCOUNT)).thenReturn(2L);
+        when(xrplService.getTransaction("FF")).thenReturn(
+                mapper.readTree("{\"validated\":true,\"meta\":{\"TransactionResult\":\"tesSUCCESS\"}}"));
+
+        ledger(500);
+        tracker.sweep();
+
+        verify(transactionRepository).updateStatusByTransactionHashes("VALIDATED", List.of("FF"));
+    }
+
+    @Test
+    void aRehydratedHashWithoutLastLedgerSequenceOrBlobStaysTracked() throws Exception {
+        when(transactionRepository.findUnsettled()).thenReturn(List.of(unsettled("GG", null)));
+        tracker.rehydrate();
+        when(xrplService.getTransaction("GG")).thenReturn(mapper.readTree("{\"validated\":false}"));
+
+        ledger(500);
+        tracker.sweep();
+
+        assertThat(tracker.inFlightCount()).isEqualTo(1);
+        verify(transactionRepository, never()).updateStatusByTransactionHashes(anyString(), anyCollection());
+    }
+}
@@ -0,0 +1,194 @@
+package com.xrp_payment_app.service;
+
+import com.xrp_payment_app.dto.PaymentSignResponse;
+import com.xrp_payment_app.entity.IdempotencyKey;
+import com.xrp_payment_app.exception.ConflictException;
+import com.xrp_payment_app.exception.NotFoundException;
+import com.xrp_payment_app.exception.UnprocessedException;
+import com.xrp_payment_app.repository.IdempotencyKeyRepository;
+import com.xrp_payment_app.repository.reactive.ReactiveIdempotencyKeyRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    private static final String REQUEST_ID = "req-1";
+    private static final String HASH = IdempotencyService.requestHash("single", "alice", "rFrom", "rTo", new BigDecimal("1.5"));
+    private static final PaymentSignResponse RESPONSE = new PaymentSignResponse(REQUEST_ID, "PENDING", "u", "url", null, null, "sign");
+
+    private final IdempotencyKeyRepository repository = mock(IdempotencyKeyRepository.class);
+    private final ReactiveIdempotencyKeyRepository reactiveRepository = mock(ReactiveIdempotencyKeyRepository.class);
+
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotencyService(repository, reactiveRepository, 100, 300);
+    }
+
+    private static IdempotencyKey key(String status, String requestHash, String responseBody) {
+        IdempotencyKey key = new IdempotencyKey();
+        key.setRequestId(REQUEST_ID);
+        key.setStatus(status);
+        key.setRequestHash(requestHash);
+        key.setResponseBody(responseBody);
+        return key;
+    }
+
+    @Test
+    void requestHashComparesAmountsByValue() {
+        assertThat(IdempotencyService.requestHash("single", "alice", "rFrom", "rTo", new BigDecimal("1.50")))
+                .isEqualTo(HASH)
+                .isNotEqualTo(IdempotencyService.requestHash("batch", "alice", "rFrom", "rTo", new BigDecimal("1.5")));
+    }
+
+    @Test
+    void aClaimedKeyRunsTheInitiationOnceAndRepliesFromMemoryAfterwards() throws Exception {
+        when(repository.claim(REQUEST_ID, HASH, 300)).thenReturn(1);
+        int[] runs = {0};
+
+        service.execute(REQUEST_ID, HASH, () -> {
+            runs[0]++;
+            return RESPONSE;
+        });
+        PaymentSignResponse replayed = service.execute(REQUEST_ID, HASH, () -> {
+            runs[0]++;
+            return RESPONSE;
+        });
+
+        assertThat(replayed).isEqualTo(RESPONSE);
+        assertThat(runs[0]).isEqualTo(1);
+        verify(repository).complete(eq(REQUEST_ID), anyString());
+    }
+
+    @Test
+    void aCompletedKeyIsReplayedFromTheDatabase() throws Exception {
+        when(repository.claim(REQUEST_ID, HASH, 300)).thenReturn(0);
+        when(repository.findById(REQUEST_ID)).thenReturn(Optional.of(key("COMPLETED", HASH,
+                "{\"requestId\":\"req-1\",\"status\":\"PENDING\",\"userUuid\":\"u\",\"userRedirectUrl\":\"url\",\"message\":\"sign\"}")));
+
+        PaymentSignResponse replayed = service.execute(REQUEST_ID, HASH, () -> {
+            throw new IllegalStateException("must not run");
+        });
+
+        assertThat(replayed).isEqualTo(RESPONSE);
+    }
+
+    @Test
+    void aKeyInProgressElsewhereIsAConflict() {
+        when(repository.claim(REQUEST_ID, HASH, 300)).thenReturn(0);
+        when(repository.findById(REQUEST_ID)).thenReturn(Optional.of(key("IN_PROGRESS", HASH, null)));
+
+        assertThatThrownBy(() -> service.execute(REQUEST_ID, HASH, () -> RESPONSE))
+                .isInstanceOf(ConflictException.class);
+    }
+
+    @Test
+    void aKeyReusedWithAnotherRequestIsRejected() {
+        String otherHash = IdempotencyService.requestHash("single", "alice", "rFrom", "rTo", new BigDecimal("2"));
+        when(repository.claim(REQUEST_ID, otherHash, 300)).thenReturn(0);
+        when(repository.findById(REQUEST_ID)).thenReturn(Optional.of(key("IN_PROGRESS", HASH, null)));
+
+        assertThatThrownBy(() -> service.execute(REQUEST_ID, otherHash, () -> RESPONSE))
+                .isInstanceOfSatisfying(UnprocessedException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo("REQUEST_ID_MISMATCH"));
+    }
+
+    @Test
+    void aKeyReusedWithAnotherRequestIsRejectedFromMemory() throws Exception {
+        when(repository.claim(REQUEST_ID, HASH, 300)).thenReturn(1);
+        service.execute(REQUEST_ID, HASH, () -> RESPONSE);
+
+        assertThatThrownBy(() -> service.execute(REQUEST_ID, "other", () -> RESPONSE))
+                .isInstanceOf(UnprocessedException.class);
+    }
+
+    @Test
+    void aFailedInitiationReleasesTheKey() {
+        when(repository.claim(REQUEST_ID, HASH, 300)).thenReturn(1);
+
+        assertThatThrownBy(() -> service.execute(REQUEST_ID, HASH, () -> {
+            throw new NotFoundException("User not found", "User not found", "USER_NOT_FOUND");
+        })).isInstanceOf(NotFoundException.class);
+
+        verify(repository).release(REQUEST_ID);
+        verify(repository, never()).complete(anyString(), anyString());
+    }
+
+    @Test
+    void aFailedCompletionReleasesTheKeyAndStillAnswers() throws Exception {
+        when(repository.claim(REQUEST_ID, HASH, 300)).thenReturn(1);
+        when(repository.complete(eq(REQUEST_ID), anyString())).thenThrow(new IllegalStateException("database down"));
+
+        assertThat(service.execute(REQUEST_ID, HASH, () -> RESPONSE)).isEqualTo(RESPONSE);
+
+        verify(repository).release(REQUEST_ID);
+    }
+
+    @Test
+    void aFailedAsyncInitiationReleasesTheKey() {
+        when(reactiveRepository.claim(REQUEST_ID, HASH, 300)).thenReturn(Mono.just(1L));
+        when(reactiveRepository.release(REQUEST_ID)).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(service.executeAsync(REQUEST_ID, HASH, () -> Mono.error(new IllegalStateException("xaman down"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        verify(reactiveRepository).release(REQUEST_ID);
+        verify(reactiveRepository, never()).complete(anyString(), anyString());
+    }
+
+    @Test
+    void aCancelledAsyncInitiationReleasesTheKey() {
+        when(reactiveRepository.claim(REQUEST_ID, HASH, 300)).thenReturn(Mono.just(1L));
+        when(reactiveRepository.release(REQUEST_ID)).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(service.executeAsync(REQUEST_ID, HASH, Mono::never))
+                .expectSubscription()
+                .thenAwait(Duration.ofMillis(10))
+                .thenCancel()
+                .verify();
+
+        verify(reactiveRepository).release(REQUEST_ID);
+        // The key is free again on this instance too
+        when(reactiveRepository.complete(eq(REQUEST_ID), anyString())).thenReturn(Mono.just(1L));
+        StepVerifier.create(service.executeAsync(REQUEST_ID, HASH, () -> Mono.just(RESPONSE)))
+                .expectNext(RESPONSE)
+                .verifyComplete();
+    }
+
+    @Test
+    void aCompletedAsyncInitiationIsNotReleased() {
+        when(reactiveRepository.claim(REQUEST_ID, HASH, 300)).thenReturn(Mono.just(1L));
+        when(reactiveRepository.complete(eq(REQUEST_ID), anyString())).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(service.executeAsync(REQUEST_ID, HASH, () -> Mono.just(RESPONSE)))
+                .expectNext(RESPONSE)
+                .verifyComplete();
+        StepVerifier.create(service.executeAsync(REQUEST_ID, HASH, () -> Mono.error(new IllegalStateException("must not run"))))
+                .expectNext(RESPONSE)
+                .verifyComplete();
+
+        verify(reactiveRepository, times(1)).claim(eq(REQUEST_ID), eq(HASH), anyLong());
+        verify(reactiveRepository, never()).release(anyString());
+    }
+}
@@ -0,0 +1,162 @@
+package com.xrp_payment_app.service;
+
+import com.google.common.primitives.UnsignedInteger;
+import com.xrp_payment_app.dto.LedgerParameters;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xrpl.xrpl4j.client.JsonRpcClientErrorException;
+import org.xrpl.xrpl4j.crypto.keys.PublicKey;
+import org.xrpl.xrpl4j.crypto.signing.SingleSignedTransaction;
+import org.xrpl.xrpl4j.model.ledger.AccountRootObject;
+import org.xrpl.xrpl4j.model.transactions.AccountSet;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PlatformSequenceManagerTest {
+
+    private static final String PLATFORM_ADDRESS = "rPEPPER7kfTD9w2To4CQk6UCfuHM9c6GDY";
+    private static final UnsignedInteger LLS = UnsignedInteger.valueOf(120);
+
+    private final XrplClientService xrplClientService = mock(XrplClientService.class);
+    private final LedgerParameterCache ledgerParameterCache = mock(LedgerParameterCache.class);
+    private final PlatformSigningService platformSigningService = mock(PlatformSigningService.class);
+    private final XrplStreamService xrplStreamService = mock(XrplStreamService.class);
+
+    private PlatformSequenceManager manager;
+
+    @BeforeEach
+    void setUp() {
+        accountSequence(10);
+        validatedLedger(100);
+        when(ledgerParameterCache.get()).thenReturn(new LedgerParameters(
+                new BigDecimal("0.00001"), new BigDecimal("0.00001"), BigDecimal.ONE, new BigDecimal("0.2"), 101, Instant.now()));
+        when(ledgerParameterCache.baseFee()).thenReturn(new BigDecimal("0.00001"));
+        when(platformSigningService.publicKey()).thenReturn(PublicKey.fromBase16EncodedPublicKey("ED" + "0".repeat(64)));
+        manager = new PlatformSequenceManager(xrplClientService, ledgerParameterCache, platformSigningService,
+                xrplStreamService, PLATFORM_ADDRESS, 0, 20, 30_000);
+    }
+
+    private void accountSequence(long sequence) {
+        AccountRootObject account = mock(AccountRootObject.class);
+        when(account.sequence()).thenReturn(UnsignedInteger.valueOf(sequence));
+        when(xrplClientService.getAccountDataUncached(PLATFORM_ADDRESS)).thenReturn(account);
+    }
+
+    private void validatedLedger(long ledgerIndex) {
+        when(xrplStreamService.lastLedgerIndex()).thenReturn(ledgerIndex);
+        when(xrplStreamService.isHealthy(anyLong())).thenReturn(true);
+    }
+
+    private List<Long> acquire(int count) {
+        return manager.acquire(count, LLS).stream().map(UnsignedInteger::longValue).toList();
+    }
+
+    @Test
+    void acquireHandsOutConsecutiveSequencesFromTheAccount() {
+        assertThat(acquire(3)).containsExactly(10L, 11L, 12L);
+        assertThat(acquire(1)).containsExactly(13L);
+    }
+
+    @Test
+    void releasingTheHighestSequenceMovesTheCursorBack() {
+        List<Long> sequences = acquire(2);
+
+        manager.release(UnsignedInteger.valueOf(sequences.get(1)));
+
+        assertThat(acquire(1)).containsExactly(11L);
+    }
+
+    @Test
+    void aReleasedSequenceBelowTheCursorIsReusedFirst() {
+        acquire(3);
+
+        manager.release(UnsignedInteger.valueOf(11));
+
+        assertThat(acquire(2)).containsExactly(11L, 13L);
+    }
+
+    @Test
+    void definitiveRejectionsReleaseTheSequence() {
+        acquire(3);
+
+        manager.onSubmitResult(UnsignedInteger.valueOf(10), "temBAD_AMOUNT");
+        manager.onSubmitResult(UnsignedInteger.valueOf(11), "telINSUF_FEE_P");
+
+        assertThat(acquire(2)).containsExactly(10L, 11L);
+    }
+
+    @Test
+    void consumedQueuedAndAmbiguousResultsKeepTheSequence() {
+        acquire(5);
+
+        manager.onSubmitResult(UnsignedInteger.valueOf(10), "tesSUCCESS");
+        manager.onSubmitResult(UnsignedInteger.valueOf(11), "tecNO_DST_INSUF_XRP");
+        manager.onSubmitResult(UnsignedInteger.valueOf(12), "terQUEUED");
+        manager.onSubmitResult(UnsignedInteger.valueOf(13), "terRETRY");
+        manager.onSubmitResult(UnsignedInteger.valueOf(14), "tefALREADY");
+
+        assertThat(acquire(1)).containsExactly(15L);
+    }
+
+    @Test
+    void resyncDropsSequencesTheLedgerConsumed() {
+        acquire(3);
+        accountSequence(13);
+
+        manager.resync();
+
+        assertThat(acquire(1)).containsExactly(13L);
+    }
+
+    @Test
+    void resyncKeepsUnconsumedSequencesUntilTheirLastLedgerSequencePasses() {
+        acquire(3);
+        accountSequence(11);
+
+        manager.resync();
+        assertThat(acquire(1)).containsExactly(13L);
+
+        validatedLedger(LLS.longValue() + 1);
+        manager.resync();
+        // 11 to 13 can no longer be applied; the cursor falls back to the account sequence
+        assertThat(acquire(1)).containsExactly(11L);
+    }
+
+    @Test
+    void expiredSequencesBelowALiveOneBecomeGaps() {
+        acquire(2);
+        manager.acquire(1, UnsignedInteger.valueOf(200));
+        validatedLedger(LLS.longValue() + 1);
+
+        manager.resync();
+
+        // 10 and 11 expired under 12, which can still be applied
+        assertThat(acquire(3)).containsExactly(10L, 11L, 13L);
+    }
+
+    @Test
+    void aGapFillWithAnUnknownOutcomeStaysInFlight() throws Exception {
+        acquire(3);
+        manager.release(UnsignedInteger.valueOf(10));
+        manager.onSubmitResult(UnsignedInteger.valueOf(12), "terPRE_SEQ");
+        SingleSignedTransaction<AccountSet> signed = mock(SingleSignedTransaction.class);
+        when(platformSigningService.sign(any(AccountSet.class))).thenReturn(signed);
+        when(xrplClientService.submit(signed)).thenThrow(new JsonRpcClientErrorException("timeout"));
+
+        manager.detectAndFillGaps();
+
+        verify(xrplClientService).submit(signed);
+        // 10 was not given back on the failed submit, so it is not handed out again
+        assertThat(acquire(1)).containsExactly(13L);
+    }
+}
@@ -0,0 +1,76 @@
+package com.xrp_payment_app.service;
+
+import com.google.common.primitives.UnsignedInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.xrpl.xrpl4j.crypto.signing.SingleSignedTransaction;
+import org.xrpl.xrpl4j.model.transactions.Address;
+import org.xrpl.xrpl4j.model.transactions.Payment;
+import org.xrpl.xrpl4j.model.transactions.XrpCurrencyAmount;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PlatformSigningServiceTest {
+
+    // The genesis account's well-known secret
+    private final PlatformSigningService service = new PlatformSigningService("snoPBrXtMeMyMHUVTgbuqAfg1SUTb", 2);
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    private Collection<?> pooledServices() {
+        return (Collection<?>) ReflectionTestUtils.getField(service, "signatureServices");
+    }
+
+    private Payment payment(int sequence) {
+        return Payment.builder()
+                .account(Address.of("rHb9CJAWyB4rj91VRWn96DkukG4bwdtyTh"))
+                .destination(Address.of("rPT1Sjq2YGrBMTttX4GZHjKu9dyfzbpAYe"))
+                .amount(XrpCurrencyAmount.ofDrops(1_000_000))
+                .fee(XrpCurrencyAmount.ofDrops(12))
+                .sequence(UnsignedInteger.valueOf(sequence))
+                .signingPublicKey(service.publicKey())
+                .build();
+    }
+
+    @Test
+    void batchesAreSignedInInputOrder() {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            payments.add(payment(i + 1));
+        }
+
+        List<SingleSignedTransaction<Payment>> signed = service.sign(payments);
+
+        assertThat(signed).extracting(transaction -> transaction.signedTransaction().sequence().intValue())
+                .containsExactlyElementsOf(payments.stream().map(payment -> payment.sequence().intValue()).toList());
+        assertThat(pooledServices()).hasSize(2);
+    }
+
+    @Test
+    void manyVirtualThreadsShareTheFixedPoolOfSigners() throws Exception {
+        List<Future<SingleSignedTransaction<Payment>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                Payment payment = payment(i + 1);
+                results.add(executor.submit(() -> service.sign(payment)));
+            }
+        }
+
+        for (Future<SingleSignedTransaction<Payment>> result : results) {
+            assertThat(result.get().hash()).isNotNull();
+        }
+        assertThat(pooledServices()).hasSize(2);
+    }
+}
@@ -0,0 +1,73 @@
+package com.xrp_payment_app.service;
+
+import com.xrp_payment_app.dto.PaymentSignResponse;
+import com.xrp_payment_app.entity.XrpAccount;
+import com.xrp_payment_app.exception.NotFoundException;
+import com.xrp_payment_app.repository.reactive.ReactiveTransactionRepository;
+import com.xrp_payment_app.repository.reactive.ReactiveXrpAccountRepository;
+import com.xrp_payment_app.utils.PaymentMetrics;
+import com.xrp_payment_app.utils.XamanPayloadBuilder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactivePaymentServiceTest {
+
+    private static final String SENDER = "rHb9CJAWyB4rj91VRWn96DkukG4bwdtyTh";
+    private static final String DESTINATION = "rPT1Sjq2YGrBMTttX4GZHjKu9dyfzbpAYe";
+
+    private final ReactiveXrpAccountRepository xrpAccountRepository = mock(ReactiveXrpAccountRepository.class);
+    private final XrplService xrplService = mock(XrplService.class);
+    private final IdempotencyService idempotencyService = mock(IdempotencyService.class);
+
+    private ReactivePaymentService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(idempotencyService.executeAsync(anyString(), anyString(), any()))
+                .thenAnswer(invocation -> ((Supplier<Mono<PaymentSignResponse>>) invocation.getArgument(2)).get());
+        service = new ReactivePaymentService("rPEPPER7kfTD9w2To4CQk6UCfuHM9c6GDY", mock(ReactiveTransactionRepository.class),
+                xrpAccountRepository, xrplService, mock(XamanClientService.class), mock(XamanPayloadBuilder.class),
+                mock(LedgerParameterCache.class), idempotencyService, new PaymentMetrics(new SimpleMeterRegistry()), 20);
+    }
+
+    private void assertAccountNotFound() {
+        StepVerifier.create(service.sendNonCustodialXrpWithFee("req-1", "alice", SENDER, DESTINATION, BigDecimal.ONE))
+                .expectErrorSatisfies(e -> assertThat(e).isInstanceOfSatisfying(NotFoundException.class,
+                        notFound -> assertThat(notFound.getErrorCode()).isEqualTo("ACCOUNT_NOT_FOUND")))
+                .verify();
+        verify(xrplService, never()).getAccountInfoAsync(anyString());
+    }
+
+    @Test
+    void noResolvedAccountIsNotFound() {
+        when(xrpAccountRepository.resolveSenderAccount(eq(SENDER), eq("alice"), anyString())).thenReturn(Mono.empty());
+
+        assertAccountNotFound();
+    }
+
+    @Test
+    void aResolvedRowWithoutAnIdIsNotFound() {
+        when(xrpAccountRepository.resolveSenderAccount(eq(SENDER), eq("alice"), anyString())).thenReturn(Mono.just(new XrpAccount()));
+
+        assertAccountNotFound();
+    }
+}
@@ -0,0 +1,224 @@
+package com.xrp_payment_app.service;
+
+import com.xrp_payment_app.config.OutboundHttpClients;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RippledNodePoolTest {
+
+    private final OutboundHttpClients outboundHttpClients = new OutboundHttpClients(new MockEnvironment(), ObservationRegistry.NOOP);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<DisposableServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void dispose() {
+        servers.forEach(DisposableServer::disposeNow);
+        outboundHttpClients.dispose();
+    }
+
+    // A local stand-in for rippled answering every request with the given status and body
+    private String stubNode(int status, String body) {
+        DisposableServer server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .handle((request, response) -> request.receive().then()
+                        .then(response.status(status).header("Content-Type", "application/json").sendString(Mono.just(body)).then()))
+                .bindNow();
+        servers.add(server);
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    private static String serverInfo(String state, long validatedLedger) {
+        return "{\"result\":{\"info\":{\"server_state\":\"" + state + "\",\"validated_ledger\":{\"seq\":" + validatedLedger + "}},\"status\":\"success\"}}";
+    }
+
+    private static Mono<String> post(RippledNode node) {
+        return node.webClient().post().bodyValue("{\"method\":\"fee\"}").retrieve().bodyToMono(String.class);
+    }
+
+    private static void awaitHealthCheck(RippledNodePool pool, int unhealthy) throws InterruptedException {
+        for (int i = 0; i < 100 && pool.nodeStats().stream().filter(stats -> !stats.healthy()).count() != unhealthy; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    private ReadHedger hedger(boolean enabled) {
+        return new ReadHedger(new PaymentMetrics(meterRegistry), enabled, 95, 10, 50, 50, 100, 0.05, 10);
+    }
+
+    private RippledNodePool pool(ReadHedger readHedger, String... urls) {
+        return new RippledNodePool(readHedger, outboundHttpClients, new PaymentMetrics(meterRegistry), List.of(urls), 2_000, 3, 0.5, 10, 200);
+    }
+
+    private static String host(RippledNode node) {
+        return URI.create(node.url()).getHost();
+    }
+
+    private static WebClientRequestException connectionRefused(RippledNode node) {
+        return new WebClientRequestException(new IOException("Connection refused"), HttpMethod.POST, URI.create(node.url()), new HttpHeaders());
+    }
+
+    private static void awaitLatencySaved(ReadHedger readHedger) throws InterruptedException {
+        for (int i = 0; i < 100 && readHedger.stats().latencySavedMs() == 0; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void aFailingNodeFailsOverToTheNextOne() {
+        RippledNodePool pool = pool(hedger(false), "http://node-a", "http://node-b");
+        Function<RippledNode, Mono<String>> call = node -> host(node).equals("node-a")
+                ? Mono.error(connectionRefused(node))
+                : Mono.just(host(node));
+
+        StepVerifier.create(pool.execute("submit", call))
+                .expectNext("node-b")
+                .verifyComplete();
+        assertThat(pool.failovers()).isEqualTo(1);
+    }
+
+    @Test
+    void aWinningHedgeLeavesThePrimaryToReportTheLatencySaved() throws Exception {
+        ReadHedger readHedger = hedger(true);
+        RippledNodePool pool = pool(readHedger, "http://node-a", "http://node-b");
+        Function<RippledNode, Mono<String>> call = node -> host(node).equals("node-a")
+                ? Mono.just("node-a").delayElement(Duration.ofMillis(300))
+                : Mono.just("node-b");
+
+        StepVerifier.create(pool.execute("account_info", call))
+                .expectNext("node-b")
+                .verifyComplete();
+        awaitLatencySaved(readHedger);
+
+        ReadHedger.HedgeStats stats = readHedger.stats();
+        assertThat(stats.hedgeWins()).isEqualTo(1);
+        assertThat(stats.latencySavedMs()).isBetween(150L, 300L);
+        assertThat(meterRegistry.get(PaymentMetrics.HEDGE_WINS).functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(PaymentMetrics.HEDGE_LATENCY_SAVED).functionCounter().count()).isEqualTo(stats.latencySavedMs());
+    }
+
+    @Test
+    void theHedgeSkipsTheNodeThePrimaryFailedOverTo() {
+        RippledNodePool pool = pool(hedger(true), "http://node-a", "http://node-b", "http://node-c");
+        Queue<String> called = new ConcurrentLinkedQueue<>();
+        Function<RippledNode, Mono<String>> call = node -> {
+            called.add(host(node));
+            return switch (host(node)) {
+                case "node-a" -> Mono.error(connectionRefused(node));
+                case "node-b" -> Mono.just("node-b").delayElement(Duration.ofMillis(500));
+                default -> Mono.just("node-c");
+            };
+        };
+
+        StepVerifier.create(pool.execute("account_info", call))
+                .expectNext("node-c")
+                .verifyComplete();
+        assertThat(called).containsExactly("node-a", "node-b", "node-c");
+    }
+
+    @Test
+    void noHedgeIsSpentWhenEveryNodeIsTaken() {
+        ReadHedger readHedger = hedger(true);
+        RippledNodePool pool = pool(readHedger, "http://node-a", "http://node-b");
+        Function<RippledNode, Mono<String>> call = node -> host(node).equals("node-a")
+                ? Mono.error(connectionRefused(node))
+                : Mono.just("node-b").delayElement(Duration.ofMillis(150));
+
+        StepVerifier.create(pool.execute("account_info", call))
+                .expectNext("node-b")
+                .verifyComplete();
+        assertThat(readHedger.stats().hedged()).isZero();
+        assertThat(readHedger.stats().budgetRejected()).isZero();
+    }
+
+    @Test
+    void aPrimaryAnsweringFirstSavesNothing() throws Exception {
+        ReadHedger readHedger = hedger(true);
+        RippledNodePool pool = pool(readHedger, "http://node-a", "http://node-b");
+
+        StepVerifier.create(pool.execute("account_info", node -> Mono.just(host(node))))
+                .expectNext("node-a")
+                .verifyComplete();
+        Thread.sleep(100);
+
+        assertThat(readHedger.stats().hedgeWins()).isZero();
+        assertThat(readHedger.stats().latencySavedMs()).isZero();
+    }
+
+    @Test
+    void aCancelledCallCancelsThePrimary() {
+        RippledNodePool pool = pool(hedger(true), "http://node-a", "http://node-b");
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+        Function<RippledNode, Mono<String>> call = node -> host(node).equals("node-a")
+                ? Mono.<String>never().doOnCancel(() -> primaryCancelled.set(true))
+                : Mono.never();
+
+        StepVerifier.create(pool.execute("account_info", call))
+                .expectSubscription()
+                .thenAwait(Duration.ofMillis(20))
+                .thenCancel()
+                .verify();
+
+        assertThat(primaryCancelled).isTrue();
+    }
+
+    @Test
+    void aNodeAnswering503FailsOverToAHealthyNode() {
+        String failing = stubNode(503, "{}");
+        String healthy = stubNode(200, serverInfo("full", 100));
+        RippledNodePool pool = pool(hedger(false), failing, healthy);
+
+        StepVerifier.create(pool.execute("fee", RippledNodePoolTest::post))
+                .expectNextMatches(body -> body.contains("\"full\""))
+                .verifyComplete();
+        assertThat(meterRegistry.get(PaymentMetrics.NODE_FAILOVERS).functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(PaymentMetrics.NODE_ERROR_RATE).tag("node", URI.create(failing).getAuthority()).gauge().value())
+                .isGreaterThan(0);
+        assertThat(meterRegistry.get(PaymentMetrics.NODE_ERROR_RATE).tag("node", URI.create(healthy).getAuthority()).gauge().value())
+                .isZero();
+    }
+
+    @Test
+    void theHealthCheckTakesLaggingAndUnreachableNodesOutOfRotation() throws Exception {
+        String synced = stubNode(200, serverInfo("full", 100));
+        String lagging = stubNode(200, serverInfo("full", 90));
+        String unreachable = stubNode(500, "{}");
+        RippledNodePool pool = pool(hedger(false), synced, lagging, unreachable);
+
+        pool.checkHealth();
+        awaitHealthCheck(pool, 2);
+
+        assertThat(pool.nodeStats()).extracting(RippledNode.Stats::healthy).containsExactly(true, false, false);
+        assertThat(pool.nodeStats().get(1).ledgerLag()).isEqualTo(10);
+        StepVerifier.create(pool.execute("fee", node -> Mono.just(node.url())))
+                .expectNext(synced)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,178 @@
+package com.xrp_payment_app.service;
+
+import com.xrp_payment_app.dto.SubmitResultResponse;
+import com.xrp_payment_app.entity.SubmissionOutboxEntry;
+import com.xrp_payment_app.entity.Transaction;
+import com.xrp_payment_app.exception.NotFoundException;
+import com.xrp_payment_app.repository.SubmissionOutboxRepository;
+import com.xrp_payment_app.repository.TransactionRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SubmissionOutboxServiceTest {
+
+    private static final String BLOB = "120000228000000024000000016140000000000F424068400000000000000C";
+    private static final String HASH = "C80D9603E9A6EFE72104247D836E81E49F819CE3A84DA9C5195A1E9A1E496F72";
+
+    private final SubmissionOutboxRepository outboxRepository = mock(SubmissionOutboxRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final FinalityTracker finalityTracker = mock(FinalityTracker.class);
+    private final SubmissionOutboxService service =
+            new SubmissionOutboxService(outboxRepository, transactionRepository, finalityTracker, 3, 1_000, 60_000);
+
+    @BeforeEach
+    void setUp() {
+        // enqueue registers an after-commit wake-up
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static Transaction transaction(long id, String paymentReference, String status) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setPaymentReference(paymentReference);
+        transaction.setStatus(status);
+        return transaction;
+    }
+
+    private static SubmissionOutboxEntry entry(int attempts, Long dependsOn) {
+        SubmissionOutboxEntry entry = new SubmissionOutboxEntry();
+        entry.setId(10L);
+        entry.setTransactionId(1L);
+        entry.setTxBlob(BLOB);
+        entry.setTxHash(HASH);
+        entry.setDependsOn(dependsOn);
+        entry.setAttempts(attempts);
+        return entry;
+    }
+
+    private static SubmitResultResponse result(String engineResult) {
+        return new SubmitResultResponse(engineResult, "message", HASH, engineResult.startsWith("tes"), "");
+    }
+
+    @Test
+    void blobsAreChainedInOrderAndWorkersWokenAfterCommit() throws Exception {
+        AtomicLong ids = new AtomicLong(100);
+        when(transactionRepository.findByPaymentReferenceIn(List.of("main", "fee")))
+                .thenReturn(List.of(transaction(2, "fee", "INITIATED"), transaction(1, "main", "INITIATED")));
+        when(outboxRepository.save(any())).thenAnswer(invocation -> {
+            SubmissionOutboxEntry saved = invocation.getArgument(0);
+            saved.setId(ids.incrementAndGet());
+            return saved;
+        });
+
+        List<String> hashes = service.enqueue(List.of("main", "fee"), List.of(BLOB, BLOB));
+
+        ArgumentCaptor<SubmissionOutboxEntry> saved = ArgumentCaptor.forClass(SubmissionOutboxEntry.class);
+        verify(outboxRepository, times(2)).save(saved.capture());
+        assertThat(saved.getAllValues()).extracting(SubmissionOutboxEntry::getTransactionId).containsExactly(1L, 2L);
+        assertThat(saved.getAllValues()).extracting(SubmissionOutboxEntry::getDependsOn).containsExactly(null, 101L);
+        assertThat(saved.getAllValues()).extracting(SubmissionOutboxEntry::getStatus).containsOnly("PENDING");
+        assertThat(hashes).containsExactly(HASH, HASH);
+
+        assertThat(service.awaitWork(0)).isFalse();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(service.awaitWork(0)).isTrue();
+    }
+
+    @Test
+    void aRepeatedCallbackReturnsTheQueuedHashes() {
+        Transaction queued = transaction(1, "main", "SUBMITTING");
+        queued.setTransactionHash(HASH);
+        when(transactionRepository.findByPaymentReferenceIn(List.of("main"))).thenReturn(List.of(queued));
+
+        assertThat(service.enqueue(List.of("main"), List.of(BLOB))).containsExactly(HASH);
+        verify(outboxRepository, never()).save(any());
+    }
+
+    @Test
+    void anUnknownPaymentReferenceIsNotFound() {
+        when(transactionRepository.findByPaymentReferenceIn(List.of("missing"))).thenReturn(List.of());
+
+        assertThatThrownBy(() -> service.enqueue(List.of("missing"), List.of(BLOB)))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void anAcceptedSubmissionIsDoneAndTracked() {
+        service.recordResult(entry(1, null), result("tesSUCCESS"));
+
+        verify(outboxRepository).complete(10L, "DONE", "tesSUCCESS", null);
+        verify(transactionRepository).updateStatusByIds("CONFIRMED", List.of(1L));
+        verify(finalityTracker).trackSignedBlob(HASH, BLOB);
+    }
+
+    @Test
+    void aQueuedSubmissionIsDoneButNotYetConfirmed() {
+        service.recordResult(entry(1, null), result("terQUEUED"));
+
+        verify(outboxRepository).complete(10L, "DONE", "terQUEUED", null);
+        verify(transactionRepository).updateStatusByIds("QUEUED", List.of(1L));
+    }
+
+    @Test
+    void aPastSequenceCountsAsAcceptedOnlyAfterAnEarlierAttempt() {
+        service.recordResult(entry(2, null), result("tefPAST_SEQ"));
+        verify(outboxRepository).complete(10L, "DONE", "tefPAST_SEQ", null);
+
+        service.recordResult(entry(1, null), result("tefPAST_SEQ"));
+        verify(outboxRepository).complete(10L, "FAILED", "tefPAST_SEQ", "message");
+    }
+
+    @Test
+    void aRetryableResultIsRescheduledWithJitteredBackoff() {
+        ArgumentCaptor<Double> delay = ArgumentCaptor.forClass(Double.class);
+
+        service.recordResult(entry(2, null), result("telINSUF_FEE_P"));
+
+        verify(outboxRepository).reschedule(eq(10L), eq("telINSUF_FEE_P"), eq("message"), delay.capture());
+        // Second attempt: 2 s, jittered down to no less than half
+        assertThat(delay.getValue()).isBetween(1.0, 2.0);
+        verify(outboxRepository, never()).complete(anyLong(), anyString(), any(), any());
+    }
+
+    @Test
+    void aRetryableResultFailsOnceAttemptsAreUsedUp() {
+        service.recordError(entry(3, null), new RuntimeException("connection reset"));
+
+        verify(outboxRepository, never()).reschedule(anyLong(), any(), any(), anyDouble());
+        verify(outboxRepository).complete(10L, "FAILED", null, "connection reset");
+    }
+
+    @Test
+    void aFailedEntryFailsTheTransactionsChainedBehindIt() {
+        when(outboxRepository.findPendingDependentTransactionIds(10L)).thenReturn(List.of(2L));
+
+        service.recordRejection(entry(1, null), new RuntimeException("invalidTransaction"));
+
+        verify(outboxRepository).complete(10L, "FAILED", null, "invalidTransaction");
+        verify(outboxRepository).skipDependents(10L);
+        verify(transactionRepository).updateStatusByIds("FAILED", List.of(1L, 2L));
+        verify(finalityTracker, never()).trackSignedBlob(anyString(), anyString());
+    }
+}
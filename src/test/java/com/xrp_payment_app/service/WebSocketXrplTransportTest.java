@@ -0,0 +1,190 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebSocketXrplTransportTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // Every session the stub accepted, in order; completing one closes that socket
+    private final List<Sinks.Many<String>> sessions = new CopyOnWriteArrayList<>();
+    private final Queue<JsonNode> received = new ConcurrentLinkedQueue<>();
+    // Decides what the stub does with each command, given the session it came in on
+    private volatile BiConsumer<JsonNode, Sinks.Many<String>> responder = (command, session) -> reply(session, command, "{}");
+
+    private DisposableServer server;
+    private WebSocketXrplTransport transport;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .handle((request, response) -> response.sendWebsocket((in, out) -> {
+                    Sinks.Many<String> session = Sinks.many().unicast().onBackpressureBuffer();
+                    sessions.add(session);
+                    in.receive().asString().subscribe(text -> {
+                        JsonNode command = read(text);
+                        received.add(command);
+                        responder.accept(command, session);
+                    });
+                    return out.sendString(session.asFlux());
+                }))
+                .bindNow();
+        transport = new WebSocketXrplTransport("ws://127.0.0.1:" + server.port(), 1, 2_000, 2_000, 1_048_576,
+                new PaymentMetrics(new SimpleMeterRegistry()));
+        transport.start();
+        awaitSessions(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.stop();
+        server.disposeNow();
+    }
+
+    private JsonNode read(String text) {
+        try {
+            return mapper.readTree(text);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String response(JsonNode command, String result) {
+        return "{\"id\":" + command.path("id").asLong() + ",\"type\":\"response\",\"status\":\"success\",\"result\":" + result + "}";
+    }
+
+    private void reply(Sinks.Many<String> session, JsonNode command, String result) {
+        session.emitNext(response(command, result), Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+
+    private void awaitSessions(int count) throws InterruptedException {
+        for (int i = 0; i < 200 && (sessions.size() < count || transport.openConnections() == 0); i++) {
+            Thread.sleep(20);
+        }
+        assertThat(sessions).hasSize(count);
+    }
+
+    private ObjectNode subscribe(String stream, String account) {
+        ObjectNode params = mapper.createObjectNode();
+        if (stream != null) {
+            params.putArray("streams").add(stream);
+        }
+        if (account != null) {
+            params.putArray("accounts").add(account);
+        }
+        return params;
+    }
+
+    @Test
+    void responsesAreMatchedToTheirRequestsById() {
+        Queue<JsonNode> held = new ConcurrentLinkedQueue<>();
+        // Holds the ledger request back and answers it only after the fee request
+        responder = (command, session) -> {
+            if ("ledger".equals(command.path("command").asText())) {
+                held.add(command);
+                return;
+            }
+            reply(session, command, "{\"answer\":\"fee\"}");
+            held.forEach(ledger -> reply(session, ledger, "{\"answer\":\"ledger\"}"));
+        };
+
+        Mono<JsonNode> ledger = transport.send("ledger", null);
+        StepVerifier.create(ledger.zipWith(transport.send("fee", null).delaySubscription(Duration.ofMillis(100))))
+                .assertNext(results -> {
+                    assertThat(results.getT1().path("answer").asText()).isEqualTo("ledger");
+                    assertThat(results.getT2().path("answer").asText()).isEqualTo("fee");
+                })
+                .verifyComplete();
+        assertThat(received).extracting(command -> command.path("id").asLong()).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void aReconnectReplaysOnlyAcknowledgedSubscriptions() throws Exception {
+        responder = (command, session) -> {
+            if (command.has("accounts")) {
+                session.emitNext("{\"id\":" + command.path("id").asLong() + ",\"type\":\"response\",\"status\":\"error\","
+                        + "\"error\":\"actMalformed\"}", Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+            } else {
+                reply(session, command, "{}");
+            }
+        };
+
+        transport.send("subscribe", subscribe("ledger", null)).block(Duration.ofSeconds(2));
+        transport.send("subscribe", subscribe(null, "rBad")).block(Duration.ofSeconds(2));
+        received.clear();
+        sessions.get(0).tryEmitComplete();
+        awaitSessions(2);
+        for (int i = 0; i < 100 && received.isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+
+        assertThat(received).hasSize(1);
+        JsonNode replayed = received.peek();
+        assertThat(replayed.path("command").asText()).isEqualTo("subscribe");
+        assertThat(replayed.path("streams").get(0).asText()).isEqualTo("ledger");
+        assertThat(replayed.has("accounts")).isFalse();
+    }
+
+    @Test
+    void anUnsubscribeIsNotReplayed() throws Exception {
+        transport.send("subscribe", subscribe("ledger", null)).block(Duration.ofSeconds(2));
+        transport.send("unsubscribe", subscribe("ledger", null)).block(Duration.ofSeconds(2));
+        received.clear();
+        sessions.get(0).tryEmitComplete();
+        awaitSessions(2);
+        Thread.sleep(200);
+
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void pendingRequestsFailWhenTheConnectionCloses() {
+        // Closes the socket instead of answering
+        responder = (command, session) -> session.tryEmitComplete();
+
+        StepVerifier.create(transport.send("ledger", null))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(IllegalStateException.class)
+                        .hasMessageContaining("closed before a response"))
+                .verify(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void streamMessagesAreNotTakenForResponses() {
+        responder = (command, session) -> {
+            session.emitNext("{\"type\":\"ledgerClosed\",\"ledger_index\":100}", Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+            reply(session, command, "{}");
+        };
+
+        StepVerifier.create(transport.streamMessages().take(1))
+                .then(() -> transport.send("subscribe", subscribe("ledger", null)).subscribe())
+                .assertNext(message -> assertThat(message.path("ledger_index").asLong()).isEqualTo(100))
+                .verifyComplete();
+    }
+}
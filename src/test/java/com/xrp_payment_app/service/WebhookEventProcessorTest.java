@@ -0,0 +1,129 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xrp_payment_app.entity.WebhookEvent;
+import com.xrp_payment_app.exception.NotFoundException;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebhookEventProcessorTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final WebhookIngestionService ingestionService = mock(WebhookIngestionService.class);
+    private final XamanClientService xamanClientService = mock(XamanClientService.class);
+    private final SubmissionOutboxService submissionOutboxService = mock(SubmissionOutboxService.class);
+    private final WebhookEventProcessor processor = new WebhookEventProcessor(ingestionService, xamanClientService,
+            submissionOutboxService, new PaymentMetrics(new SimpleMeterRegistry()), ObservationRegistry.NOOP, 1, 20, 10, 30, 8);
+
+    private final List<WebhookEvent> batch = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        AtomicBoolean handedOut = new AtomicBoolean();
+        // One batch, then an idle queue
+        when(ingestionService.claim(anyInt(), anyLong())).thenAnswer(invocation ->
+                handedOut.compareAndSet(false, true) ? batch : List.of());
+        when(ingestionService.awaitWork(anyLong())).thenAnswer(invocation -> {
+            Thread.sleep(10);
+            return false;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        processor.stop();
+    }
+
+    private WebhookEvent event(String payloadUuids, String signedStatus) {
+        WebhookEvent event = new WebhookEvent();
+        event.setPayloadUuid(payloadUuids.split(",")[0]);
+        event.setPayloadUuids(payloadUuids);
+        event.setSignedStatus(signedStatus);
+        event.setAttempts(1);
+        batch.add(event);
+        return event;
+    }
+
+    private Mono<JsonNode> payload(String hex) {
+        return Mono.just(mapper.createObjectNode().set("response", mapper.createObjectNode().put("hex", hex)));
+    }
+
+    @Test
+    void signedPayloadsAreQueuedInPayloadOrder() {
+        WebhookEvent event = event("main,fee", "SIGNED");
+        // The main payload answers last, its blob still comes first
+        when(xamanClientService.getPayloadAsync("main")).thenReturn(payload("AAAA").delayElement(Duration.ofMillis(50)));
+        when(xamanClientService.getPayloadAsync("fee")).thenReturn(payload("BBBB"));
+
+        processor.start();
+
+        verify(submissionOutboxService, timeout(2_000)).enqueue(List.of("main", "fee"), List.of("AAAA", "BBBB"));
+        verify(ingestionService, timeout(2_000)).complete(event, "DONE", null);
+    }
+
+    @Test
+    void anUnsignedPayloadIsSkippedWithoutFetching() {
+        WebhookEvent event = event("rejected", "REJECTED");
+
+        processor.start();
+
+        verify(ingestionService, timeout(2_000)).complete(event, "SKIPPED", null);
+        verify(xamanClientService, never()).getPayloadAsync("rejected");
+    }
+
+    @Test
+    void aFailedFetchIsRetriedWithoutFailingTheRestOfTheBatch() {
+        WebhookEvent unavailable = event("unavailable", "SIGNED");
+        WebhookEvent pending = event("pending", "SIGNED");
+        WebhookEvent signed = event("signed", "SIGNED");
+        when(xamanClientService.getPayloadAsync("unavailable")).thenReturn(Mono.error(new IllegalStateException("Xaman unavailable")));
+        when(xamanClientService.getPayloadAsync("pending")).thenReturn(payload(""));
+        when(xamanClientService.getPayloadAsync("signed")).thenReturn(payload("CCCC"));
+
+        processor.start();
+
+        verify(ingestionService, timeout(2_000)).retryOrFail(unavailable, "Xaman unavailable");
+        verify(ingestionService, timeout(2_000)).retryOrFail(eq(pending), contains("has no signed transaction"));
+        verify(ingestionService, timeout(2_000)).complete(signed, "DONE", null);
+    }
+
+    @Test
+    void aCallbackWithoutAPaymentFailsAndOtherErrorsAreRetried() {
+        WebhookEvent orphan = event("orphan", "SIGNED");
+        WebhookEvent busy = event("busy", "SIGNED");
+        when(xamanClientService.getPayloadAsync("orphan")).thenReturn(payload("DDDD"));
+        when(xamanClientService.getPayloadAsync("busy")).thenReturn(payload("EEEE"));
+        when(submissionOutboxService.enqueue(List.of("orphan"), List.of("DDDD")))
+                .thenThrow(new NotFoundException("No transaction", "missing", "TRANSACTION_NOT_FOUND"));
+        when(submissionOutboxService.enqueue(List.of("busy"), List.of("EEEE"))).thenThrow(new RuntimeException("deadlock detected"));
+
+        processor.start();
+
+        verify(ingestionService, timeout(2_000)).complete(orphan, "FAILED", "No transaction");
+        verify(ingestionService, timeout(2_000)).retryOrFail(busy, "deadlock detected");
+    }
+}
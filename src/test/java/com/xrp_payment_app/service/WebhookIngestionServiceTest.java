@@ -0,0 +1,100 @@
+package com.xrp_payment_app.service;
+
+import com.xrp_payment_app.entity.WebhookEvent;
+import com.xrp_payment_app.exception.BadRequestException;
+import com.xrp_payment_app.repository.WebhookEventRepository;
+import com.xrp_payment_app.repository.reactive.ReactiveWebhookEventRepository;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebhookIngestionServiceTest {
+
+    private final WebhookEventRepository repository = mock(WebhookEventRepository.class);
+    private final ReactiveWebhookEventRepository reactiveRepository = mock(ReactiveWebhookEventRepository.class);
+    private final WebhookIngestionService service = new WebhookIngestionService(repository, reactiveRepository,
+            new PaymentMetrics(new SimpleMeterRegistry()), 3, 1_000, 60_000);
+
+    private static WebhookEvent event(int attempts) {
+        WebhookEvent event = new WebhookEvent();
+        event.setPayloadUuid("main");
+        event.setPayloadUuids("main,fee");
+        event.setAttempts(attempts);
+        return event;
+    }
+
+    @Test
+    void aNewCallbackIsQueuedUnderItsMainPayloadAndWakesAProcessor() throws Exception {
+        when(repository.insertIfAbsent("main", "main,fee", "SIGNED")).thenReturn(1);
+
+        assertThat(service.acceptBatch(List.of("main", "fee"), "SIGNED").status()).isEqualTo("RECEIVED");
+        assertThat(service.awaitWork(0)).isTrue();
+    }
+
+    @Test
+    void aDuplicateCallbackIsAcknowledgedWithoutWakingAProcessor() throws Exception {
+        when(repository.insertIfAbsent("main", "main", "SIGNED")).thenReturn(0);
+
+        assertThat(service.accept("main", "SIGNED").status()).isEqualTo("RECEIVED");
+        assertThat(service.awaitWork(0)).isFalse();
+    }
+
+    @Test
+    void theReactivePathQueuesTheSameWay() throws Exception {
+        when(reactiveRepository.insertIfAbsent("main", "main,fee", "SIGNED")).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(service.acceptBatchAsync(List.of("main", "fee"), "SIGNED"))
+                .assertNext(response -> assertThat(response.status()).isEqualTo("RECEIVED"))
+                .verifyComplete();
+        assertThat(service.awaitWork(0)).isTrue();
+    }
+
+    @Test
+    void aCallbackWithoutPayloadUuidsIsABadRequest() {
+        assertThatThrownBy(() -> service.accept(null, "SIGNED")).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> service.acceptBatch(Arrays.asList("main", " "), "SIGNED")).isInstanceOf(BadRequestException.class);
+        StepVerifier.create(service.acceptBatchAsync(List.of(), "SIGNED"))
+                .expectError(BadRequestException.class)
+                .verify();
+        verify(repository, never()).insertIfAbsent(any(), any(), any());
+    }
+
+    @Test
+    void aFailedEventIsRescheduledWithJitteredBackoff() {
+        ArgumentCaptor<Double> delay = ArgumentCaptor.forClass(Double.class);
+
+        service.retryOrFail(event(2), "Xaman unavailable");
+
+        verify(repository).reschedule(eq("main"), eq("Xaman unavailable"), delay.capture());
+        // Second attempt: 2 s, jittered down to no less than half
+        assertThat(delay.getValue()).isBetween(1.0, 2.0);
+    }
+
+    @Test
+    void aFailedEventIsGivenUpOnceAttemptsAreUsedUp() {
+        service.retryOrFail(event(3), "Xaman unavailable");
+
+        verify(repository, never()).reschedule(anyString(), any(), anyDouble());
+        verify(repository).complete("main", "FAILED", "Xaman unavailable");
+    }
+}
@@ -0,0 +1,234 @@
+package com.xrp_payment_app.service;
+
+import com.xrp_payment_app.exception.UnprocessedException;
+import com.xrp_payment_app.exception.XamanUnavailableException;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XamanCallGuardTest {
+
+    private static final Duration DEADLINE = Duration.ofSeconds(2);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger subscriptions = new AtomicInteger();
+
+    private XamanCallGuard guard(int maxConcurrent, int maxQueued, int getRetries, long attemptTimeoutMs, int failureThreshold, long openMs) {
+        return new XamanCallGuard(meterRegistry, new PaymentMetrics(meterRegistry),
+                maxConcurrent, maxQueued, getRetries, 10, attemptTimeoutMs, failureThreshold, openMs);
+    }
+
+    private XamanCallGuard breaker(int failureThreshold, long openMs) {
+        return guard(4, 4, 0, 1_000, failureThreshold, openMs);
+    }
+
+    private static WebClientResponseException status(int status) {
+        return WebClientResponseException.create(HttpStatusCode.valueOf(status), "status " + status, HttpHeaders.EMPTY, new byte[0], null, null);
+    }
+
+    // Counts how often the guard actually let the call through
+    private <T> Mono<T> counted(Mono<T> request) {
+        return Mono.defer(() -> {
+            subscriptions.incrementAndGet();
+            return request;
+        });
+    }
+
+    private void fail(XamanCallGuard guard, int times) {
+        for (int i = 0; i < times; i++) {
+            StepVerifier.create(guard.call("payload_status", DEADLINE, Mono.error(status(503))))
+                    .expectError(XamanUnavailableException.class)
+                    .verify();
+        }
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    @Test
+    void consecutiveFailuresOpenTheBreakerAndLaterCallsFailFast() {
+        XamanCallGuard guard = breaker(2, 60_000);
+        fail(guard, 2);
+
+        StepVerifier.create(guard.call("payload_status", DEADLINE, counted(Mono.just("ok"))))
+                .expectErrorSatisfies(e -> assertThat(e).isInstanceOf(XamanUnavailableException.class).hasMessageContaining("circuit open"))
+                .verify();
+        assertThat(guard.breakerState()).isEqualTo(XamanCallGuard.BreakerState.OPEN);
+        assertThat(subscriptions).hasValue(0);
+        assertThat(meterRegistry.get("xaman.client.rejected").tag("reason", "circuit_open").counter().count()).isEqualTo(1);
+        assertThat(gauge("xaman.client.breaker.open")).isEqualTo(1);
+    }
+
+    @Test
+    void aSuccessfulTrialClosesTheBreakerAndOnlyOneTrialRunsAtATime() throws Exception {
+        XamanCallGuard guard = breaker(1, 50);
+        fail(guard, 1);
+        Thread.sleep(80);
+
+        Sinks.One<String> trial = Sinks.one();
+        Disposable trialCall = guard.call("payload_status", DEADLINE, trial.asMono()).subscribe();
+        assertThat(guard.breakerState()).isEqualTo(XamanCallGuard.BreakerState.HALF_OPEN);
+        StepVerifier.create(guard.call("payload_status", DEADLINE, counted(Mono.just("ok"))))
+                .expectError(XamanUnavailableException.class)
+                .verify();
+
+        trial.tryEmitValue("ok");
+        assertThat(guard.breakerState()).isEqualTo(XamanCallGuard.BreakerState.CLOSED);
+        StepVerifier.create(guard.call("payload_status", DEADLINE, counted(Mono.just("ok"))))
+                .expectNext("ok")
+                .verifyComplete();
+        assertThat(subscriptions).hasValue(1);
+        trialCall.dispose();
+    }
+
+    @Test
+    void aFailedTrialOpensTheBreakerAgain() throws Exception {
+        XamanCallGuard guard = breaker(3, 50);
+        fail(guard, 3);
+        Thread.sleep(80);
+
+        fail(guard, 1);
+
+        assertThat(guard.breakerState()).isEqualTo(XamanCallGuard.BreakerState.OPEN);
+    }
+
+    @Test
+    void aCancelledTrialLetsTheNextCallTry() throws Exception {
+        XamanCallGuard guard = breaker(1, 50);
+        fail(guard, 1);
+        Thread.sleep(80);
+
+        StepVerifier.create(guard.call("payload_status", Duration.ofMillis(50), Mono.never()))
+                .expectError(XamanUnavailableException.class)
+                .verify();
+
+        StepVerifier.create(guard.call("payload_status", DEADLINE, Mono.just("ok")))
+                .expectNext("ok")
+                .verifyComplete();
+        assertThat(guard.breakerState()).isEqualTo(XamanCallGuard.BreakerState.CLOSED);
+    }
+
+    @Test
+    void clientErrorsAreRejectionsAndLeaveTheBreakerClosed() {
+        XamanCallGuard guard = breaker(2, 60_000);
+
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(guard.call("create_payload", DEADLINE, Mono.error(status(400))))
+                    .expectErrorSatisfies(e -> assertThat(e).isInstanceOfSatisfying(UnprocessedException.class,
+                            rejected -> assertThat(rejected.getErrorCode()).isEqualTo("XAMAN_REQUEST_REJECTED")))
+                    .verify();
+        }
+
+        assertThat(guard.breakerState()).isEqualTo(XamanCallGuard.BreakerState.CLOSED);
+    }
+
+    @Test
+    void callsBeyondTheQueueAreRejectedAndQueuedCallsRunInTurn() {
+        XamanCallGuard guard = guard(1, 1, 0, 1_000, 5, 60_000);
+        Sinks.One<String> first = Sinks.one();
+        Disposable running = guard.call("create_payload", DEADLINE, first.asMono()).subscribe();
+        Mono<String> second = guard.call("create_payload", DEADLINE, counted(Mono.just("second")));
+
+        StepVerifier.create(second)
+                .then(() -> {
+                    assertThat(guard.queueDepth()).isEqualTo(1);
+                    assertThat(subscriptions).hasValue(0);
+                    StepVerifier.create(guard.call("create_payload", DEADLINE, Mono.just("third")))
+                            .expectErrorSatisfies(e -> assertThat(e).hasMessageContaining("bulkhead full"))
+                            .verify();
+                    first.tryEmitValue("first");
+                })
+                .expectNext("second")
+                .verifyComplete();
+
+        assertThat(meterRegistry.get("xaman.client.rejected").tag("reason", "bulkhead").counter().count()).isEqualTo(1);
+        assertThat(guard.queueDepth()).isZero();
+        assertThat(gauge("xaman.client.active")).isZero();
+        running.dispose();
+    }
+
+    @Test
+    void aQueuedCallPastItsDeadlineGivesUpItsSlot() {
+        XamanCallGuard guard = guard(1, 1, 0, 1_000, 5, 60_000);
+        Sinks.One<String> first = Sinks.one();
+        Disposable running = guard.call("create_payload", DEADLINE, first.asMono()).subscribe();
+
+        StepVerifier.create(guard.call("create_payload", Duration.ofMillis(50), counted(Mono.just("late"))))
+                .expectError(XamanUnavailableException.class)
+                .verify();
+        assertThat(guard.queueDepth()).isZero();
+
+        first.tryEmitValue("first");
+        assertThat(subscriptions).hasValue(0);
+        assertThat(gauge("xaman.client.active")).isZero();
+        StepVerifier.create(guard.call("create_payload", DEADLINE, Mono.just("next")))
+                .expectNext("next")
+                .verifyComplete();
+        running.dispose();
+    }
+
+    @Test
+    void idempotentCallsAreRetriedOnTransientFailures() {
+        XamanCallGuard guard = guard(4, 4, 2, 1_000, 5, 60_000);
+        Mono<String> flaky = counted(Mono.defer(() -> subscriptions.get() < 3 ? Mono.error(status(503)) : Mono.just("ok")));
+
+        StepVerifier.create(guard.idempotentCall("payload_status", DEADLINE, flaky))
+                .expectNext("ok")
+                .verifyComplete();
+
+        assertThat(subscriptions).hasValue(3);
+        assertThat(meterRegistry.get("xaman.client.retries").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void payloadCreationIsNeverRetried() {
+        XamanCallGuard guard = guard(4, 4, 2, 1_000, 5, 60_000);
+
+        StepVerifier.create(guard.call("create_payload", DEADLINE, counted(Mono.error(status(503)))))
+                .expectError(XamanUnavailableException.class)
+                .verify();
+
+        assertThat(subscriptions).hasValue(1);
+    }
+
+    @Test
+    void aHungAttemptIsCutOffAndRetried() {
+        XamanCallGuard guard = guard(4, 4, 2, 50, 5, 60_000);
+        Mono<String> hangsOnce = counted(Mono.defer(() -> subscriptions.get() == 1 ? Mono.never() : Mono.just("ok")));
+
+        StepVerifier.create(guard.idempotentCall("payload_status", DEADLINE, hangsOnce))
+                .expectNext("ok")
+                .verifyComplete();
+
+        assertThat(meterRegistry.get("xaman.client.timeouts").counter().count()).isEqualTo(1);
+        assertThat(gauge("xaman.client.active")).isZero();
+    }
+
+    @Test
+    void theDeadlineBoundsRetriesAndReleasesThePermit() {
+        XamanCallGuard guard = guard(4, 4, 5, 1_000, 10, 60_000);
+
+        StepVerifier.create(guard.idempotentCall("payload_status", Duration.ofMillis(100), Mono.never()))
+                .expectErrorSatisfies(e -> assertThat(e).isInstanceOf(XamanUnavailableException.class))
+                .verify(Duration.ofSeconds(1));
+
+        assertThat(gauge("xaman.client.active")).isZero();
+        assertThat(guard.breakerState()).isEqualTo(XamanCallGuard.BreakerState.CLOSED);
+    }
+}
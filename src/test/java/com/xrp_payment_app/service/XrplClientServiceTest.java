@@ -0,0 +1,101 @@
+package com.xrp_payment_app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class XrplClientServiceTest {
+
+    private static final String ADDRESS = "rHb9CJAWyB4rj91VRWn96DkukG4bwdtyTh";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final XrplTransport xrplTransport = mock(XrplTransport.class);
+    private final XrplStreamService xrplStreamService = mock(XrplStreamService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private XrplClientService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(xrplTransport.objectMapper()).thenReturn(mapper);
+        when(xrplTransport.send(eq("account_info"), any())).thenReturn(Mono.just(
+                mapper.readTree("{\"account_data\":{\"Account\":\"" + ADDRESS + "\",\"Balance\":\"25000000\",\"Sequence\":7}}")));
+        streamAt(105, true);
+        service = new XrplClientService(xrplTransport, xrplStreamService, new PaymentMetrics(meterRegistry), 100, 30_000);
+    }
+
+    private void streamAt(long ledgerIndex, boolean healthy) {
+        when(xrplStreamService.lastLedgerIndex()).thenReturn(ledgerIndex);
+        when(xrplStreamService.isHealthy(anyLong())).thenReturn(healthy);
+    }
+
+    private List<JsonNode> sentParams(int times) {
+        ArgumentCaptor<JsonNode> params = ArgumentCaptor.forClass(JsonNode.class);
+        verify(xrplTransport, times(times)).send(eq("account_info"), params.capture());
+        return params.getAllValues();
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get(PaymentMetrics.ACCOUNT_CACHE_REQUESTS).tag("result", result).functionCounter().count();
+    }
+
+    @Test
+    void cachedReadsAreMadeAtTheLedgerTheyAreCachedUnder() {
+        service.getAccountData(ADDRESS);
+        service.getAccountData(ADDRESS);
+
+        assertThat(sentParams(1).get(0).path("ledger_index").asLong()).isEqualTo(105);
+        assertThat(requests("miss")).isEqualTo(1);
+        assertThat(requests("hit")).isEqualTo(1);
+        assertThat(meterRegistry.get(PaymentMetrics.ACCOUNT_CACHE_SIZE).gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void aNewValidatedLedgerIsReadAgain() {
+        service.getAccountData(ADDRESS);
+        streamAt(106, true);
+        service.getAccountData(ADDRESS);
+
+        assertThat(sentParams(2)).extracting(params -> params.path("ledger_index").asLong()).containsExactly(105L, 106L);
+    }
+
+    @Test
+    void withoutAHealthyStreamNothingIsCachedOrPinned() {
+        streamAt(105, false);
+
+        service.getAccountData(ADDRESS);
+        service.getAccountData(ADDRESS);
+
+        assertThat(sentParams(2)).extracting(params -> params.path("ledger_index").asText()).containsOnly("current");
+        assertThat(requests("hit")).isZero();
+    }
+
+    @Test
+    void aLedgerTheNodeDoesNotHaveYetFallsBackWithoutCaching() throws Exception {
+        when(xrplTransport.send(eq("account_info"), any()))
+                .thenReturn(Mono.just(mapper.readTree("{\"error\":\"lgrNotFound\",\"error_message\":\"ledgerNotFound\"}")))
+                .thenReturn(Mono.just(mapper.readTree("{\"account_data\":{\"Balance\":\"25000000\",\"Sequence\":7}}")));
+
+        assertThat(service.getAccountData(ADDRESS).sequence().longValue()).isEqualTo(7);
+        assertThat(meterRegistry.get(PaymentMetrics.ACCOUNT_CACHE_SIZE).gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,65 @@
+package com.xrp_payment_app.service;
+
+import com.xrp_payment_app.dto.SubmitResultResponse;
+import com.xrp_payment_app.exception.UnprocessedException;
+import com.xrp_payment_app.utils.PaymentMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class XrplServiceTest {
+
+    private static final String BLOB = "120000228000000024000000016140000000000F424068400000000000000C";
+    // SHA-512Half of "TXN\0" followed by the blob
+    private static final String HASH = "C80D9603E9A6EFE72104247D836E81E49F819CE3A84DA9C5195A1E9A1E496F72";
+
+    private final XrplTransport xrplTransport = mock(XrplTransport.class);
+    private final XrplService service = new XrplService(xrplTransport, new PaymentMetrics(new SimpleMeterRegistry()));
+
+    @Test
+    void theHashIsDerivedFromTheBlob() {
+        when(xrplTransport.submit(BLOB)).thenReturn(Mono.just(new SubmitResultResponse("tesSUCCESS", "applied", "", true, "")));
+
+        StepVerifier.create(service.submitSignedBlobAsync(BLOB))
+                .assertNext(result -> {
+                    assertThat(result.engineResult()).isEqualTo("tesSUCCESS");
+                    assertThat(result.transactionHash()).isEqualTo(HASH);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void aRippledErrorIsATerminalRejection() {
+        when(xrplTransport.submit(BLOB)).thenReturn(Mono.just(
+                new SubmitResultResponse("", "fails local checks: Invalid signature.", "", false, "invalidTransaction")));
+
+        StepVerifier.create(service.submitSignedBlobAsync(BLOB))
+                .expectErrorSatisfies(e -> {
+                    assertThat(XrplService.isSubmitRejected(e)).isTrue();
+                    assertThat(e).hasMessageContaining("invalidTransaction").hasMessageContaining(HASH);
+                })
+                .verify();
+        // The blocking variant passes it through unwrapped
+        assertThatThrownBy(() -> service.submitSignedBlob(BLOB))
+                .isInstanceOfSatisfying(UnprocessedException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo(XrplService.SUBMIT_REJECTED));
+    }
+
+    @Test
+    void aResponseWithoutAnEngineResultHasAnUnknownOutcome() {
+        when(xrplTransport.submit(BLOB)).thenReturn(Mono.just(new SubmitResultResponse("", "", "", false, "")));
+
+        StepVerifier.create(service.submitSignedBlobAsync(BLOB))
+                .expectErrorSatisfies(e -> assertThat(XrplService.isSubmitRejected(e)).isFalse())
+                .verify();
+    }
+}
@@ -0,0 +1,73 @@
+package com.xrp_payment_app.service;
+
+import com.xrp_payment_app.event.LedgerClosedEvent;
+import com.xrp_payment_app.event.ValidatedTransactionEvent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Flux;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XrplStreamServiceTest {
+
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+    private final AtomicInteger sessions = new AtomicInteger();
+
+    private DisposableServer server;
+    private XrplStreamService streamService;
+
+    private static String transaction(String hash, String memo) {
+        return "{\"type\":\"transaction\",\"validated\":true,\"engine_result\":\"tesSUCCESS\",\"ledger_index\":101,"
+                + "\"transaction\":{\"hash\":\"" + hash + "\",\"Memos\":[{\"Memo\":{\"MemoData\":\"" + memo + "\"}}]}}";
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Answers the subscribe, then streams an untracked transaction larger than 64 KiB,
+        // a tracked one and the next ledger
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .handle((request, response) -> response.sendWebsocket((in, out) -> {
+                    sessions.incrementAndGet();
+                    return out.sendString(in.receive().asString().take(1).flatMap(subscribe -> Flux.just(
+                            "{\"id\":\"stream\",\"type\":\"response\",\"status\":\"success\",\"result\":{\"ledger_index\":100}}",
+                            transaction("UNTRACKED", "AB".repeat(50_000)),
+                            transaction("TRACKED", "CD"),
+                            "{\"type\":\"ledgerClosed\",\"ledger_index\":101}")));
+                }))
+                .bindNow();
+        streamService = new XrplStreamService(events::add, "ws://127.0.0.1:" + server.port(), true, 1_048_576);
+        streamService.publishTransactionsMatching(Set.of("TRACKED")::contains);
+        streamService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamService.stop();
+        server.disposeNow();
+    }
+
+    @Test
+    void largeTransactionsDoNotBreakTheStreamAndOnlyTrackedOnesArePublished() throws Exception {
+        for (int i = 0; i < 200 && streamService.lastLedgerIndex() < 101; i++) {
+            Thread.sleep(20);
+        }
+
+        assertThat(streamService.lastLedgerIndex()).isEqualTo(101);
+        assertThat(sessions).hasValue(1);
+        assertThat(events).filteredOn(ValidatedTransactionEvent.class::isInstance)
+                .containsExactly(new ValidatedTransactionEvent("TRACKED", "tesSUCCESS", 101));
+        assertThat(events).filteredOn(LedgerClosedEvent.class::isInstance).hasSize(2);
+    }
+}
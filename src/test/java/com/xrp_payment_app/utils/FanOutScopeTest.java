@@ -0,0 +1,93 @@
+package com.xrp_payment_app.utils;
+
+import com.xrp_payment_app.exception.XrpServiceException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FanOutScopeTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final PaymentMetrics metrics = new PaymentMetrics(new SimpleMeterRegistry());
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private FanOutScope scope(long deadlineMs) {
+        return new FanOutScope("test", "Test flow", executor, new Semaphore(8), deadlineMs, metrics);
+    }
+
+    @Test
+    void timeRethrowsCheckedExceptionsUnwrapped() {
+        FanOutScope scope = scope(1_000);
+
+        assertThatThrownBy(() -> scope.time("read", () -> {
+            throw new IOException("disk");
+        })).isExactlyInstanceOf(IOException.class).hasMessage("disk");
+    }
+
+    @Test
+    void timeFailsWhenTheStageOverrunsTheDeadline() {
+        FanOutScope scope = scope(50);
+
+        assertThatThrownBy(() -> scope.time("slow", () -> {
+            Thread.sleep(120);
+            return "late";
+        })).isInstanceOfSatisfying(XrpServiceException.class,
+                e -> assertThat(e.getErrorCode()).isEqualTo("UPSTREAM_TIMEOUT"));
+    }
+
+    @Test
+    void timeDoesNotStartAStageAfterTheDeadline() throws Exception {
+        FanOutScope scope = scope(20);
+        Thread.sleep(40);
+        boolean[] ran = {false};
+
+        assertThatThrownBy(() -> scope.time("late", () -> ran[0] = true))
+                .isInstanceOf(XrpServiceException.class);
+        assertThat(ran[0]).isFalse();
+    }
+
+    @Test
+    void submitInterruptsTheStageOnTheDeadline() throws Exception {
+        FanOutScope scope = scope(50);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        CompletableFuture<String> future = scope.submit("hang", () -> {
+            try {
+                Thread.sleep(5_000);
+                return "done";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        });
+
+        assertThatThrownBy(() -> scope.join(future)).isInstanceOfSatisfying(XrpServiceException.class,
+                e -> assertThat(e.getErrorCode()).isEqualTo("UPSTREAM_TIMEOUT"));
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void submitReturnsTheStageResult() {
+        FanOutScope scope = scope(1_000);
+
+        assertThat(scope.join(scope.submit("fast", () -> "ok"))).isEqualTo("ok");
+        assertThat(scope.stageTimings()).containsKey("fast");
+    }
+}
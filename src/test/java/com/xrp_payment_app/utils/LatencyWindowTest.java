@@ -0,0 +1,51 @@
+package com.xrp_payment_app.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyWindowTest {
+
+    @Test
+    void isEmptyUntilTheFirstSample() {
+        LatencyWindow window = new LatencyWindow(100, 95, 10);
+
+        assertThat(window.percentile()).isEqualTo(-1);
+
+        window.record(7);
+        assertThat(window.percentile()).isEqualTo(7);
+    }
+
+    @Test
+    void followsEverySampleWhileFillingThenOnlyEveryRecomputeInterval() {
+        LatencyWindow window = new LatencyWindow(100, 50, 10);
+        for (int latency = 1; latency <= 10; latency++) {
+            window.record(latency);
+        }
+        // Nearest rank: the 5th of 10
+        assertThat(window.percentile()).isEqualTo(5);
+
+        for (int i = 0; i < 9; i++) {
+            window.record(1_000);
+        }
+        assertThat(window.percentile()).isEqualTo(5);
+
+        window.record(1_000);
+        // 10 of 20 samples are 1..10, the 10th is 10
+        assertThat(window.percentile()).isEqualTo(10);
+    }
+
+    @Test
+    void onlyTheMostRecentSamplesCount() {
+        LatencyWindow window = new LatencyWindow(10, 95, 5);
+        for (int i = 0; i < 10; i++) {
+            window.record(1_000);
+        }
+        for (int i = 0; i < 10; i++) {
+            window.record(20);
+        }
+
+        assertThat(window.size()).isEqualTo(10);
+        assertThat(window.percentile()).isEqualTo(20);
+    }
+}
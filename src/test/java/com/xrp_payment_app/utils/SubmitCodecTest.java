@@ -0,0 +1,71 @@
+package com.xrp_payment_app.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xrp_payment_app.dto.SubmitResultResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SubmitCodecTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SubmitCodec codec = new SubmitCodec(mapper.getFactory());
+
+    private static DataBuffer buffer(String json) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void theRequestCarriesTheBlobAsASubmitCommand() throws Exception {
+        DataBuffer buffer = codec.encodeRequest("1200ABCD");
+        try {
+            JsonNode request = mapper.readTree(buffer.toString(StandardCharsets.UTF_8));
+            assertThat(request.path("method").asText()).isEqualTo("submit");
+            assertThat(request.path("params").get(0).path("tx_blob").asText()).isEqualTo("1200ABCD");
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    @Test
+    void onlyTheUsedFieldsAreReadFromTheResult() {
+        SubmitResultResponse result = codec.decodeResponse(buffer("{\"result\":{\"accepted\":true,\"engine_result\":\"tesSUCCESS\","
+                + "\"engine_result_code\":0,\"engine_result_message\":\"The transaction was applied.\",\"tx_blob\":\"1200ABCD\","
+                + "\"tx_json\":{\"Account\":\"rHb9CJAWyB4rj91VRWn96DkukG4bwdtyTh\",\"Memos\":[{\"Memo\":{}}],\"hash\":\"ABC123\"},"
+                + "\"status\":\"success\"}}"));
+
+        assertThat(result.engineResult()).isEqualTo("tesSUCCESS");
+        assertThat(result.engineResultMessage()).isEqualTo("The transaction was applied.");
+        assertThat(result.transactionHash()).isEqualTo("ABC123");
+        assertThat(result.isTentativelyAccepted()).isTrue();
+        assertThat(result.error()).isEmpty();
+    }
+
+    @Test
+    void aRippledErrorIsReportedWithItsMessage() {
+        SubmitResultResponse result = codec.decodeResponse(buffer("{\"result\":{\"error\":\"invalidTransaction\","
+                + "\"error_exception\":\"fails local checks\",\"error_message\":\"Invalid signature.\",\"request\":{\"command\":\"submit\"},"
+                + "\"status\":\"error\"}}"));
+
+        assertThat(result.error()).isEqualTo("invalidTransaction");
+        assertThat(result.engineResult()).isEmpty();
+        assertThat(result.engineResultMessage()).isEqualTo("Invalid signature.");
+    }
+
+    @Test
+    void aResponseWithoutAResultIsUnreadable() {
+        assertThatThrownBy(() -> codec.decodeResponse(buffer("{\"status\":\"ok\"}")))
+                .isInstanceOf(UncheckedIOException.class);
+        assertThatThrownBy(() -> codec.decodeResponse(buffer("[]")))
+                .isInstanceOf(UncheckedIOException.class);
+    }
+}
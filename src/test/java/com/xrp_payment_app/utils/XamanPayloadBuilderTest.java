@@ -0,0 +1,80 @@
+package com.xrp_payment_app.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xrp_payment_app.dto.XamanPayloadCreated;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class XamanPayloadBuilderTest {
+
+    private static final String CALLBACK_URL = "https://payments.example.com/xaman/callback?from=\"app\"";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final XamanPayloadBuilder builder = new XamanPayloadBuilder(CALLBACK_URL);
+
+    private JsonNode encode(String destination, long amount, long fee, long sequence, long lastLedgerSequence, boolean submit) throws Exception {
+        DataBuffer buffer = builder.encode(builder.buildPaymentPayload(destination, amount, fee, sequence, lastLedgerSequence, submit),
+                DefaultDataBufferFactory.sharedInstance);
+        try {
+            return mapper.readTree(buffer.toString(StandardCharsets.UTF_8));
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    @Test
+    void thePayloadMatchesWhatTheTreeBuilderProduced() throws Exception {
+        JsonNode payload = encode("rPT1Sjq2YGrBMTttX4GZHjKu9dyfzbpAYe", 1_250_000, 12, 4_711, 9_020, true);
+
+        assertThat(payload).isEqualTo(mapper.readTree("{\"txjson\":{\"TransactionType\":\"Payment\","
+                + "\"Destination\":\"rPT1Sjq2YGrBMTttX4GZHjKu9dyfzbpAYe\",\"Amount\":\"1250000\",\"Fee\":\"12\",\"Sequence\":4711,\"LastLedgerSequence\":9020},"
+                + "\"options\":{\"return_url\":{\"app\":" + mapper.writeValueAsString(CALLBACK_URL) + ",\"web\":"
+                + mapper.writeValueAsString(CALLBACK_URL) + "},\"force_network\":\"TESTNET\",\"submit\":true}}"));
+    }
+
+    @Test
+    void numbersAtTheEdgesAreWrittenInFull() throws Exception {
+        JsonNode zero = encode("rPT1Sjq2YGrBMTttX4GZHjKu9dyfzbpAYe", 0, 10, 1, 1, false);
+        JsonNode max = encode("rPT1Sjq2YGrBMTttX4GZHjKu9dyfzbpAYe", Long.MAX_VALUE, 1_000_000_000L, 4_294_967_295L, 4_294_967_295L, false);
+
+        assertThat(zero.path("txjson").path("Amount").asText()).isEqualTo("0");
+        assertThat(zero.path("options").path("submit").asBoolean()).isFalse();
+        assertThat(max.path("txjson").path("Amount").asText()).isEqualTo(String.valueOf(Long.MAX_VALUE));
+        assertThat(max.path("txjson").path("Fee").asText()).isEqualTo("1000000000");
+        assertThat(max.path("txjson").path("Sequence").asLong()).isEqualTo(4_294_967_295L);
+        assertThat(max.path("txjson").path("LastLedgerSequence").asLong()).isEqualTo(4_294_967_295L);
+    }
+
+    @Test
+    void theDestinationIsEscaped() throws Exception {
+        JsonNode payload = encode("r\"},\"injected\":{\"", 1, 10, 1, 21, true);
+
+        assertThat(payload.path("txjson").path("Destination").asText()).isEqualTo("r\"},\"injected\":{\"");
+        assertThat(payload.has("injected")).isFalse();
+    }
+
+    @Test
+    void onlyTheUuidAndRedirectAreReadFromTheResponse() {
+        XamanPayloadCreated created = builder.readCreated(DefaultDataBufferFactory.sharedInstance.wrap(("{\"uuid\":\"abc-123\","
+                + "\"next\":{\"no_push_msg_received\":\"https://xumm.app/sign/abc-123/qr\",\"always\":\"https://xumm.app/sign/abc-123\"},"
+                + "\"refs\":{\"qr_uri_quality_opts\":[\"m\",\"q\"]},\"pushed\":false}").getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(created).isEqualTo(new XamanPayloadCreated("abc-123", "https://xumm.app/sign/abc-123"));
+    }
+
+    @Test
+    void aResponseThatIsNotAnObjectIsRejected() {
+        assertThatThrownBy(() -> builder.readCreated(DefaultDataBufferFactory.sharedInstance.wrap("[]".getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(UncheckedIOException.class);
+    }
+}